@@ -9,18 +9,33 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskState;
+import org.eclipse.xpanse.terraform.boot.models.exceptions.TaskNotFoundException;
+import org.eclipse.xpanse.terraform.boot.models.response.TaskStatus;
 import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
+import org.eclipse.xpanse.terraform.boot.terraform.service.TerraformResultDeliveryManage;
 import org.eclipse.xpanse.terraform.boot.terraform.service.TerraformResultPersistenceManage;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskExecutionRegistry;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskLogBus;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /** REST controller for manage the task form terraform-boot. */
 @Slf4j
@@ -30,6 +45,12 @@ import org.springframework.web.bind.annotation.RestController;
 public class TerraformBootTaskResultApi {
 
     @Resource private TerraformResultPersistenceManage terraformResultPersistenceManage;
+    @Resource private TerraformResultDeliveryManage terraformResultDeliveryManage;
+    @Resource private TaskLogBus taskLogBus;
+    @Resource private TaskExecutionRegistry taskExecutionRegistry;
+
+    @Value("${terraform.task.logs.sse.timeout.millis:1800000}")
+    private long sseTimeoutInMillis;
 
     @Tag(
             name = "RetrieveTerraformResult",
@@ -43,7 +64,147 @@ public class TerraformBootTaskResultApi {
     public ResponseEntity<TerraformResult> getStoredTaskResultByRequestId(
             @Parameter(name = "requestId", description = "id of the request")
                     @PathVariable("requestId")
-                    String requestId) {
+                    UUID requestId) {
+        if (terraformResultDeliveryManage.isDeliveryPending(requestId)) {
+            return ResponseEntity.noContent().build();
+        }
         return terraformResultPersistenceManage.retrieveTerraformResultByRequestId(requestId);
     }
+
+    /**
+     * Method to get the status of a task. The status is answered from memory, so it can be polled
+     * frequently.
+     *
+     * @return status of the task.
+     */
+    @Tag(
+            name = "RetrieveTerraformResult",
+            description = "APIs for manage the task form terraform-boot.")
+    @Operation(description = "Method to get the status of a task.")
+    @GetMapping(value = "/{requestId}/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public TaskStatus getTaskStatusByRequestId(
+            @Parameter(name = "requestId", description = "id of the request")
+                    @PathVariable("requestId")
+                    UUID requestId) {
+        TaskExecutionRegistry.TaskExecution execution =
+                taskExecutionRegistry.get(requestId.toString());
+        if (Objects.nonNull(execution)) {
+            return TaskStatus.builder()
+                    .requestId(requestId)
+                    .state(execution.isRunning() ? TaskState.RUNNING : TaskState.QUEUED)
+                    .operationType(execution.getOperationType())
+                    .phase(execution.getPhase())
+                    .queuedAt(execution.getRegisteredAt())
+                    .startedAt(execution.getStartedAt())
+                    .elapsedMillis(execution.getElapsedMillis())
+                    .build();
+        }
+        if (terraformResultDeliveryManage.isDeliveryPending(requestId)) {
+            return TaskStatus.builder().requestId(requestId).state(TaskState.DELIVERING).build();
+        }
+        if (terraformResultPersistenceManage.hasStoredResult(requestId)) {
+            return TaskStatus.builder().requestId(requestId).state(TaskState.COMPLETED).build();
+        }
+        throw new TaskNotFoundException("No task found for request id " + requestId);
+    }
+
+    /**
+     * Method to cancel a queued or running task. The terraform process of the task is interrupted
+     * and killed with its child processes if it does not exit within the grace period. The result
+     * of the task, with the state at the time it was stopped, is sent via the callback.
+     */
+    @Tag(
+            name = "RetrieveTerraformResult",
+            description = "APIs for manage the task form terraform-boot.")
+    @Operation(description = "Method to cancel a queued or running task.")
+    @DeleteMapping(value = "/{requestId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public void cancelTaskByRequestId(
+            @Parameter(name = "requestId", description = "id of the request")
+                    @PathVariable("requestId")
+                    UUID requestId) {
+        if (!taskExecutionRegistry.cancel(requestId.toString())) {
+            throw new TaskNotFoundException(
+                    "No queued or running task found for request id " + requestId);
+        }
+    }
+
+    /**
+     * Method to stream the output of the terraform commands of a task as server-sent events. Each
+     * event carries the offset of the line as id, so clients can resume with the `Last-Event-ID`
+     * header or the `offset` parameter.
+     *
+     * @return emitter of the server-sent events, or 404 if there is no log of the task.
+     */
+    @Tag(
+            name = "RetrieveTerraformResult",
+            description = "APIs for manage the task form terraform-boot.")
+    @Operation(
+            description =
+                    "Method to stream the live output of the terraform commands of a task as "
+                            + "server-sent events.")
+    @GetMapping(value = "/{requestId}/logs", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    public ResponseEntity<SseEmitter> streamTaskLogsByRequestId(
+            @Parameter(name = "requestId", description = "id of the request")
+                    @PathVariable("requestId")
+                    UUID requestId,
+            @Parameter(name = "offset", description = "offset of the first line to stream")
+                    @RequestParam(name = "offset", required = false, defaultValue = "0")
+                    long offset,
+            @Parameter(hidden = true) @RequestHeader(name = "Last-Event-ID", required = false)
+                    Long lastEventId) {
+        long fromOffset = Objects.nonNull(lastEventId) ? Math.max(offset, lastEventId + 1) : offset;
+        SseEmitter emitter = new SseEmitter(sseTimeoutInMillis);
+        TaskLogBus.TaskLogSubscription subscription =
+                taskLogBus.subscribe(
+                        requestId.toString(), fromOffset, new SseTaskLogListener(emitter));
+        if (Objects.isNull(subscription)) {
+            // the event stream cannot carry the error response, hence only the status is sent.
+            return ResponseEntity.notFound().build();
+        }
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return ResponseEntity.ok(emitter);
+    }
+
+    /** Listener sending the log of a task as server-sent events. */
+    private record SseTaskLogListener(SseEmitter emitter) implements TaskLogBus.TaskLogListener {
+
+        @Override
+        public void onLine(TaskLogBus.TaskLogLine line) throws IOException {
+            emitter.send(
+                    SseEmitter.event()
+                            .id(String.valueOf(line.offset()))
+                            .name(line.stream())
+                            .data(line.line(), MediaType.TEXT_PLAIN));
+        }
+
+        @Override
+        public void onLinesSkipped(long nextOffset, long skippedLines) throws IOException {
+            emitter.send(
+                    SseEmitter.event()
+                            .name("skipped")
+                            .data(
+                                    Map.of("nextOffset", nextOffset, "skippedLines", skippedLines),
+                                    MediaType.APPLICATION_JSON));
+        }
+
+        @Override
+        public void onHeartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+
+        @Override
+        public void onCompleted() {
+            try {
+                emitter.send(SseEmitter.event().name("completed").data(""));
+                emitter.complete();
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
 }
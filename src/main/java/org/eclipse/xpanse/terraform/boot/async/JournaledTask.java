@@ -0,0 +1,92 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.async;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.UUID;
+import lombok.Data;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
+
+/** Async task recorded in the task journal, with the request to run it again after a restart. */
+@Data
+public class JournaledTask {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /** Sources of the scripts of the async tasks. */
+    public enum TaskSource {
+        SCRIPTS,
+        GIT_REPO,
+        DIRECTORY
+    }
+
+    /** Actions of the async tasks. */
+    public enum TaskAction {
+        DEPLOY,
+        MODIFY,
+        DESTROY
+    }
+
+    /** Phases of the async tasks. */
+    public enum TaskPhase {
+        QUEUED,
+        RUNNING
+    }
+
+    private UUID requestId;
+    private TaskSource source;
+    private TaskAction action;
+    private TaskOperationType operationType;
+    private String moduleDirectory;
+    private JsonNode request;
+    private TaskPhase phase;
+    private String workspace;
+    private Long pid;
+    private Long processStartTime;
+    private long acceptedTime;
+
+    /**
+     * Create a queued task.
+     *
+     * @param requestId id of the request.
+     * @param source source of the scripts.
+     * @param action action of the task.
+     * @param operationType operation type of the task.
+     * @param request async request of the task.
+     * @param moduleDirectory module directory of the tasks from a directory, otherwise null.
+     * @return the queued task.
+     */
+    public static JournaledTask queued(
+            UUID requestId,
+            TaskSource source,
+            TaskAction action,
+            TaskOperationType operationType,
+            Object request,
+            String moduleDirectory) {
+        JournaledTask task = new JournaledTask();
+        task.setRequestId(requestId);
+        task.setSource(source);
+        task.setAction(action);
+        task.setOperationType(operationType);
+        task.setRequest(OBJECT_MAPPER.valueToTree(request));
+        task.setModuleDirectory(moduleDirectory);
+        task.setPhase(TaskPhase.QUEUED);
+        task.setAcceptedTime(System.currentTimeMillis());
+        return task;
+    }
+
+    /**
+     * Convert the journaled request to the request class of the task.
+     *
+     * @param requestClass request class of the task.
+     * @param <T> type of the request.
+     * @return the request.
+     */
+    public <T> T getRequestAs(Class<T> requestClass) {
+        return OBJECT_MAPPER.convertValue(request, requestClass);
+    }
+}
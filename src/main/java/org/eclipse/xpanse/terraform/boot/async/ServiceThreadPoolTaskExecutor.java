@@ -1,37 +0,0 @@
-/*
- * SPDX-License-Identifier: Apache-2.0
- * SPDX-FileCopyrightText: Huawei Inc.
- */
-
-package org.eclipse.xpanse.terraform.boot.async;
-
-import java.util.concurrent.Callable;
-import java.util.concurrent.Future;
-import org.slf4j.MDC;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-
-/**
- * Overwrite the thread pool to solve the problem that the traceId will be lost in the process of
- * printing the log.
- */
-public class ServiceThreadPoolTaskExecutor extends ThreadPoolTaskExecutor {
-
-    public ServiceThreadPoolTaskExecutor() {
-        super();
-    }
-
-    @Override
-    public void execute(Runnable task) {
-        super.execute(ThreadMdcUtil.wrap(task, MDC.getCopyOfContextMap()));
-    }
-
-    @Override
-    public <T> Future<T> submit(Callable<T> task) {
-        return super.submit(ThreadMdcUtil.wrap(task, MDC.getCopyOfContextMap()));
-    }
-
-    @Override
-    public Future<?> submit(Runnable task) {
-        return super.submit(ThreadMdcUtil.wrap(task, MDC.getCopyOfContextMap()));
-    }
-}
@@ -0,0 +1,444 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.async;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.xpanse.terraform.boot.models.exceptions.TaskJournalException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-ahead journal of the accepted async tasks, so unfinished tasks can be recovered after a
+ * restart. Records are appended by a single writer thread which writes all pending records and
+ * syncs the file once per batch (group commit). Only accepting a task waits for the sync. The
+ * journal is compacted to the unfinished tasks when it grows beyond the threshold.
+ */
+@Slf4j
+@Component
+public class TerraformTaskJournal {
+
+    private static final String JOURNAL_FILE_NAME = "task-journal.log";
+    private static final String DEFAULT_JOURNAL_DIR_NAME = "terraform-task-journal";
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final Set<PosixFilePermission> OWNER_ONLY_DIR_PERMISSIONS =
+            PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_ONLY_FILE_PERMISSIONS =
+            PosixFilePermissions.fromString("rw-------");
+
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final BlockingQueue<PendingRecord> pendingRecords = new LinkedBlockingQueue<>();
+
+    /** Unfinished tasks, only modified by the writer thread after the journal is opened. */
+    private final Map<UUID, JournaledTask> unfinishedTasks = new LinkedHashMap<>();
+
+    private final boolean journalEnabled;
+    private final Path journalFile;
+    private final long compactionThresholdBytes;
+    private List<JournaledTask> recoveredTasks = List.of();
+    private FileChannel journalChannel;
+    private Thread writerThread;
+
+    /**
+     * Constructor for the TerraformTaskJournal bean.
+     *
+     * @param journalEnabled value of `terraform.task.journal.enabled` property
+     * @param journalDir value of `terraform.task.journal.dir` property
+     * @param compactionThresholdMb value of `terraform.task.journal.compaction.threshold.mb`
+     */
+    public TerraformTaskJournal(
+            @Value("${terraform.task.journal.enabled:true}") boolean journalEnabled,
+            @Value("${terraform.task.journal.dir:}") String journalDir,
+            @Value("${terraform.task.journal.compaction.threshold.mb:16}")
+                    long compactionThresholdMb) {
+        this.journalEnabled = journalEnabled;
+        this.journalFile =
+                (StringUtils.isNotBlank(journalDir)
+                                ? Paths.get(journalDir)
+                                : Paths.get(
+                                        System.getProperty("java.io.tmpdir"),
+                                        DEFAULT_JOURNAL_DIR_NAME))
+                        .resolve(JOURNAL_FILE_NAME)
+                        .toAbsolutePath();
+        this.compactionThresholdBytes = compactionThresholdMb * 1024 * 1024;
+    }
+
+    /** Load the unfinished tasks from the journal and start the writer thread. */
+    @PostConstruct
+    public void open() {
+        if (!journalEnabled) {
+            return;
+        }
+        try {
+            createJournalDirectory();
+            loadJournal();
+            recoveredTasks = List.copyOf(unfinishedTasks.values());
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Opening task journal " + journalFile + " failed.", e);
+        }
+        if (!recoveredTasks.isEmpty()) {
+            log.info(
+                    "Loaded {} unfinished tasks from journal {}.",
+                    recoveredTasks.size(),
+                    journalFile);
+        }
+        writerThread =
+                Thread.ofPlatform().name("task-journal-writer").daemon().start(this::writeRecords);
+    }
+
+    /** Write the pending records and stop the writer thread. */
+    @PreDestroy
+    public void close() {
+        if (Objects.isNull(writerThread)) {
+            return;
+        }
+        PendingRecord stop = new PendingRecord(null);
+        pendingRecords.add(stop);
+        // the writer stops even if the records before it could not be written.
+        stop.written.exceptionally(e -> null).join();
+        try {
+            writerThread.join();
+            journalChannel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Closing task journal {} failed.", journalFile, e);
+        }
+        writerThread = null;
+    }
+
+    /**
+     * Record an accepted task. This method returns when the record is synced to disk.
+     *
+     * @param task the accepted task.
+     * @throws TaskJournalException if the record could not be written, the task must be rejected.
+     */
+    public void recordAccepted(JournaledTask task) {
+        try {
+            append(
+                            new JournalRecord(
+                                    RecordType.ACCEPTED,
+                                    task.getRequestId(),
+                                    task,
+                                    null,
+                                    null,
+                                    null))
+                    .join();
+        } catch (CompletionException e) {
+            throw new TaskJournalException(
+                    "Recording task " + task.getRequestId() + " in the task journal failed.",
+                    e.getCause());
+        }
+    }
+
+    /**
+     * Record that a task has started running.
+     *
+     * @param requestId id of the request.
+     */
+    public void recordRunning(UUID requestId) {
+        appendInBackground(
+                new JournalRecord(RecordType.RUNNING, requestId, null, null, null, null));
+    }
+
+    /**
+     * Record a process started by a task.
+     *
+     * @param requestId id of the request.
+     * @param workspace working directory of the process.
+     * @param process the started process, its start time tells it apart from a later process which
+     *     reuses its pid.
+     */
+    public void recordProcessStarted(UUID requestId, String workspace, ProcessHandle process) {
+        Long startTime = process.info().startInstant().map(Instant::toEpochMilli).orElse(null);
+        appendInBackground(
+                new JournalRecord(
+                        RecordType.PROCESS, requestId, null, workspace, process.pid(), startTime));
+    }
+
+    /**
+     * Record that a task has completed.
+     *
+     * @param requestId id of the request.
+     */
+    public void recordCompleted(UUID requestId) {
+        appendInBackground(
+                new JournalRecord(RecordType.COMPLETED, requestId, null, null, null, null));
+    }
+
+    /**
+     * Get the tasks which were unfinished when the journal was opened.
+     *
+     * @return the unfinished tasks of the previous run.
+     */
+    public List<JournaledTask> getRecoveredTasks() {
+        return recoveredTasks;
+    }
+
+    private CompletableFuture<Void> append(JournalRecord journalRecord) {
+        if (!journalEnabled || Objects.isNull(journalRecord.requestId())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        PendingRecord pendingRecord = new PendingRecord(journalRecord);
+        pendingRecords.add(pendingRecord);
+        return pendingRecord.written;
+    }
+
+    /** Append a record without waiting for it, a lost record is only logged. */
+    private void appendInBackground(JournalRecord journalRecord) {
+        append(journalRecord)
+                .whenComplete(
+                        (ignored, e) -> {
+                            if (Objects.nonNull(e)) {
+                                log.error("Writing task journal {} failed.", journalFile, e);
+                            }
+                        });
+    }
+
+    private void writeRecords() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(pendingRecords.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            pendingRecords.drainTo(batch, MAX_BATCH_SIZE - 1);
+            boolean stopped = writeBatch(batch);
+            batch.forEach(pendingRecord -> pendingRecord.written.complete(null));
+            batch.clear();
+            if (stopped) {
+                return;
+            }
+        }
+    }
+
+    /** Write and sync a batch of records, returns true if the writer is stopped. */
+    private boolean writeBatch(List<PendingRecord> batch) {
+        boolean stopped = false;
+        long journalSize = -1;
+        try {
+            StringBuilder lines = new StringBuilder();
+            for (PendingRecord pendingRecord : batch) {
+                if (Objects.isNull(pendingRecord.journalRecord)) {
+                    stopped = true;
+                } else if (apply(pendingRecord.journalRecord)) {
+                    lines.append(objectMapper.writeValueAsString(pendingRecord.journalRecord))
+                            .append('\n');
+                }
+            }
+            if (!lines.isEmpty()) {
+                journalSize = journalChannel.size();
+                ByteBuffer buffer = StandardCharsets.UTF_8.encode(lines.toString());
+                while (buffer.hasRemaining()) {
+                    journalChannel.write(buffer);
+                }
+                journalChannel.force(false);
+            }
+        } catch (IOException e) {
+            rollback(batch, journalSize);
+            batch.forEach(pendingRecord -> pendingRecord.written.completeExceptionally(e));
+            return stopped;
+        }
+        // the batch is durable, a failed compaction does not reject its records.
+        try {
+            if (journalChannel.size() > compactionThresholdBytes) {
+                compact();
+            }
+        } catch (IOException e) {
+            log.error("Compacting task journal {} failed.", journalFile, e);
+        }
+        return stopped;
+    }
+
+    /**
+     * Forget the tasks accepted in the failed batch, they are rejected. A partially written batch
+     * is cut off, so the next batch does not continue its incomplete last line.
+     */
+    private void rollback(List<PendingRecord> batch, long journalSize) {
+        for (PendingRecord pendingRecord : batch) {
+            JournalRecord journalRecord = pendingRecord.journalRecord;
+            if (Objects.nonNull(journalRecord) && journalRecord.type() == RecordType.ACCEPTED) {
+                unfinishedTasks.remove(journalRecord.requestId());
+            }
+        }
+        if (journalSize < 0) {
+            return;
+        }
+        try {
+            journalChannel.truncate(journalSize);
+        } catch (IOException e) {
+            log.error("Truncating task journal {} failed.", journalFile, e);
+        }
+    }
+
+    /** Apply a record to the unfinished tasks, returns false if the record is irrelevant. */
+    private boolean apply(JournalRecord journalRecord) {
+        if (journalRecord.type() == RecordType.ACCEPTED) {
+            unfinishedTasks.put(journalRecord.requestId(), journalRecord.task());
+            return true;
+        }
+        JournaledTask task = unfinishedTasks.get(journalRecord.requestId());
+        if (Objects.isNull(task)) {
+            return false;
+        }
+        switch (journalRecord.type()) {
+            case RUNNING -> task.setPhase(JournaledTask.TaskPhase.RUNNING);
+            case PROCESS -> {
+                task.setWorkspace(journalRecord.workspace());
+                task.setPid(journalRecord.pid());
+                task.setProcessStartTime(journalRecord.processStartTime());
+            }
+            default -> unfinishedTasks.remove(journalRecord.requestId());
+        }
+        return true;
+    }
+
+    private void loadJournal() throws IOException {
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    apply(objectMapper.readValue(line, JournalRecord.class));
+                } catch (JsonProcessingException e) {
+                    // the last record may be incomplete if the process was killed while writing.
+                    log.warn("Skipped invalid record in task journal {}.", journalFile);
+                }
+            }
+        }
+    }
+
+    /** Rewrite the journal with the records of the unfinished tasks only. */
+    private void compact() throws IOException {
+        Path compactedFile = journalFile.resolveSibling(JOURNAL_FILE_NAME + ".compacted");
+        StringBuilder lines = new StringBuilder();
+        for (JournaledTask task : unfinishedTasks.values()) {
+            lines.append(
+                            objectMapper.writeValueAsString(
+                                    new JournalRecord(
+                                            RecordType.ACCEPTED,
+                                            task.getRequestId(),
+                                            task,
+                                            null,
+                                            null,
+                                            null)))
+                    .append('\n');
+        }
+        Set<StandardOpenOption> options =
+                Set.of(
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE);
+        try (FileChannel channel =
+                isPosixFileSystem()
+                        ? FileChannel.open(
+                                compactedFile,
+                                options,
+                                PosixFilePermissions.asFileAttribute(OWNER_ONLY_FILE_PERMISSIONS))
+                        : FileChannel.open(compactedFile, options)) {
+            channel.write(StandardCharsets.UTF_8.encode(lines.toString()));
+            channel.force(false);
+        }
+        if (Objects.nonNull(journalChannel)) {
+            journalChannel.close();
+        }
+        Files.move(
+                compactedFile,
+                journalFile,
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        journalChannel =
+                FileChannel.open(journalFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /** The journal contains the variables of the requests, hence only the owner may read it. */
+    private void createJournalDirectory() throws IOException {
+        Path journalDir = journalFile.getParent();
+        if (!isPosixFileSystem()) {
+            Files.createDirectories(journalDir);
+            return;
+        }
+        if (!Files.isDirectory(journalDir)) {
+            Files.createDirectories(
+                    journalDir, PosixFilePermissions.asFileAttribute(OWNER_ONLY_DIR_PERMISSIONS));
+        } else if (!Files.getPosixFilePermissions(journalDir).equals(OWNER_ONLY_DIR_PERMISSIONS)) {
+            log.warn("Restricted access to task journal directory {} to its owner.", journalDir);
+            Files.setPosixFilePermissions(journalDir, OWNER_ONLY_DIR_PERMISSIONS);
+        }
+        if (Files.isRegularFile(journalFile)) {
+            Files.setPosixFilePermissions(journalFile, OWNER_ONLY_FILE_PERMISSIONS);
+        }
+    }
+
+    private boolean isPosixFileSystem() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    /** Types of the journal records. */
+    private enum RecordType {
+        ACCEPTED,
+        RUNNING,
+        PROCESS,
+        COMPLETED
+    }
+
+    /** Record of the journal. */
+    private record JournalRecord(
+            RecordType type,
+            UUID requestId,
+            JournaledTask task,
+            String workspace,
+            Long pid,
+            Long processStartTime) {}
+
+    /** Record waiting to be written by the writer thread. */
+    private static class PendingRecord {
+
+        private final JournalRecord journalRecord;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        PendingRecord(JournalRecord journalRecord) {
+            this.journalRecord = journalRecord;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
+import org.eclipse.xpanse.terraform.boot.models.exceptions.TaskQueueFullException;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskExecutionRegistry;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Scheduler of the async terraform tasks. Every operation type has its own bounded queue and a
+ * configured number of tasks running concurrently. Tasks exceeding the queue capacity are rejected
+ * with a {@link TaskQueueFullException} instead of running on the request thread.
+ */
+@Slf4j
+@Component
+public class TerraformTaskScheduler {
+
+    private static final long DEFAULT_RETRY_AFTER_SECONDS = 30;
+    private static final long MAX_RETRY_AFTER_SECONDS = 3600;
+    private static final double DURATION_SMOOTHING_FACTOR = 0.2;
+
+    private final Map<TaskOperationType, OperationQueue> operationQueues =
+            new EnumMap<>(TaskOperationType.class);
+
+    private final TerraformTaskJournal taskJournal;
+
+    private final TaskExecutionRegistry taskExecutionRegistry;
+
+    /**
+     * Constructor for the TerraformTaskScheduler bean.
+     *
+     * @param virtualThreadsEnabled value of `spring.threads.virtual.enabled` property
+     * @param queueCapacity value of `terraform.task.queue.capacity` property
+     * @param planConcurrency value of `terraform.task.concurrency.plan` property
+     * @param applyConcurrency value of `terraform.task.concurrency.apply` property
+     * @param destroyConcurrency value of `terraform.task.concurrency.destroy` property
+     * @param meterRegistry registry of the queue metrics
+     * @param taskJournal journal of the accepted tasks
+     * @param taskExecutionRegistry registry to cancel the queued and running tasks
+     */
+    public TerraformTaskScheduler(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled,
+            @Value("${terraform.task.queue.capacity:200}") int queueCapacity,
+            @Value("${terraform.task.concurrency.plan:8}") int planConcurrency,
+            @Value("${terraform.task.concurrency.apply:8}") int applyConcurrency,
+            @Value("${terraform.task.concurrency.destroy:4}") int destroyConcurrency,
+            MeterRegistry meterRegistry,
+            TerraformTaskJournal taskJournal,
+            TaskExecutionRegistry taskExecutionRegistry) {
+        this.taskJournal = taskJournal;
+        this.taskExecutionRegistry = taskExecutionRegistry;
+        Map<TaskOperationType, Integer> concurrencies =
+                Map.of(
+                        TaskOperationType.PLAN, planConcurrency,
+                        TaskOperationType.APPLY, applyConcurrency,
+                        TaskOperationType.DESTROY, destroyConcurrency);
+        for (TaskOperationType operationType : TaskOperationType.values()) {
+            String threadNamePrefix = "task-" + operationType.name().toLowerCase(Locale.ROOT) + "-";
+            ThreadFactory threadFactory =
+                    virtualThreadsEnabled
+                            ? Thread.ofVirtual().name(threadNamePrefix, 0).factory()
+                            : Thread.ofPlatform().name(threadNamePrefix, 0).factory();
+            operationQueues.put(
+                    operationType,
+                    new OperationQueue(
+                            operationType,
+                            Math.max(1, concurrencies.get(operationType)),
+                            Math.max(1, queueCapacity),
+                            threadFactory,
+                            meterRegistry));
+        }
+    }
+
+    /**
+     * Queue a task to run when a slot of its operation type is free. The MDC of the calling thread
+     * is copied to the task.
+     *
+     * @param operationType operation type of the task.
+     * @param task task to run.
+     * @throws TaskQueueFullException if the queue of the operation type is full.
+     */
+    public void submit(TaskOperationType operationType, Runnable task) {
+        operationQueues
+                .get(operationType)
+                .submit(ThreadMdcUtil.wrap(task, MDC.getCopyOfContextMap()));
+    }
+
+    /**
+     * Record a task in the journal and queue it. The task is recorded as running when it starts,
+     * with the processes it starts, and as completed when it ends or is rejected.
+     *
+     * @param journaledTask the task to record in the journal.
+     * @param task task to run.
+     * @throws TaskQueueFullException if the queue of the operation type is full.
+     */
+    public void submit(JournaledTask journaledTask, Runnable task) {
+        UUID requestId = journaledTask.getRequestId();
+        taskJournal.recordAccepted(journaledTask);
+        TaskExecutionRegistry.TaskExecution taskExecution =
+                taskExecutionRegistry.register(requestId.toString());
+        taskExecution.setProcessListener(
+                (workspace, process) ->
+                        taskJournal.recordProcessStarted(requestId, workspace, process));
+        try {
+            submit(
+                    journaledTask.getOperationType(),
+                    () -> {
+                        taskJournal.recordRunning(requestId);
+                        try (taskExecution) {
+                            task.run();
+                        } finally {
+                            taskJournal.recordCompleted(requestId);
+                        }
+                    });
+        } catch (TaskQueueFullException e) {
+            taskExecution.close();
+            taskJournal.recordCompleted(requestId);
+            throw e;
+        }
+    }
+
+    /** Stops the running tasks when the application is shut down. */
+    @PreDestroy
+    public void shutdown() {
+        operationQueues.values().forEach(operationQueue -> operationQueue.executor.shutdownNow());
+    }
+
+    /** Bounded queue and workers of one operation type. */
+    private static class OperationQueue {
+
+        private final TaskOperationType operationType;
+        private final int concurrency;
+        private final ThreadPoolExecutor executor;
+        private final Timer waitTimer;
+        private final Counter rejectedCounter;
+        private volatile double averageDurationMillis;
+
+        OperationQueue(
+                TaskOperationType operationType,
+                int concurrency,
+                int queueCapacity,
+                ThreadFactory threadFactory,
+                MeterRegistry meterRegistry) {
+            this.operationType = operationType;
+            this.concurrency = concurrency;
+            this.executor =
+                    new ThreadPoolExecutor(
+                            concurrency,
+                            concurrency,
+                            0L,
+                            TimeUnit.MILLISECONDS,
+                            new ArrayBlockingQueue<>(queueCapacity),
+                            threadFactory,
+                            new ThreadPoolExecutor.AbortPolicy());
+            String operation = operationType.name();
+            Gauge.builder("terraform.task.queue.depth", executor, e -> e.getQueue().size())
+                    .description("Number of async terraform tasks waiting in the queue")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            Gauge.builder("terraform.task.active", executor, ThreadPoolExecutor::getActiveCount)
+                    .description("Number of async terraform tasks running")
+                    .tag("operation", operation)
+                    .register(meterRegistry);
+            this.waitTimer =
+                    Timer.builder("terraform.task.queue.wait")
+                            .description("Time async terraform tasks waited in the queue")
+                            .tag("operation", operation)
+                            .register(meterRegistry);
+            this.rejectedCounter =
+                    Counter.builder("terraform.task.rejected")
+                            .description("Number of async terraform tasks rejected")
+                            .tag("operation", operation)
+                            .register(meterRegistry);
+        }
+
+        void submit(Runnable task) {
+            long queuedTime = System.nanoTime();
+            try {
+                executor.execute(
+                        () -> {
+                            long startTime = System.nanoTime();
+                            waitTimer.record(startTime - queuedTime, TimeUnit.NANOSECONDS);
+                            try {
+                                task.run();
+                            } finally {
+                                recordDuration(System.nanoTime() - startTime);
+                            }
+                        });
+            } catch (RejectedExecutionException e) {
+                rejectedCounter.increment();
+                long retryAfterSeconds = estimateRetryAfterSeconds();
+                log.warn(
+                        "Queue of {} tasks is full, rejected the task. Retry after {} seconds.",
+                        operationType,
+                        retryAfterSeconds);
+                throw new TaskQueueFullException(
+                        String.format(
+                                "Too many %s tasks are queued, retry after %d seconds.",
+                                operationType, retryAfterSeconds),
+                        retryAfterSeconds);
+            }
+        }
+
+        private void recordDuration(long durationNanos) {
+            double durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            averageDurationMillis =
+                    averageDurationMillis == 0
+                            ? durationMillis
+                            : averageDurationMillis
+                                    + DURATION_SMOOTHING_FACTOR
+                                            * (durationMillis - averageDurationMillis);
+        }
+
+        /**
+         * Estimate the time until a slot in the full queue is free. A slot is freed whenever one of
+         * the running tasks completes, which happens on average every average duration divided by
+         * the concurrency.
+         */
+        private long estimateRetryAfterSeconds() {
+            if (averageDurationMillis == 0) {
+                return DEFAULT_RETRY_AFTER_SECONDS;
+            }
+            long seconds = (long) Math.ceil(averageDurationMillis / concurrency / 1000);
+            return Math.clamp(seconds, 1, MAX_RETRY_AFTER_SECONDS);
+        }
+    }
+}
@@ -5,36 +5,36 @@
 
 package org.eclipse.xpanse.terraform.boot.config;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.xpanse.terraform.boot.logging.RestTemplateLoggingInterceptor;
-import org.eclipse.xpanse.terraform.boot.security.hmac.HmacSignatureHeaderInterceptor;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.ClientHttpRequestFactory;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 
-/** Configuration class for RestTemplate. */
+/** Configuration class for the HTTP client of the webhook requests. */
 @Configuration
 @Slf4j
 public class RestTemplateConfig {
 
-    private final RestTemplateLoggingInterceptor restTemplateLoggingInterceptor;
-    private final HmacSignatureHeaderInterceptor hmacSignatureHeaderInterceptor;
-    private final boolean isHmacRequestSigningEnabled;
+    private final HttpClient.Version httpVersion;
+    private final long connectTimeoutMillis;
+    private final long deliveryTimeoutMillis;
 
     /** constructor for RestTemplateConfig. */
     public RestTemplateConfig(
-            @Autowired RestTemplateLoggingInterceptor restTemplateLoggingInterceptor,
-            @Autowired(required = false)
-                    HmacSignatureHeaderInterceptor hmacSignatureHeaderInterceptor,
             @Value("${terraformboot.webhook.hmac.request.signing.enabled}")
-                    boolean isHmacRequestSigningEnabled) {
-        this.restTemplateLoggingInterceptor = restTemplateLoggingInterceptor;
-        this.hmacSignatureHeaderInterceptor = hmacSignatureHeaderInterceptor;
-        this.isHmacRequestSigningEnabled = isHmacRequestSigningEnabled;
+                    boolean isHmacRequestSigningEnabled,
+            @Value("${terraformboot.webhook.http.version:HTTP_2}") HttpClient.Version httpVersion,
+            @Value("${terraformboot.webhook.connect.timeout.millis:15000}")
+                    long connectTimeoutMillis,
+            @Value("${terraformboot.webhook.delivery.timeout.millis:600000}")
+                    long deliveryTimeoutMillis) {
+        this.httpVersion = httpVersion;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.deliveryTimeoutMillis = deliveryTimeoutMillis;
         if (!isHmacRequestSigningEnabled) {
             log.warn("HMAC based request signing disabled for webhook requests");
         } else {
@@ -42,23 +42,20 @@ public class RestTemplateConfig {
         }
     }
 
-    /** Create RestTemplate to IOC. */
+    /**
+     * Create ClientHttpRequestFactory to IOC. The JDK client keeps the connections to the webhook
+     * destinations alive and reuses them, and negotiates HTTP/2 if the destination supports it.
+     */
     @Bean
-    public RestTemplate restTemplate(ClientHttpRequestFactory factory) {
-        RestTemplate restTemplate = new RestTemplate(factory);
-        restTemplate.getInterceptors().add(restTemplateLoggingInterceptor);
-        if (isHmacRequestSigningEnabled) {
-            restTemplate.getInterceptors().add(hmacSignatureHeaderInterceptor);
-        }
-        return restTemplate;
-    }
-
-    /** Create ClientHttpRequestFactory to IOC. */
-    @Bean
-    public ClientHttpRequestFactory simpleClientHttpRequestFactory() {
-        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
-        factory.setConnectTimeout(15000);
-        factory.setReadTimeout(5000);
+    public ClientHttpRequestFactory clientHttpRequestFactory() {
+        HttpClient httpClient =
+                HttpClient.newBuilder()
+                        .version(httpVersion)
+                        .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+                        .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        // the JDK client bounds the whole exchange by this timeout, including the body upload.
+        factory.setReadTimeout(Duration.ofMillis(deliveryTimeoutMillis));
         return factory;
     }
 }
@@ -0,0 +1,23 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.models.enums;
+
+/** Types of the operations run by the async tasks, each type is queued separately. */
+public enum TaskOperationType {
+    PLAN,
+    APPLY,
+    DESTROY;
+
+    /**
+     * Get the operation type of a deploy or modify task.
+     *
+     * @param isPlanOnly value of the isPlanOnly flag of the request.
+     * @return PLAN if the task only plans the changes, otherwise APPLY.
+     */
+    public static TaskOperationType ofDeployment(Boolean isPlanOnly) {
+        return Boolean.TRUE.equals(isPlanOnly) ? PLAN : APPLY;
+    }
+}
@@ -0,0 +1,14 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.models.enums;
+
+/** States of a task reported by the task status API. */
+public enum TaskState {
+    QUEUED,
+    RUNNING,
+    DELIVERING,
+    COMPLETED
+}
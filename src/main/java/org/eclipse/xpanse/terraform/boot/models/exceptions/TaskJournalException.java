@@ -0,0 +1,13 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.models.exceptions;
+
+/** Exception thrown when an accepted task can not be written to the task journal. */
+public class TaskJournalException extends RuntimeException {
+    public TaskJournalException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
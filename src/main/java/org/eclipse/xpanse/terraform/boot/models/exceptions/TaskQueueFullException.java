@@ -0,0 +1,20 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.models.exceptions;
+
+import lombok.Getter;
+
+/** Exception thrown when the queue of the async tasks is full. */
+@Getter
+public class TaskQueueFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TaskQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -11,7 +11,9 @@ import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.xpanse.terraform.boot.models.response.Response;
 import org.eclipse.xpanse.terraform.boot.models.response.ResultType;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageConversionException;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -127,4 +129,35 @@ public class TerraformApiExceptionHandler {
                 ResultType.RESULT_ALREADY_RETURNED_OR_REQUEST_ID_INVALID,
                 Collections.singletonList(ex.getMessage()));
     }
+
+    /** Exception handler for TaskNotFoundException. */
+    @ExceptionHandler({TaskNotFoundException.class})
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ResponseBody
+    public Response handleTaskNotFoundException(TaskNotFoundException ex) {
+        return Response.errorResponse(
+                ResultType.TASK_NOT_FOUND, Collections.singletonList(ex.getMessage()));
+    }
+
+    /** Exception handler for TaskJournalException. */
+    @ExceptionHandler({TaskJournalException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public Response handleTaskJournalException(TaskJournalException ex) {
+        log.error("TaskJournalException: ", ex);
+        return Response.errorResponse(
+                ResultType.SERVICE_UNAVAILABLE, Collections.singletonList(ex.getMessage()));
+    }
+
+    /** Exception handler for TaskQueueFullException. */
+    @ExceptionHandler({TaskQueueFullException.class})
+    @ResponseBody
+    public ResponseEntity<Response> handleTaskQueueFullException(TaskQueueFullException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(
+                        Response.errorResponse(
+                                ResultType.TOO_MANY_TASKS,
+                                Collections.singletonList(ex.getMessage())));
+    }
 }
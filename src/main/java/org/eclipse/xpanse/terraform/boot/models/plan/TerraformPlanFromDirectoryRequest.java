@@ -9,6 +9,7 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -40,4 +41,11 @@ public class TerraformPlanFromDirectoryRequest {
                     "Key-value pairs of variables that must be injected as environment "
                             + "variables to terraform process.")
     private Map<String, String> envVariables = new HashMap<>();
+
+    @Positive
+    @Schema(
+            description =
+                    "Timeout of the task in seconds. The terraform process is stopped when it is "
+                            + "exceeded. Defaults to the configured timeout of the operation.")
+    private Integer timeoutSeconds;
 }
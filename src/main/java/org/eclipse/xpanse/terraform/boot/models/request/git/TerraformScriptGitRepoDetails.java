@@ -7,6 +7,7 @@ package org.eclipse.xpanse.terraform.boot.models.request.git;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import lombok.Data;
 
 /** Data model for defining the GIT repo information to fetch the scripts. */
@@ -21,6 +22,14 @@ public class TerraformScriptGitRepoDetails {
     @Schema(description = "Branch to be checked-out after the repo is cloned.")
     private String branch;
 
+    @Pattern(regexp = "^[0-9a-fA-F]{40}$")
+    @Schema(
+            description =
+                    "Full SHA of the commit to be checked out. If provided, the commit is"
+                            + " checked out instead of the head of the branch, and repeated"
+                            + " deployments of the same commit are served from the local cache.")
+    private String commitId;
+
     @Schema(
             description =
                     "Location of the scripts. If not provided, the scripts will be executed from"
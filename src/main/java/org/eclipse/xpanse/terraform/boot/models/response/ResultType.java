@@ -20,7 +20,9 @@ public enum ResultType {
     INVALID_GIT_REPO_DETAILS("Invalid Git Repo Details"),
     INVALID_TERRAFORM_TOOL("Invalid Terraform Tool"),
     INVALID_TERRAFORM_SCRIPTS("Invalid Terraform Scripts"),
-    RESULT_ALREADY_RETURNED_OR_REQUEST_ID_INVALID("Result Already Returned or RequestId Invalid");
+    RESULT_ALREADY_RETURNED_OR_REQUEST_ID_INVALID("Result Already Returned or RequestId Invalid"),
+    TOO_MANY_TASKS("Too Many Tasks"),
+    TASK_NOT_FOUND("Task Not Found");
 
     private final String value;
 
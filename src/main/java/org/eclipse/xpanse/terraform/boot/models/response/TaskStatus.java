@@ -0,0 +1,53 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.models.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskState;
+
+/** Data model for the status of a task. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskStatus {
+
+    @Schema(description = "Id of the request")
+    private UUID requestId;
+
+    @NotNull
+    @Schema(
+            description =
+                    "State of the task. DELIVERING means the result is being sent to the webhook,"
+                            + " COMPLETED means the result can be retrieved via the result API.")
+    private TaskState state;
+
+    @Schema(description = "Operation type of the running task.")
+    private TaskOperationType operationType;
+
+    @Schema(
+            description =
+                    "The terraform command the running task executes, such as init or apply, or"
+                            + " install while the required terraform version is installed.")
+    private String phase;
+
+    @Schema(description = "Time the task was accepted.")
+    private Instant queuedAt;
+
+    @Schema(description = "Time the task started running.")
+    private Instant startedAt;
+
+    @Schema(description = "Time in milliseconds since the task was accepted.")
+    private Long elapsedMillis;
+}
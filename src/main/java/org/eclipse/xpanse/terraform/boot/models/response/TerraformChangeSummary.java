@@ -0,0 +1,32 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.models.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Data model for the summary of the resource changes of a terraform plan or apply. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TerraformChangeSummary {
+
+    @Schema(description = "The terraform operation the summary belongs to, such as plan or apply.")
+    private String operation;
+
+    @Schema(description = "Number of resources added.")
+    private int add;
+
+    @Schema(description = "Number of resources changed.")
+    private int change;
+
+    @Schema(description = "Number of resources removed.")
+    private int remove;
+}
@@ -0,0 +1,38 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.models.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Data model for a diagnostic, an error or warning, reported by terraform. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TerraformDiagnostic {
+
+    @Schema(description = "Severity of the diagnostic, error or warning.")
+    private String severity;
+
+    @Schema(description = "Short summary of the diagnostic.")
+    private String summary;
+
+    @Schema(description = "Detail of the diagnostic.")
+    private String detail;
+
+    @Schema(description = "Address of the resource the diagnostic belongs to.")
+    private String address;
+
+    @Schema(description = "Script file the diagnostic refers to.")
+    private String filename;
+
+    @Schema(description = "Line in the script file the diagnostic refers to.")
+    private Integer line;
+}
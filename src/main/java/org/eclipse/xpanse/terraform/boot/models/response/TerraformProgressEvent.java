@@ -0,0 +1,41 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.models.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Data model for a progress event of a running terraform command. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TerraformProgressEvent {
+
+    @Schema(
+            description =
+                    "Type of the event reported by terraform, such as apply_start, apply_complete,"
+                            + " apply_errored, change_summary and diagnostic.")
+    private String type;
+
+    @Schema(description = "Address of the resource the event belongs to.")
+    private String resourceAddress;
+
+    @Schema(description = "Action on the resource, such as create, update or delete.")
+    private String action;
+
+    @Schema(description = "Seconds elapsed for the action on the resource.")
+    private Long elapsedSeconds;
+
+    @Schema(description = "Human readable message of the event.")
+    private String message;
+
+    @Schema(description = "Time of the event reported by terraform.")
+    private String timestamp;
+}
@@ -7,14 +7,19 @@ package org.eclipse.xpanse.terraform.boot.models.response;
 
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotNull;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /** Data model for the Terraform command execution results. */
 @Data
 @Builder
+@NoArgsConstructor
+@AllArgsConstructor
 public class TerraformResult {
 
     @Schema(description = "Id of the request")
@@ -24,7 +29,10 @@ public class TerraformResult {
     @Schema(description = "defines if the command was successfully executed")
     private boolean isCommandSuccessful;
 
-    @Schema(description = "stdout of the command returned as string.")
+    @Schema(
+            description =
+                    "stdout of the command returned as string. Not returned when the JSON output"
+                            + " of terraform is enabled.")
     private String commandStdOutput;
 
     @Schema(description = "stderr of the command returned as string.")
@@ -41,4 +49,29 @@ public class TerraformResult {
 
     @Schema(description = "The version of the Terraform binary used to execute scripts.")
     private String terraformVersionUsed;
+
+    @Schema(
+            description =
+                    "Time spent in each terraform phase in milliseconds. The map key contains the"
+                            + " name of the phase, such as init, plan and apply.")
+    private Map<String, Long> phaseDurationsInMillis;
+
+    @Schema(
+            description =
+                    "Diagnostics reported by terraform. Only available when the JSON output of"
+                            + " terraform is enabled.")
+    private List<TerraformDiagnostic> diagnostics;
+
+    @Schema(
+            description =
+                    "Summary of the resource changes of the plan or apply. Only available when the"
+                            + " JSON output of terraform is enabled.")
+    private TerraformChangeSummary changeSummary;
+
+    @Schema(
+            description =
+                    "Time spent on each resource in seconds. The map key contains the address of"
+                            + " the resource. Only available when the JSON output of terraform is"
+                            + " enabled.")
+    private Map<String, Long> resourceDurationsInSeconds;
 }
@@ -5,12 +5,19 @@
 
 package org.eclipse.xpanse.terraform.boot.security.hmac;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import lombok.extern.slf4j.Slf4j;
@@ -37,8 +44,15 @@ public class HmacSignatureHeaderManage {
     private static final String NONCE_SIGNATURE_HEADER = "x-nonce-signature";
     private static final String TIMESTAMP_SIGNATURE_HEADER = "x-timestamp-signature";
     private static final String MAIN_SIGNATURE_HEADER = "x-signature";
-    private final String hmacSecretKey;
+    private static final int PAYLOAD_BUFFER_SIZE = 8192;
+    private static final int NONCE_LENGTH = 16;
+    private static final byte LINE_SEPARATOR = '\n';
     private final String hmacAlgorithm;
+    private final String signatureHeaderPrefix;
+    private final SecretKeySpec secretKeySpec;
+    private final SecureRandom secureRandom = new SecureRandom();
+    // initialized Mac instances, reused across requests since creating them is expensive.
+    private final Queue<Mac> macPool = new ConcurrentLinkedQueue<>();
 
     /** Constructor for HmacSignatureHeaderManage. */
     @Autowired
@@ -47,11 +61,17 @@ public class HmacSignatureHeaderManage {
             @Value("${terraformboot.webhook.hmac.request.signing.algorithm}") String hmacAlgorithm)
             throws InvalidAlgorithmParameterException {
         validateAlgorithmName(hmacAlgorithm);
-        this.hmacSecretKey = hmacSecretKey;
         this.hmacAlgorithm = hmacAlgorithm;
         if (hmacSecretKey.isBlank()) {
             throw new IllegalArgumentException("Missing mandatory hmac secret key");
         }
+        this.secretKeySpec =
+                new SecretKeySpec(hmacSecretKey.getBytes(StandardCharsets.UTF_8), hmacAlgorithm);
+        this.signatureHeaderPrefix =
+                String.format(
+                        "algorithm=%s;headers=%s %s;signature=",
+                        hmacAlgorithm, NONCE_SIGNATURE_HEADER, TIMESTAMP_SIGNATURE_HEADER);
+        macPool.add(createMac());
     }
 
     /**
@@ -62,59 +82,86 @@ public class HmacSignatureHeaderManage {
      * @return HMAC HTTP Headers.
      */
     public Map<String, String> createHmacSignatureHeader(String webhookUrl, String payload) {
+        return createHmacSignatureHeader(webhookUrl, payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Generates the HMAC related HTTP headers map for the body as sent. A compressed body is signed
+     * in its encoded form, so the receiver can verify it before decoding.
+     *
+     * @param webhookUrl URL to which the application wants to send the webhook request.
+     * @param payload body of the request as sent.
+     * @return HMAC HTTP Headers.
+     */
+    public Map<String, String> createHmacSignatureHeader(String webhookUrl, byte[] payload) {
         try {
-            Mac mac = Mac.getInstance(hmacAlgorithm);
-            SecretKeySpec secretKeySpec =
-                    new SecretKeySpec(hmacSecretKey.getBytes(), hmacAlgorithm);
-            mac.init(secretKeySpec);
-            String nonce = getRandomNonce();
+            return sign(webhookUrl, mac -> mac.update(payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Generates the HMAC related HTTP headers map for a body read from a stream. The signature is
+     * calculated incrementally, so the body does not need to fit in memory.
+     *
+     * @param webhookUrl URL to which the application wants to send the webhook request.
+     * @param payload stream of the body of the request as sent.
+     * @return HMAC HTTP Headers.
+     * @throws IOException if the body can not be read.
+     */
+    public Map<String, String> createHmacSignatureHeader(String webhookUrl, InputStream payload)
+            throws IOException {
+        return sign(
+                webhookUrl,
+                mac -> {
+                    byte[] buffer = new byte[PAYLOAD_BUFFER_SIZE];
+                    int length;
+                    while ((length = payload.read(buffer)) != -1) {
+                        mac.update(buffer, 0, length);
+                    }
+                });
+    }
+
+    private Map<String, String> sign(String webhookUrl, PayloadDigester payloadDigester)
+            throws IOException {
+        Mac mac = Objects.requireNonNullElseGet(macPool.poll(), this::createMac);
+        try {
+            byte[] nonceBytes = new byte[NONCE_LENGTH];
+            secureRandom.nextBytes(nonceBytes);
+            String nonce = Hex.encodeHexString(nonceBytes);
             String currentTimeStamp = Long.toString(System.currentTimeMillis());
-            byte[] hmacBytes =
-                    mac.doFinal(
-                            getSignatureValue(nonce, currentTimeStamp, webhookUrl, payload)
-                                    .getBytes());
+            // the signed content is the nonce, timestamp, url and payload separated by new lines.
+            mac.update(nonce.getBytes(StandardCharsets.US_ASCII));
+            mac.update(LINE_SEPARATOR);
+            mac.update(currentTimeStamp.getBytes(StandardCharsets.US_ASCII));
+            mac.update(LINE_SEPARATOR);
+            mac.update(webhookUrl.getBytes(StandardCharsets.UTF_8));
+            mac.update(LINE_SEPARATOR);
+            payloadDigester.update(mac);
+            byte[] hmacBytes = mac.doFinal();
             Map<String, String> headers = new HashMap<>();
             headers.put(NONCE_SIGNATURE_HEADER, nonce);
             headers.put(TIMESTAMP_SIGNATURE_HEADER, currentTimeStamp);
             headers.put(
-                    MAIN_SIGNATURE_HEADER,
-                    constructSignatureHeader(Hex.encodeHexString(hmacBytes)));
+                    MAIN_SIGNATURE_HEADER, signatureHeaderPrefix + Hex.encodeHexString(hmacBytes));
             return headers;
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            log.error("Failed generating key", e);
-            throw new RuntimeException();
+        } finally {
+            // doFinal resets the Mac, a failed read leaves it with partial input.
+            mac.reset();
+            macPool.offer(mac);
         }
     }
 
-    private String getSignatureValue(
-            String nonce, String currentTimeStamp, String webhookUrl, String payload) {
-        return """
-               %s
-               %s
-               %s
-               %s"""
-                .formatted(nonce, currentTimeStamp, webhookUrl, payload);
-    }
-
-    private String getRandomNonce() {
-        byte[] nonce = new byte[16];
-        SecureRandom secureRandom = new SecureRandom();
-        secureRandom.nextBytes(nonce);
-        return bytesToHex(nonce);
-    }
-
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+    private Mac createMac() {
+        try {
+            Mac mac = Mac.getInstance(hmacAlgorithm);
+            mac.init(secretKeySpec);
+            return mac;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            log.error("Failed generating key", e);
+            throw new IllegalStateException("Initializing " + hmacAlgorithm + " failed.", e);
         }
-        return result.toString();
-    }
-
-    private String constructSignatureHeader(String generatedKey) {
-        return String.format(
-                "algorithm=%s;headers=%s %s;signature=%s",
-                hmacAlgorithm, NONCE_SIGNATURE_HEADER, TIMESTAMP_SIGNATURE_HEADER, generatedKey);
     }
 
     private void validateAlgorithmName(String algorithmName)
@@ -126,4 +173,10 @@ public class HmacSignatureHeaderManage {
         }
         throw new InvalidAlgorithmParameterException("Invalid HMAC algorithm: " + algorithmName);
     }
+
+    /** Feeds the payload to the Mac. */
+    @FunctionalInterface
+    private interface PayloadDigester {
+        void update(Mac mac) throws IOException;
+    }
 }
@@ -5,20 +5,36 @@
 
 package org.eclipse.xpanse.terraform.boot.terraform;
 
+import static org.eclipse.xpanse.terraform.boot.logging.CustomRequestIdGenerator.REQUEST_ID;
+import static org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformWorkspaceFingerprint.TF_DATA_DIR_NAME;
+
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.TerraformExecutorException;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformProgressEvent;
+import org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformPluginCacheManager;
+import org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformWorkspaceFingerprint;
+import org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformWorkspaceTemplateManage;
 import org.eclipse.xpanse.terraform.boot.terraform.utils.SystemCmd;
 import org.eclipse.xpanse.terraform.boot.terraform.utils.SystemCmdResult;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskLogBus;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TerraformJsonOutputParser;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -29,6 +45,13 @@ import org.springframework.stereotype.Component;
 public class TerraformExecutor {
 
     private static final String TF_VARS_FILE_NAME = "variables.tfvars.json";
+    private static final String TF_PLAN_FILE_NAME = "tfplan.binary";
+    private static final String INIT_MARKER_FILE_NAME = "terraform-boot-init.sha256";
+    private static final String INIT_PHASE = "init";
+    private static final String PLAN_PHASE = "plan";
+    private static final String APPLY_PHASE = "apply";
+    private static final String DESTROY_PHASE = "destroy";
+    private static final String PROGRESS_STREAM_NAME = "progress";
     private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
     static {
@@ -43,6 +66,16 @@ public class TerraformExecutor {
 
     private final String terraformLogLevel;
 
+    private final Semaphore terraformProcessPermits;
+
+    private final TerraformPluginCacheManager pluginCacheManager;
+
+    private final TerraformWorkspaceTemplateManage workspaceTemplateManage;
+
+    private final boolean isJsonOutputEnabled;
+
+    private final TaskLogBus taskLogBus;
+
     /**
      * Constructor for the TerraformExecutor bean.
      *
@@ -50,50 +83,115 @@ public class TerraformExecutor {
      * @param isStdoutStdErrLoggingEnabled value of `log.terraform.stdout.stderr` property
      * @param customTerraformBinary value of `terraform.binary.location` property
      * @param terraformLogLevel value of `terraform.log.level` property
+     * @param maxConcurrentProcesses value of `terraform.max.concurrent.processes` property
+     * @param pluginCacheManager TerraformPluginCacheManager bean
+     * @param workspaceTemplateManage TerraformWorkspaceTemplateManage bean
+     * @param isJsonOutputEnabled value of `terraform.json.output.enabled` property
+     * @param taskLogBus bus to publish the progress events of the tasks
      */
     @Autowired
     public TerraformExecutor(
             SystemCmd systemCmd,
             @Value("${log.terraform.stdout.stderr:true}") boolean isStdoutStdErrLoggingEnabled,
             @Value("${terraform.binary.location}") String customTerraformBinary,
-            @Value("${terraform.log.level}") String terraformLogLevel) {
+            @Value("${terraform.log.level}") String terraformLogLevel,
+            @Value("${terraform.max.concurrent.processes:20}") int maxConcurrentProcesses,
+            TerraformPluginCacheManager pluginCacheManager,
+            TerraformWorkspaceTemplateManage workspaceTemplateManage,
+            @Value("${terraform.json.output.enabled:false}") boolean isJsonOutputEnabled,
+            TaskLogBus taskLogBus) {
         this.systemCmd = systemCmd;
         this.customTerraformBinary = customTerraformBinary;
         this.isStdoutStdErrLoggingEnabled = isStdoutStdErrLoggingEnabled;
         this.terraformLogLevel = terraformLogLevel;
+        this.terraformProcessPermits = new Semaphore(maxConcurrentProcesses, true);
+        this.pluginCacheManager = pluginCacheManager;
+        this.workspaceTemplateManage = workspaceTemplateManage;
+        this.isJsonOutputEnabled = isJsonOutputEnabled;
+        this.taskLogBus = taskLogBus;
     }
 
-    /** Terraform executes init, plan and destroy commands. */
+    /**
+     * Terraform executes init, plan and destroy commands. The destroy plan is saved to a file and
+     * the saved plan is applied, so the resources are refreshed and planned only once.
+     */
     public SystemCmdResult tfDestroy(
             String executorPath,
             Map<String, Object> variables,
             Map<String, String> envVariables,
             String taskWorkspace) {
-        tfPlan(executorPath, variables, envVariables, taskWorkspace);
-        SystemCmdResult applyResult =
-                tfDestroyCommand(executorPath, variables, envVariables, taskWorkspace);
-        if (!applyResult.isCommandSuccessful()) {
-            log.error("TFExecutor.tfDestroy failed.");
-            throw new TerraformExecutorException(
-                    "TFExecutor.tfDestroy failed.", applyResult.getCommandStdError());
+        Map<String, Long> phaseDurations = new LinkedHashMap<>();
+        tfInit(executorPath, taskWorkspace, phaseDurations);
+        TerraformJsonOutputParser outputParser = createOutputParser();
+        SystemCmdResult destroyResult;
+        try {
+            SystemCmdResult planResult =
+                    tfPlanCommand(
+                            executorPath,
+                            "plan -destroy -input=false "
+                                    + getOutputOption()
+                                    + " -out="
+                                    + TF_PLAN_FILE_NAME
+                                    + " ",
+                            variables,
+                            envVariables,
+                            taskWorkspace,
+                            outputParser);
+            phaseDurations.put(PLAN_PHASE, planResult.getDurationInMillis());
+            checkCommandSuccessful(planResult, "TFExecutor.tfDestroy failed.", outputParser);
+            planResult.close();
+            destroyResult =
+                    tfApplySavedPlanCommand(
+                            executorPath, envVariables, taskWorkspace, outputParser);
+            phaseDurations.put(DESTROY_PHASE, destroyResult.getDurationInMillis());
+        } finally {
+            cleanUpPlanFile(taskWorkspace);
         }
-        return applyResult;
+        checkCommandSuccessful(destroyResult, "TFExecutor.tfDestroy failed.", outputParser);
+        destroyResult.setPhaseDurationsInMillis(phaseDurations);
+        collectJsonOutput(destroyResult, outputParser);
+        return destroyResult;
     }
 
-    /** Terraform executes init, plan and apply commands. */
+    /**
+     * Terraform executes init, plan and apply commands. The plan is saved to a file and the saved
+     * plan is applied, so the resources are refreshed and planned only once.
+     */
     public SystemCmdResult tfApply(
             String executorPath,
             Map<String, Object> variables,
             Map<String, String> envVariables,
             String taskWorkspace) {
-        tfPlan(executorPath, variables, envVariables, taskWorkspace);
-        SystemCmdResult applyResult =
-                tfApplyCommand(executorPath, variables, envVariables, taskWorkspace);
-        if (!applyResult.isCommandSuccessful()) {
-            log.error("TFExecutor.tfApply failed.");
-            throw new TerraformExecutorException(
-                    "TFExecutor.tfApply failed.", applyResult.getCommandStdError());
+        Map<String, Long> phaseDurations = new LinkedHashMap<>();
+        tfInit(executorPath, taskWorkspace, phaseDurations);
+        TerraformJsonOutputParser outputParser = createOutputParser();
+        SystemCmdResult applyResult;
+        try {
+            SystemCmdResult planResult =
+                    tfPlanCommand(
+                            executorPath,
+                            "plan -input=false "
+                                    + getOutputOption()
+                                    + " -out="
+                                    + TF_PLAN_FILE_NAME
+                                    + " ",
+                            variables,
+                            envVariables,
+                            taskWorkspace,
+                            outputParser);
+            phaseDurations.put(PLAN_PHASE, planResult.getDurationInMillis());
+            checkCommandSuccessful(planResult, "TFExecutor.tfApply failed.", outputParser);
+            planResult.close();
+            applyResult =
+                    tfApplySavedPlanCommand(
+                            executorPath, envVariables, taskWorkspace, outputParser);
+            phaseDurations.put(APPLY_PHASE, applyResult.getDurationInMillis());
+        } finally {
+            cleanUpPlanFile(taskWorkspace);
         }
+        checkCommandSuccessful(applyResult, "TFExecutor.tfApply failed.", outputParser);
+        applyResult.setPhaseDurationsInMillis(phaseDurations);
+        collectJsonOutput(applyResult, outputParser);
         return applyResult;
     }
 
@@ -103,14 +201,21 @@ public class TerraformExecutor {
             Map<String, Object> variables,
             Map<String, String> envVariables,
             String taskWorkspace) {
-        tfInit(executorPath, taskWorkspace);
+        Map<String, Long> phaseDurations = new LinkedHashMap<>();
+        tfInit(executorPath, taskWorkspace, phaseDurations);
+        TerraformJsonOutputParser outputParser = createOutputParser();
         SystemCmdResult planResult =
-                tfPlanCommand(executorPath, variables, envVariables, taskWorkspace);
-        if (!planResult.isCommandSuccessful()) {
-            log.error("TFExecutor.tfPlan failed.");
-            throw new TerraformExecutorException(
-                    "TFExecutor.tfPlan failed.", planResult.getCommandStdError());
-        }
+                tfPlanCommand(
+                        executorPath,
+                        "plan -input=false " + getOutputOption() + " ",
+                        variables,
+                        envVariables,
+                        taskWorkspace,
+                        outputParser);
+        phaseDurations.put(PLAN_PHASE, planResult.getDurationInMillis());
+        checkCommandSuccessful(planResult, "TFExecutor.tfPlan failed.", outputParser);
+        planResult.setPhaseDurationsInMillis(phaseDurations);
+        collectJsonOutput(planResult, outputParser);
         return planResult;
     }
 
@@ -126,26 +231,23 @@ public class TerraformExecutor {
                         new StringBuilder(
                                 getTerraformCommand(
                                         executorPath,
-                                        "plan -input=false -no-color --out tfplan.binary ")),
+                                        "plan -input=false -no-color --out "
+                                                + TF_PLAN_FILE_NAME
+                                                + " ")),
                         variables,
                         envVariables,
-                        taskWorkspace);
-        if (!tfPlanResult.isCommandSuccessful()) {
-            log.error("TFExecutor.tfPlan failed.");
-            throw new TerraformExecutorException(
-                    "TFExecutor.tfPlan failed.", tfPlanResult.getCommandStdError());
-        }
-        SystemCmdResult planJsonResult =
-                execute(
-                        getTerraformCommand(executorPath, "show -json tfplan.binary"),
                         taskWorkspace,
-                        envVariables);
-        if (!planJsonResult.isCommandSuccessful()) {
-            log.error("Reading Terraform plan as JSON failed.");
-            throw new TerraformExecutorException(
-                    "Reading Terraform plan as JSON failed.", planJsonResult.getCommandStdError());
+                        null);
+        checkCommandSuccessful(tfPlanResult, "TFExecutor.tfPlan failed.", null);
+        tfPlanResult.close();
+        try (SystemCmdResult planJsonResult =
+                executeWithCompleteStdout(
+                        getTerraformCommand(executorPath, "show -json " + TF_PLAN_FILE_NAME),
+                        taskWorkspace,
+                        envVariables)) {
+            checkCommandSuccessful(planJsonResult, "Reading Terraform plan as JSON failed.", null);
+            return planJsonResult.getCommandStdOutput();
         }
-        return planJsonResult.getCommandStdOutput();
     }
 
     /** Terraform executes the init command. */
@@ -156,24 +258,52 @@ public class TerraformExecutor {
 
     /** Terraform executes the init command. */
     public void tfInit(String executorPath, String taskWorkspace) {
-        SystemCmdResult initResult = tfInitCommand(executorPath, taskWorkspace);
-        if (!initResult.isCommandSuccessful()) {
-            log.error("TFExecutor.tfInit failed.");
-            throw new TerraformExecutorException(
-                    "TFExecutor.tfInit failed.", initResult.getCommandStdError());
+        tfInit(executorPath, taskWorkspace, new LinkedHashMap<>());
+    }
+
+    /**
+     * Terraform executes the init command. A new workspace is first materialized from the template
+     * of an initialized workspace with the same scripts. The command is skipped when the workspace
+     * was already initialized with the same executor, scripts and dependency lock file.
+     */
+    private void tfInit(
+            String executorPath, String taskWorkspace, Map<String, Long> phaseDurations) {
+        pluginCacheManager.leaseProviders(taskWorkspace);
+        String templateKey =
+                workspaceTemplateManage.getTemplateKey(
+                        getTerraformBinary(executorPath), taskWorkspace);
+        workspaceTemplateManage.materializeWorkspace(templateKey, taskWorkspace);
+        String initFingerprint = getInitFingerprint(executorPath, taskWorkspace);
+        if (Objects.nonNull(initFingerprint)
+                && initFingerprint.equals(readInitMarker(taskWorkspace))) {
+            log.info("Workspace {} is already initialized, skip terraform init.", taskWorkspace);
+            phaseDurations.put(INIT_PHASE, 0L);
+            return;
         }
+        SystemCmdResult initResult = tfInitCommand(executorPath, taskWorkspace);
+        phaseDurations.put(INIT_PHASE, initResult.getDurationInMillis());
+        checkCommandSuccessful(initResult, "TFExecutor.tfInit failed.", null);
+        initResult.close();
+        // init may create or update the lock file, hence the fingerprint is calculated again.
+        writeInitMarker(taskWorkspace, getInitFingerprint(executorPath, taskWorkspace));
+        workspaceTemplateManage.saveWorkspaceTemplate(templateKey, taskWorkspace);
     }
 
     /**
-     * Executes terraform init command.
+     * Executes terraform init command. The providers are installed from the shared plugin cache.
      *
      * @return Returns result of SystemCmd executed.
      */
     private SystemCmdResult tfInitCommand(String executorPath, String taskWorkspace) {
-        return execute(
-                getTerraformCommand(executorPath, "init -no-color"),
+        Map<String, String> envVariables = new HashMap<>();
+        return pluginCacheManager.initWithPluginCache(
                 taskWorkspace,
-                new HashMap<>());
+                envVariables,
+                () ->
+                        execute(
+                                getTerraformCommand(executorPath, "init -no-color"),
+                                taskWorkspace,
+                                envVariables));
     }
 
     /**
@@ -182,7 +312,7 @@ public class TerraformExecutor {
      * @return Returns result of SystemCmd executed.
      */
     private SystemCmdResult tfValidateCommand(String executorPath, String taskWorkspace) {
-        return execute(
+        return executeWithCompleteStdout(
                 getTerraformCommand(executorPath, "validate -json -no-color"),
                 taskWorkspace,
                 new HashMap<>());
@@ -195,51 +325,40 @@ public class TerraformExecutor {
      */
     private SystemCmdResult tfPlanCommand(
             String executorPath,
+            String planArguments,
             Map<String, Object> variables,
             Map<String, String> envVariables,
-            String taskWorkspace) {
+            String taskWorkspace,
+            TerraformJsonOutputParser outputParser) {
         return executeWithVariables(
-                new StringBuilder(
-                        getTerraformCommand(executorPath, "plan -input=false -no-color ")),
+                new StringBuilder(getTerraformCommand(executorPath, planArguments)),
                 variables,
                 envVariables,
-                taskWorkspace);
+                taskWorkspace,
+                outputParser);
     }
 
     /**
-     * Executes terraform apply command.
+     * Executes terraform apply command with the plan saved in the workspace. The variables are
+     * already part of the saved plan.
      *
      * @return Returns result of SystemCmd executed.
      */
-    private SystemCmdResult tfApplyCommand(
+    private SystemCmdResult tfApplySavedPlanCommand(
             String executorPath,
-            Map<String, Object> variables,
             Map<String, String> envVariables,
-            String taskWorkspace) {
-        return executeWithVariables(
-                new StringBuilder(
-                        getTerraformCommand(
-                                executorPath, "apply -auto-approve -input=false -no-color ")),
-                variables,
-                envVariables,
-                taskWorkspace);
-    }
-
-    /**
-     * Executes terraform destroy command.
-     *
-     * @return Returns result of SystemCmd executed.
-     */
-    private SystemCmdResult tfDestroyCommand(
-            String executorPath,
-            Map<String, Object> variables,
-            Map<String, String> envVariables,
-            String taskWorkspace) {
-        return executeWithVariables(
-                new StringBuilder(executorPath + " destroy -auto-approve -input=false -no-color "),
-                variables,
+            String taskWorkspace,
+            TerraformJsonOutputParser outputParser) {
+        return execute(
+                getTerraformCommand(
+                        executorPath,
+                        "apply -auto-approve -input=false "
+                                + getOutputOption()
+                                + " "
+                                + TF_PLAN_FILE_NAME),
+                taskWorkspace,
                 envVariables,
-                taskWorkspace);
+                outputParser);
     }
 
     /**
@@ -251,32 +370,164 @@ public class TerraformExecutor {
             StringBuilder command,
             Map<String, Object> variables,
             Map<String, String> envVariables,
-            String taskWorkspace) {
+            String taskWorkspace,
+            TerraformJsonOutputParser outputParser) {
         createVariablesFile(variables, taskWorkspace);
         command.append(" -var-file=");
         command.append(TF_VARS_FILE_NAME);
-        SystemCmdResult systemCmdResult = execute(command.toString(), taskWorkspace, envVariables);
+        SystemCmdResult systemCmdResult =
+                execute(command.toString(), taskWorkspace, envVariables, outputParser);
         cleanUpVariablesFile(taskWorkspace);
         return systemCmdResult;
     }
 
     /**
-     * Executes terraform commands.
+     * Executes terraform commands. The number of terraform processes running at the same time is
+     * limited, further commands wait until a running process has finished.
      *
      * @return SystemCmdResult
      */
     private SystemCmdResult execute(
             String cmd, String taskWorkspace, @NonNull Map<String, String> envVariables) {
+        return execute(cmd, taskWorkspace, envVariables, null);
+    }
+
+    /**
+     * Executes terraform commands. The stdout lines are passed to the output parser as they are
+     * read, if one is given.
+     *
+     * @return SystemCmdResult
+     */
+    private SystemCmdResult execute(
+            String cmd,
+            String taskWorkspace,
+            @NonNull Map<String, String> envVariables,
+            TerraformJsonOutputParser outputParser) {
         envVariables.putAll(getTerraformLogConfig());
-        return this.systemCmd.execute(
-                cmd, taskWorkspace, this.isStdoutStdErrLoggingEnabled, envVariables);
+        return executeWithProcessPermit(
+                () ->
+                        this.systemCmd.execute(
+                                cmd,
+                                0,
+                                taskWorkspace,
+                                this.isStdoutStdErrLoggingEnabled,
+                                envVariables,
+                                Objects.nonNull(outputParser) ? outputParser::parseLine : null));
+    }
+
+    /**
+     * Executes terraform commands whose stdout is parsed, the stdout is captured completely.
+     *
+     * @return SystemCmdResult
+     */
+    private SystemCmdResult executeWithCompleteStdout(
+            String cmd, String taskWorkspace, @NonNull Map<String, String> envVariables) {
+        envVariables.putAll(getTerraformLogConfig());
+        return executeWithProcessPermit(
+                () ->
+                        this.systemCmd.executeWithCompleteStdout(
+                                cmd,
+                                taskWorkspace,
+                                this.isStdoutStdErrLoggingEnabled,
+                                envVariables));
+    }
+
+    /** The number of terraform processes running at the same time is limited by permits. */
+    private SystemCmdResult executeWithProcessPermit(Supplier<SystemCmdResult> command) {
+        try {
+            this.terraformProcessPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TerraformExecutorException(
+                    "Interrupted while waiting to start terraform command.", e);
+        }
+        try {
+            return command.get();
+        } finally {
+            this.terraformProcessPermits.release();
+        }
     }
 
     private String getTerraformCommand(String executorPath, String terraformArguments) {
+        return getTerraformBinary(executorPath) + " " + terraformArguments;
+    }
+
+    private String getTerraformBinary(String executorPath) {
         if (Objects.isNull(this.customTerraformBinary) || this.customTerraformBinary.isBlank()) {
-            return executorPath + " " + terraformArguments;
+            return executorPath;
+        }
+        return this.customTerraformBinary;
+    }
+
+    /** Get the option of the plan and apply commands to select the format of their output. */
+    private String getOutputOption() {
+        return this.isJsonOutputEnabled ? "-json" : "-no-color";
+    }
+
+    /**
+     * Create the parser of the JSON output of the commands of one operation. The progress events
+     * are published to the log of the task.
+     *
+     * @return the parser, or null if the JSON output is disabled.
+     */
+    private TerraformJsonOutputParser createOutputParser() {
+        if (!this.isJsonOutputEnabled) {
+            return null;
+        }
+        String requestId = MDC.get(REQUEST_ID);
+        return new TerraformJsonOutputParser(event -> publishProgressEvent(requestId, event));
+    }
+
+    private void publishProgressEvent(String requestId, TerraformProgressEvent event) {
+        try {
+            taskLogBus.publish(
+                    requestId, PROGRESS_STREAM_NAME, OBJECT_MAPPER.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            log.warn("Serializing terraform progress event failed.", e);
+        }
+    }
+
+    /**
+     * Store the parsed JSON output in the result. The raw JSON lines are dropped, the result
+     * carries the diagnostics and the change summary instead.
+     */
+    private void collectJsonOutput(
+            SystemCmdResult systemCmdResult, TerraformJsonOutputParser outputParser) {
+        if (Objects.nonNull(outputParser)) {
+            outputParser.collect(systemCmdResult);
+            systemCmdResult.setCommandStdOutput(null);
+        }
+    }
+
+    /**
+     * Check that the command was successful. Otherwise the result is closed and an exception with
+     * the error output is thrown.
+     */
+    private void checkCommandSuccessful(
+            SystemCmdResult systemCmdResult,
+            String errorMessage,
+            TerraformJsonOutputParser outputParser) {
+        if (systemCmdResult.isCommandSuccessful()) {
+            return;
+        }
+        log.error(errorMessage);
+        String errorOutput = getErrorOutput(systemCmdResult, outputParser);
+        systemCmdResult.close();
+        throw new TerraformExecutorException(errorMessage, errorOutput);
+    }
+
+    /**
+     * Get the error output of a failed command. With the JSON output, terraform reports the errors
+     * as diagnostics on stdout.
+     */
+    private String getErrorOutput(
+            SystemCmdResult systemCmdResult, TerraformJsonOutputParser outputParser) {
+        String stdError = systemCmdResult.getCommandStdError();
+        String errors = Objects.nonNull(outputParser) ? outputParser.getErrors() : null;
+        if (Objects.isNull(errors)) {
+            return stdError;
         }
-        return this.customTerraformBinary + " " + terraformArguments;
+        return StringUtils.isBlank(stdError) ? errors : stdError + System.lineSeparator() + errors;
     }
 
     private Map<String, String> getTerraformLogConfig() {
@@ -294,6 +545,54 @@ public class TerraformExecutor {
         }
     }
 
+    private void cleanUpPlanFile(String taskWorkspace) {
+        try {
+            Files.deleteIfExists(new File(taskWorkspace, TF_PLAN_FILE_NAME).toPath());
+        } catch (IOException ioException) {
+            log.error("Cleanup of plan file failed", ioException);
+        }
+    }
+
+    /**
+     * Calculates a fingerprint of everything that decides the result of terraform init: the
+     * executor, the scripts of the root and local modules, the dependency lock file, the CLI
+     * configuration and the manifest of the installed modules.
+     *
+     * @return the fingerprint, or null if the workspace was never initialized.
+     */
+    private String getInitFingerprint(String executorPath, String taskWorkspace) {
+        try {
+            return TerraformWorkspaceFingerprint.getInitFingerprint(
+                    Path.of(taskWorkspace), getTerraformBinary(executorPath));
+        } catch (IOException ioException) {
+            log.warn("Calculating init fingerprint of workspace {} failed", taskWorkspace);
+            return null;
+        }
+    }
+
+    private String readInitMarker(String taskWorkspace) {
+        File markerFile =
+                new File(new File(taskWorkspace, TF_DATA_DIR_NAME), INIT_MARKER_FILE_NAME);
+        try {
+            return markerFile.isFile() ? Files.readString(markerFile.toPath()) : null;
+        } catch (IOException ioException) {
+            return null;
+        }
+    }
+
+    private void writeInitMarker(String taskWorkspace, String initFingerprint) {
+        if (Objects.isNull(initFingerprint)) {
+            return;
+        }
+        File markerFile =
+                new File(new File(taskWorkspace, TF_DATA_DIR_NAME), INIT_MARKER_FILE_NAME);
+        try {
+            Files.writeString(markerFile.toPath(), initFingerprint);
+        } catch (IOException ioException) {
+            log.warn("Writing init marker of workspace {} failed", taskWorkspace, ioException);
+        }
+    }
+
     private void cleanUpVariablesFile(String taskWorkspace) {
         File file = new File(taskWorkspace, TF_VARS_FILE_NAME);
         try {
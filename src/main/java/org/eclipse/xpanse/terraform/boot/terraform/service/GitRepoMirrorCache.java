@@ -0,0 +1,564 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.URIish;
+import org.eclipse.xpanse.terraform.boot.models.exceptions.GitRepoCloneException;
+import org.eclipse.xpanse.terraform.boot.models.request.git.TerraformScriptGitRepoDetails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Bean to manage the bare mirrors of the GIT repos on this node. The scripts of a task are written
+ * from the mirror into the task workspace instead of cloning the repo for each task. A mirror is
+ * refreshed by an incremental fetch at most once per refresh interval, concurrent requests for the
+ * same repo wait for the running fetch and share it. Hence a branch resolves to the same commit
+ * until the refresh interval has passed. The least recently used mirrors which are not in use are
+ * evicted. The scripts checked out from a commit are kept in a tree keyed by the commit and the
+ * script path, the least recently used trees are evicted. Repo urls may contain credentials, hence
+ * they are logged and reported without them.
+ */
+@Slf4j
+@Component
+public class GitRepoMirrorCache {
+
+    private static final int GIT_TIMEOUT_SECONDS = 20;
+    private static final String MIRROR_DIR_SUFFIX = ".git";
+    private static final String TREES_DIR_NAME = "trees";
+    private static final String TEMPORARY_TREE_PREFIX = ".tmp-";
+    private static final String MIRROR_REF_SPEC = "+refs/*:refs/*";
+    private static final String CONFIG_KEY_MIRROR = "mirror";
+    private static final String REDACTED_PASSWORD = "***";
+
+    private final boolean mirrorCacheEnabled;
+    private final Path mirrorCacheDir;
+    private final Path treesDir;
+    private final long refreshIntervalNanos;
+    private final int maxMirrors;
+    private final int maxTrees;
+    private final Map<String, Mirror> mirrors = new ConcurrentHashMap<>();
+    private final ReadWriteLock treesLock = new ReentrantReadWriteLock();
+    private final Counter cacheHits;
+    private final Counter fetches;
+    private final Counter treeHits;
+    private final GitRepoSparseCheckout sparseCheckout;
+
+    /**
+     * Constructor for the GitRepoMirrorCache bean.
+     *
+     * @param mirrorCacheEnabled value of `terraform.git.mirror.cache.enabled` property
+     * @param mirrorCacheDir value of `terraform.git.mirror.cache.dir` property
+     * @param refreshIntervalSeconds value of `terraform.git.mirror.refresh.interval.seconds`
+     * @param maxMirrors value of `terraform.git.mirror.cache.max.entries` property
+     * @param maxTrees value of `terraform.git.tree.cache.max.entries` property
+     * @param meterRegistry registry of the application metrics
+     * @param sparseCheckout bean to write the scripts of a commit into the workspace
+     */
+    public GitRepoMirrorCache(
+            @Value("${terraform.git.mirror.cache.enabled:true}") boolean mirrorCacheEnabled,
+            @Value("${terraform.git.mirror.cache.dir:}") String mirrorCacheDir,
+            @Value("${terraform.git.mirror.refresh.interval.seconds:60}")
+                    long refreshIntervalSeconds,
+            @Value("${terraform.git.mirror.cache.max.entries:20}") int maxMirrors,
+            @Value("${terraform.git.tree.cache.max.entries:100}") int maxTrees,
+            MeterRegistry meterRegistry,
+            GitRepoSparseCheckout sparseCheckout) {
+        this.mirrorCacheEnabled = mirrorCacheEnabled;
+        this.mirrorCacheDir =
+                Path.of(
+                                StringUtils.isNotBlank(mirrorCacheDir)
+                                        ? mirrorCacheDir
+                                        : System.getProperty("java.io.tmpdir")
+                                                + File.separator
+                                                + "terraform-git-mirrors")
+                        .toAbsolutePath();
+        this.treesDir = this.mirrorCacheDir.resolve(TREES_DIR_NAME);
+        this.refreshIntervalNanos = TimeUnit.SECONDS.toNanos(refreshIntervalSeconds);
+        this.maxMirrors = maxMirrors;
+        this.maxTrees = maxTrees;
+        this.cacheHits = meterRegistry.counter("terraform.git.mirror.cache.hits");
+        this.fetches = meterRegistry.counter("terraform.git.mirror.fetches");
+        this.treeHits = meterRegistry.counter("terraform.git.tree.cache.hits");
+        this.sparseCheckout = sparseCheckout;
+        if (mirrorCacheEnabled) {
+            log.info("GIT repo mirror cache enabled in dir {}.", this.mirrorCacheDir);
+        }
+    }
+
+    public boolean isEnabled() {
+        return mirrorCacheEnabled;
+    }
+
+    /**
+     * Write the scripts of a GIT repo into the workspace. The commit is given by the request, or
+     * the branch is resolved with the mirror, which is created or refreshed first if needed. The
+     * scripts of a commit are kept in a tree keyed by the mirror, the commit and the script path,
+     * so repeated deployments of a pinned commit neither fetch nor read the mirror. A tree is only
+     * created after the commit was found in the mirror, hence it is never served for another repo
+     * or for other credentials which happen to name the same commit.
+     *
+     * @param scriptsRepo GIT repo and branch or commit to check out.
+     * @param workspace directory the files are written to.
+     */
+    public void checkout(TerraformScriptGitRepoDetails scriptsRepo, File workspace) {
+        String repoUrl = scriptsRepo.getRepoUrl();
+        try {
+            String commitId = StringUtils.lowerCase(scriptsRepo.getCommitId());
+            // the url may contain credentials, which are part of the key.
+            String mirrorKey = DigestUtils.sha256Hex(repoUrl);
+            if (StringUtils.isNotBlank(commitId)
+                    && copyTree(
+                            getTreeDir(mirrorKey, commitId, scriptsRepo.getScriptPath()),
+                            workspace)) {
+                treeHits.increment();
+                return;
+            }
+            boolean checkedOut = false;
+            while (!checkedOut) {
+                Mirror mirror = mirrors.computeIfAbsent(mirrorKey, key -> new Mirror(repoUrl, key));
+                // false if the mirror was evicted before it was used, it is created again.
+                checkedOut = checkout(mirror, scriptsRepo, commitId, workspace);
+            }
+        } catch (IOException | UncheckedIOException | IllegalArgumentException e) {
+            String errorMsg =
+                    String.format(
+                            "Check out scripts from mirror of GIT repo %s error:%s",
+                            redactUrl(repoUrl), redactMessage(e.getMessage(), repoUrl));
+            log.error(errorMsg);
+            throw new GitRepoCloneException(errorMsg);
+        }
+    }
+
+    /**
+     * Remove the user and the password from the url of a GIT repo.
+     *
+     * @param repoUrl url of the GIT repo.
+     * @return the url without credentials.
+     */
+    public static String redactUrl(String repoUrl) {
+        try {
+            return new URIish(repoUrl).setUser(null).setPass(null).toString();
+        } catch (URISyntaxException e) {
+            return "<invalid url>";
+        }
+    }
+
+    /** Close the repositories of the mirrors. */
+    @PreDestroy
+    public void close() {
+        mirrors.values().forEach(Mirror::close);
+        mirrors.clear();
+    }
+
+    /**
+     * Check out the scripts with the mirror. The mirror is not evicted while it is used.
+     *
+     * @return false if the mirror was evicted before it could be used.
+     */
+    private boolean checkout(
+            Mirror mirror,
+            TerraformScriptGitRepoDetails scriptsRepo,
+            String commitId,
+            File workspace)
+            throws IOException {
+        mirror.usageLock.readLock().lock();
+        try {
+            if (mirror.evicted) {
+                return false;
+            }
+            Repository repository;
+            ObjectId resolvedCommitId;
+            if (StringUtils.isNotBlank(commitId)) {
+                resolvedCommitId = ObjectId.fromString(commitId);
+                repository = mirror.getRepository(resolvedCommitId);
+            } else {
+                repository = mirror.getRepository(null);
+                resolvedCommitId = resolveCommit(repository, scriptsRepo.getBranch());
+            }
+            // the modification time of the mirror tells which mirrors were not used recently.
+            Files.setLastModifiedTime(
+                    mirror.gitDir, FileTime.fromMillis(System.currentTimeMillis()));
+            Path treeDir =
+                    getTreeDir(mirror.key, resolvedCommitId.name(), scriptsRepo.getScriptPath());
+            if (copyTree(treeDir, workspace)) {
+                treeHits.increment();
+            } else {
+                // another task may evict the new tree before it is copied, it is created again.
+                do {
+                    createTree(repository, resolvedCommitId, scriptsRepo.getScriptPath(), treeDir);
+                } while (!copyTree(treeDir, workspace));
+                evictLeastRecentlyUsedTrees();
+            }
+            return true;
+        } finally {
+            mirror.usageLock.readLock().unlock();
+        }
+    }
+
+    /** Remove the url and the password of the GIT repo from the message of an error. */
+    private static String redactMessage(String message, String repoUrl) {
+        if (StringUtils.isEmpty(message)) {
+            return message;
+        }
+        String redactedMessage = message.replace(repoUrl, redactUrl(repoUrl));
+        try {
+            String password = new URIish(repoUrl).getPass();
+            if (StringUtils.isNotEmpty(password)) {
+                redactedMessage = redactedMessage.replace(password, REDACTED_PASSWORD);
+            }
+        } catch (URISyntaxException e) {
+            log.debug("Url of GIT repo is invalid, only the url is removed from the message.");
+        }
+        return redactedMessage;
+    }
+
+    private ObjectId resolveCommit(Repository repository, String branch) throws IOException {
+        List<String> refNames =
+                branch.startsWith(Constants.R_REFS)
+                        ? List.of(branch)
+                        : List.of(Constants.R_HEADS + branch, Constants.R_TAGS + branch);
+        for (String refName : refNames) {
+            ObjectId commitId = repository.resolve(refName + "^{commit}");
+            if (Objects.nonNull(commitId)) {
+                return commitId;
+            }
+        }
+        throw new IOException("Branch " + branch + " not found.");
+    }
+
+    private Path getTreeDir(String mirrorKey, String commitId, String scriptPath) {
+        return treesDir.resolve(
+                mirrorKey
+                        + "-"
+                        + commitId
+                        + "-"
+                        + DigestUtils.sha256Hex(StringUtils.defaultString(scriptPath)));
+    }
+
+    /** Copy the tree into the workspace, if the tree exists. The tree is not evicted meanwhile. */
+    private boolean copyTree(Path treeDir, File workspace) throws IOException {
+        treesLock.readLock().lock();
+        try {
+            return copyTreeIfExists(treeDir, workspace);
+        } finally {
+            treesLock.readLock().unlock();
+        }
+    }
+
+    private boolean copyTreeIfExists(Path treeDir, File workspace) throws IOException {
+        if (!Files.isDirectory(treeDir)) {
+            return false;
+        }
+        Path workspaceDir = workspace.toPath();
+        try (Stream<Path> paths = Files.walk(treeDir)) {
+            for (Path source : paths.toList()) {
+                Path target = workspaceDir.resolve(treeDir.relativize(source).toString());
+                if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS)) {
+                    Files.createDirectories(target);
+                } else {
+                    Files.copy(
+                            source,
+                            target,
+                            StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.COPY_ATTRIBUTES,
+                            LinkOption.NOFOLLOW_LINKS);
+                }
+            }
+        }
+        // the modification time of the tree tells which trees were not used recently.
+        Files.setLastModifiedTime(treeDir, FileTime.fromMillis(System.currentTimeMillis()));
+        return true;
+    }
+
+    /**
+     * Write the scripts of the commit into a new tree. The tree is written to a temporary directory
+     * first, so concurrent tasks never see a partial tree.
+     */
+    private void createTree(
+            Repository repository, ObjectId commitId, String scriptPath, Path treeDir)
+            throws IOException {
+        Files.createDirectories(treesDir);
+        Path temporaryTreeDir = Files.createTempDirectory(treesDir, TEMPORARY_TREE_PREFIX);
+        try {
+            sparseCheckout.checkout(repository, commitId, scriptPath, temporaryTreeDir);
+            Files.move(temporaryTreeDir, treeDir, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileSystemException e) {
+            // the rename fails with a plain FileSystemException if the target is not empty.
+            if (!Files.isDirectory(treeDir)) {
+                throw e;
+            }
+            log.debug("Tree {} was created by another task.", treeDir);
+        } finally {
+            FileSystemUtils.deleteRecursively(temporaryTreeDir);
+        }
+    }
+
+    private void evictLeastRecentlyUsedTrees() throws IOException {
+        treesLock.writeLock().lock();
+        try {
+            evictTreesBeyondLimit();
+        } finally {
+            treesLock.writeLock().unlock();
+        }
+    }
+
+    private void evictTreesBeyondLimit() throws IOException {
+        List<Path> trees;
+        try (Stream<Path> paths = Files.list(treesDir)) {
+            trees =
+                    paths.filter(
+                                    path ->
+                                            !path.getFileName()
+                                                    .toString()
+                                                    .startsWith(TEMPORARY_TREE_PREFIX))
+                            .sorted(Comparator.comparing(path -> path.toFile().lastModified()))
+                            .toList();
+        }
+        for (int i = 0; i < trees.size() - maxTrees; i++) {
+            log.debug("Evict tree {} from the cache.", trees.get(i));
+            FileSystemUtils.deleteRecursively(trees.get(i));
+        }
+    }
+
+    /**
+     * Evict the least recently used mirrors beyond the limit. The repository of an evicted mirror
+     * is closed and its clone is deleted, mirrors in use are kept.
+     */
+    private void evictLeastRecentlyUsedMirrors() throws IOException {
+        List<Path> mirrorDirs;
+        try (Stream<Path> paths = Files.list(mirrorCacheDir)) {
+            mirrorDirs =
+                    paths.filter(path -> path.getFileName().toString().endsWith(MIRROR_DIR_SUFFIX))
+                            .sorted(Comparator.comparing(path -> path.toFile().lastModified()))
+                            .toList();
+        }
+        for (int i = 0; i < mirrorDirs.size() - maxMirrors; i++) {
+            Path mirrorDir = mirrorDirs.get(i);
+            String mirrorKey =
+                    StringUtils.removeEnd(mirrorDir.getFileName().toString(), MIRROR_DIR_SUFFIX);
+            // no mirror of the repo is created while its clone is deleted.
+            mirrors.compute(
+                    mirrorKey,
+                    (key, mirror) -> {
+                        if (Objects.nonNull(mirror) && !mirror.evict()) {
+                            return mirror;
+                        }
+                        log.info("Evict mirror {} from the cache.", mirrorDir);
+                        deleteQuietly(mirrorDir);
+                        return null;
+                    });
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}.", path, e);
+        }
+    }
+
+    /**
+     * Configure gc of the mirror. Gc runs within the fetch instead of in the background, so it
+     * never runs while the mirror is moved or deleted.
+     */
+    private static void configureGc(Repository repository, boolean autoGcEnabled)
+            throws IOException {
+        StoredConfig config = repository.getConfig();
+        config.setBoolean(
+                ConfigConstants.CONFIG_GC_SECTION,
+                null,
+                ConfigConstants.CONFIG_KEY_AUTODETACH,
+                false);
+        if (autoGcEnabled) {
+            config.unset(ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_AUTO);
+        } else {
+            config.setInt(
+                    ConfigConstants.CONFIG_GC_SECTION, null, ConfigConstants.CONFIG_KEY_AUTO, 0);
+        }
+        config.save();
+    }
+
+    /** Bare mirror of a GIT repo. */
+    private class Mirror {
+
+        private final String repoUrl;
+        private final String key;
+        private final Path gitDir;
+        private final ReentrantLock fetchLock = new ReentrantLock();
+        private final ReadWriteLock usageLock = new ReentrantReadWriteLock();
+        private volatile boolean evicted;
+        private Git git;
+        private Long lastFetchNanos;
+
+        Mirror(String repoUrl, String mirrorKey) {
+            this.repoUrl = repoUrl;
+            this.key = mirrorKey;
+            // the url may contain credentials, hence its hash is used as the directory name.
+            this.gitDir = mirrorCacheDir.resolve(mirrorKey + MIRROR_DIR_SUFFIX);
+        }
+
+        /**
+         * Get the repository of the mirror. The mirror is fetched if it does not contain the
+         * required commit, or without a required commit, if it was not fetched within the refresh
+         * interval.
+         */
+        Repository getRepository(ObjectId requiredCommitId) {
+            fetchLock.lock();
+            boolean fetchedBefore = Objects.nonNull(lastFetchNanos);
+            try {
+                if (Objects.isNull(git)) {
+                    git = openOrClone();
+                }
+                // a new mirror was fetched by the clone right now.
+                boolean cloned = Objects.nonNull(lastFetchNanos) && !fetchedBefore;
+                Repository repository = git.getRepository();
+                boolean fetchRequired =
+                        Objects.nonNull(requiredCommitId)
+                                ? !repository.getObjectDatabase().has(requiredCommitId)
+                                : Objects.isNull(lastFetchNanos)
+                                        || System.nanoTime() - lastFetchNanos
+                                                >= refreshIntervalNanos;
+                if (!fetchRequired) {
+                    if (!cloned) {
+                        cacheHits.increment();
+                    }
+                    return repository;
+                }
+                git.fetch().setRemoveDeletedRefs(true).setTimeout(GIT_TIMEOUT_SECONDS).call();
+                fetches.increment();
+                lastFetchNanos = System.nanoTime();
+                if (Objects.nonNull(requiredCommitId)
+                        && !repository.getObjectDatabase().has(requiredCommitId)) {
+                    throw new IOException("Commit " + requiredCommitId.name() + " not found.");
+                }
+                return repository;
+            } catch (GitAPIException | IOException e) {
+                String errorMsg =
+                        String.format(
+                                "Fetch GIT repo %s error:%s",
+                                redactUrl(repoUrl), redactMessage(e.getMessage(), repoUrl));
+                log.error(errorMsg);
+                throw new GitRepoCloneException(errorMsg);
+            } finally {
+                fetchLock.unlock();
+            }
+        }
+
+        private Git openOrClone() throws GitAPIException, IOException {
+            if (Files.isDirectory(gitDir)) {
+                try {
+                    Git existingGit = Git.open(gitDir.toFile());
+                    configureGc(existingGit.getRepository(), true);
+                    return existingGit;
+                } catch (IOException e) {
+                    log.warn("Mirror {} is broken, clone it again.", gitDir, e);
+                    FileSystemUtils.deleteRecursively(gitDir);
+                }
+            }
+            log.info("Create mirror of GIT repo {} in {}.", redactUrl(repoUrl), gitDir);
+            // cloned to a temporary directory, so an interrupted clone does not leave a broken
+            // mirror behind. Like a mirror clone, but auto gc is disabled before the first fetch.
+            Files.createDirectories(mirrorCacheDir);
+            Path cloneDir = Files.createTempDirectory(mirrorCacheDir, "clone-");
+            try {
+                try (Git clone = Git.init().setBare(true).setDirectory(cloneDir.toFile()).call()) {
+                    StoredConfig config = clone.getRepository().getConfig();
+                    config.setString(
+                            ConfigConstants.CONFIG_REMOTE_SECTION,
+                            Constants.DEFAULT_REMOTE_NAME,
+                            ConfigConstants.CONFIG_KEY_URL,
+                            repoUrl);
+                    config.setString(
+                            ConfigConstants.CONFIG_REMOTE_SECTION,
+                            Constants.DEFAULT_REMOTE_NAME,
+                            ConfigConstants.CONFIG_FETCH_SECTION,
+                            MIRROR_REF_SPEC);
+                    config.setBoolean(
+                            ConfigConstants.CONFIG_REMOTE_SECTION,
+                            Constants.DEFAULT_REMOTE_NAME,
+                            CONFIG_KEY_MIRROR,
+                            true);
+                    configureGc(clone.getRepository(), false);
+                    clone.fetch().setTimeout(GIT_TIMEOUT_SECONDS).call();
+                }
+                Files.move(cloneDir, gitDir);
+            } finally {
+                FileSystemUtils.deleteRecursively(cloneDir);
+            }
+            fetches.increment();
+            lastFetchNanos = System.nanoTime();
+            Git clonedGit = Git.open(gitDir.toFile());
+            configureGc(clonedGit.getRepository(), true);
+            evictLeastRecentlyUsedMirrors();
+            return clonedGit;
+        }
+
+        /**
+         * Close the repository and mark the mirror as evicted, unless the mirror is in use.
+         *
+         * @return true if the mirror is evicted.
+         */
+        boolean evict() {
+            if (!usageLock.writeLock().tryLock()) {
+                return false;
+            }
+            try {
+                evicted = true;
+                close();
+                return true;
+            } finally {
+                usageLock.writeLock().unlock();
+            }
+        }
+
+        void close() {
+            fetchLock.lock();
+            try {
+                if (Objects.nonNull(git)) {
+                    git.close();
+                    git = null;
+                }
+            } finally {
+                fetchLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.service;
+
+import static org.eclipse.xpanse.terraform.boot.terraform.service.TerraformScriptsHelper.TF_SCRIPT_FILE_EXTENSION;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bean to write the scripts of a commit into a task workspace. Only the script path and the local
+ * modules it references through relative sources, like `source = "../modules/vpc"`, are written.
+ * The module sources are found by scanning the terraform files of the commit, transitively.
+ */
+@Slf4j
+@Component
+public class GitRepoSparseCheckout {
+
+    private static final Pattern LOCAL_MODULE_SOURCE_PATTERN =
+            Pattern.compile("\\bsource\\s*=\\s*\"(\\.{1,2}/[^\"]*)\"");
+
+    /**
+     * Write the script path of a commit and the local modules it references into the workspace.
+     *
+     * @param repository repository containing the commit.
+     * @param commitId commit to check out.
+     * @param scriptPath path of the scripts in the repo, blank for the root of the repo.
+     * @param workspace directory the files are written to.
+     */
+    public void checkout(
+            Repository repository, ObjectId commitId, String scriptPath, Path workspace)
+            throws IOException {
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            RevTree tree = revWalk.parseCommit(commitId).getTree();
+            Set<String> checkoutPaths = resolveCheckoutPaths(repository, tree, scriptPath);
+            log.info("Check out paths {} of commit {}.", checkoutPaths, commitId.name());
+            writeTree(repository, tree, checkoutPaths, workspace);
+        }
+    }
+
+    /** Collect the script path and the local modules referenced from the included scripts. */
+    private Set<String> resolveCheckoutPaths(Repository repository, RevTree tree, String scriptPath)
+            throws IOException {
+        Set<String> checkoutPaths = new LinkedHashSet<>();
+        Deque<String> pathsToScan = new ArrayDeque<>();
+        String rootPath = normalize(StringUtils.defaultString(scriptPath));
+        checkoutPaths.add(rootPath);
+        pathsToScan.add(rootPath);
+        while (!pathsToScan.isEmpty()) {
+            for (String modulePath : findLocalModuleSources(repository, tree, pathsToScan.poll())) {
+                if (modulePath.startsWith("..")) {
+                    log.warn("Module source {} is outside of the repo, ignored.", modulePath);
+                } else if (!isCovered(modulePath, checkoutPaths)) {
+                    checkoutPaths.add(modulePath);
+                    pathsToScan.add(modulePath);
+                }
+            }
+        }
+        return checkoutPaths;
+    }
+
+    private List<String> findLocalModuleSources(Repository repository, RevTree tree, String path)
+            throws IOException {
+        List<String> modulePaths = new ArrayList<>();
+        try (TreeWalk treeWalk = newTreeWalk(repository, tree, Set.of(path))) {
+            while (treeWalk.next()) {
+                String filePath = treeWalk.getPathString();
+                if (!filePath.endsWith(TF_SCRIPT_FILE_EXTENSION)
+                        || !treeWalk.getFileMode(0).equals(FileMode.REGULAR_FILE)) {
+                    continue;
+                }
+                String script =
+                        new String(
+                                treeWalk.getObjectReader().open(treeWalk.getObjectId(0)).getBytes(),
+                                StandardCharsets.UTF_8);
+                String fileDirectory = StringUtils.substringBeforeLast(filePath, "/");
+                Matcher matcher = LOCAL_MODULE_SOURCE_PATTERN.matcher(script);
+                while (matcher.find()) {
+                    modulePaths.add(
+                            normalize(
+                                    (filePath.contains("/") ? fileDirectory + "/" : "")
+                                            + matcher.group(1)));
+                }
+            }
+        }
+        return modulePaths;
+    }
+
+    private void writeTree(
+            Repository repository, RevTree tree, Set<String> checkoutPaths, Path workspace)
+            throws IOException {
+        Path workspaceRoot = workspace.toAbsolutePath().normalize();
+        try (TreeWalk treeWalk = newTreeWalk(repository, tree, checkoutPaths)) {
+            while (treeWalk.next()) {
+                FileMode fileMode = treeWalk.getFileMode(0);
+                if (fileMode.equals(FileMode.GITLINK)) {
+                    // submodules are not cloned, as before.
+                    continue;
+                }
+                Path target = workspaceRoot.resolve(treeWalk.getPathString()).normalize();
+                if (!target.startsWith(workspaceRoot)) {
+                    throw new IOException("Invalid path in repo: " + treeWalk.getPathString());
+                }
+                Files.createDirectories(target.getParent());
+                Files.deleteIfExists(target);
+                ObjectLoader loader = treeWalk.getObjectReader().open(treeWalk.getObjectId(0));
+                if (fileMode.equals(FileMode.SYMLINK)) {
+                    Files.createSymbolicLink(
+                            target,
+                            Path.of(new String(loader.getCachedBytes(), StandardCharsets.UTF_8)));
+                    continue;
+                }
+                try (OutputStream outputStream = Files.newOutputStream(target)) {
+                    loader.copyTo(outputStream);
+                }
+                if (fileMode.equals(FileMode.EXECUTABLE_FILE)) {
+                    target.toFile().setExecutable(true);
+                }
+            }
+        }
+    }
+
+    private TreeWalk newTreeWalk(Repository repository, RevTree tree, Set<String> paths)
+            throws IOException {
+        TreeWalk treeWalk = new TreeWalk(repository);
+        treeWalk.addTree(tree);
+        treeWalk.setRecursive(true);
+        if (!paths.contains("")) {
+            treeWalk.setFilter(
+                    paths.size() == 1
+                            ? PathFilter.create(paths.iterator().next())
+                            : PathFilterGroup.createFromStrings(paths));
+        }
+        return treeWalk;
+    }
+
+    private boolean isCovered(String path, Set<String> checkoutPaths) {
+        return checkoutPaths.stream()
+                .anyMatch(
+                        checkoutPath ->
+                                checkoutPath.isEmpty()
+                                        || path.equals(checkoutPath)
+                                        || path.startsWith(checkoutPath + "/"));
+    }
+
+    /** Normalize a path in the repo, a result starting with '..' is outside of the repo. */
+    private static String normalize(String path) {
+        Deque<String> segments = new ArrayDeque<>();
+        int parentSegments = 0;
+        for (String segment : path.replace('\\', '/').split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                if (segments.isEmpty()) {
+                    parentSegments++;
+                } else {
+                    segments.removeLast();
+                }
+            } else {
+                segments.addLast(segment);
+            }
+        }
+        List<String> normalized = new ArrayList<>();
+        for (int i = 0; i < parentSegments; i++) {
+            normalized.add("..");
+        }
+        normalized.addAll(segments);
+        return String.join("/", normalized);
+    }
+}
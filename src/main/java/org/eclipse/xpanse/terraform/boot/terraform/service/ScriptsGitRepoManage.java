@@ -7,7 +7,9 @@ package org.eclipse.xpanse.terraform.boot.terraform.service;
 
 import static org.eclipse.xpanse.terraform.boot.terraform.service.TerraformScriptsHelper.TF_SCRIPT_FILE_EXTENSION;
 
+import jakarta.annotation.Resource;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -17,6 +19,9 @@ import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jgit.api.CloneCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.GitRepoCloneException;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.InvalidTerraformScriptsException;
@@ -31,8 +36,13 @@ import org.springframework.stereotype.Component;
 @Component
 public class ScriptsGitRepoManage {
 
+    @Resource private GitRepoMirrorCache gitRepoMirrorCache;
+    @Resource private GitRepoSparseCheckout gitRepoSparseCheckout;
+
     /**
-     * Method to check out scripts from a GIT repo.
+     * Method to check out scripts from a GIT repo. The scripts are taken from the local mirror of
+     * the repo if the mirror cache is enabled, otherwise the latest commit of the branch is cloned
+     * into the workspace. Only the script path and the local modules it references are checked out.
      *
      * @param workspace directory where the GIT clone must be executed.
      * @param scriptsRepo directory inside the GIT repo where scripts are expected to be present.
@@ -47,6 +57,12 @@ public class ScriptsGitRepoManage {
                         + Objects.requireNonNull(RetrySynchronizationManager.getContext())
                                 .getRetryCount());
         File workspaceDirectory = new File(workspace);
+        if (gitRepoMirrorCache.isEnabled()) {
+            gitRepoMirrorCache.checkout(scriptsRepo, workspaceDirectory);
+            List<File> files = getSourceFiles(workspace, scriptsRepo);
+            validateIfFolderContainsTerraformScripts(files, scriptsRepo);
+            return files;
+        }
         FileRepositoryBuilder repositoryBuilder = new FileRepositoryBuilder();
         repositoryBuilder.findGitDir(workspaceDirectory);
         if (Objects.isNull(repositoryBuilder.getGitDir())) {
@@ -56,9 +72,24 @@ public class ScriptsGitRepoManage {
             cloneCommand.setDirectory(workspaceDirectory);
             cloneCommand.setBranch(scriptsRepo.getBranch());
             cloneCommand.setTimeout(20);
+            // only the latest commit is fetched, unless a commit of the history is pinned.
+            if (StringUtils.isBlank(scriptsRepo.getCommitId())) {
+                cloneCommand.setDepth(1);
+            }
+            cloneCommand.setNoCheckout(true);
             try (Git git = cloneCommand.call()) {
-                git.checkout();
-            } catch (GitAPIException e) {
+                Repository repository = git.getRepository();
+                ObjectId commitId =
+                        repository.resolve(
+                                StringUtils.isNotBlank(scriptsRepo.getCommitId())
+                                        ? scriptsRepo.getCommitId() + "^{commit}"
+                                        : Constants.HEAD);
+                gitRepoSparseCheckout.checkout(
+                        repository,
+                        commitId,
+                        scriptsRepo.getScriptPath(),
+                        workspaceDirectory.toPath());
+            } catch (GitAPIException | IOException e) {
                 String errorMsg =
                         String.format("Clone scripts form GIT repo error:%s", e.getMessage());
                 log.error(errorMsg);
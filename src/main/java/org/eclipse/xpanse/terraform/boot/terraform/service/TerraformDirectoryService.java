@@ -5,18 +5,22 @@
 
 package org.eclipse.xpanse.terraform.boot.terraform.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Resource;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.xpanse.terraform.boot.async.TaskConfiguration;
+import org.eclipse.xpanse.terraform.boot.async.JournaledTask;
+import org.eclipse.xpanse.terraform.boot.async.TerraformTaskScheduler;
 import org.eclipse.xpanse.terraform.boot.models.TerraformBootSystemStatus;
 import org.eclipse.xpanse.terraform.boot.models.enums.HealthStatus;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.InvalidTerraformToolException;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.TerraformExecutorException;
 import org.eclipse.xpanse.terraform.boot.models.plan.TerraformPlan;
@@ -33,16 +37,16 @@ import org.eclipse.xpanse.terraform.boot.terraform.TerraformExecutor;
 import org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformInstaller;
 import org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformVersionsHelper;
 import org.eclipse.xpanse.terraform.boot.terraform.utils.SystemCmdResult;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskExecutionRegistry;
 import org.springframework.beans.BeanUtils;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 /** Terraform service classes are deployed form Directory. */
 @Slf4j
 @Service
 public class TerraformDirectoryService {
+    // phase of the tasks while a missing terraform version is installed.
+    private static final String INSTALL_PHASE = "install";
     private static final String HELLO_WORLD_TF_NAME = "hello_world.tf";
     private static final String HELLO_WORLD_TEMPLATE =
             """
@@ -52,10 +56,11 @@ public class TerraformDirectoryService {
             """;
     @Resource private TerraformExecutor executor;
     @Resource private TerraformInstaller installer;
-    @Resource private RestTemplate restTemplate;
     @Resource private TerraformVersionsHelper versionHelper;
     @Resource private TerraformScriptsHelper scriptsHelper;
-    @Resource private TerraformResultPersistenceManage terraformResultPersistenceManage;
+    @Resource private TerraformResultDeliveryManage terraformResultDeliveryManage;
+    @Resource private TerraformTaskScheduler taskScheduler;
+    @Resource private TaskExecutionRegistry taskExecutionRegistry;
 
     /**
      * Perform Terraform health checks by creating a Terraform test configuration file.
@@ -88,15 +93,18 @@ public class TerraformDirectoryService {
         try {
             String executorPath =
                     installer.getExecutorPathThatMatchesRequiredVersion(terraformVersion);
-            SystemCmdResult result = executor.tfValidate(executorPath, taskWorkspace);
-            TerraformValidationResult validationResult =
-                    new ObjectMapper()
-                            .readValue(
-                                    result.getCommandStdOutput(), TerraformValidationResult.class);
+            TerraformValidationResult validationResult;
+            try (SystemCmdResult result = executor.tfValidate(executorPath, taskWorkspace);
+                    InputStream validationOutput =
+                            result.getCommandStdOutputCapture().openInputStream()) {
+                validationResult =
+                        new ObjectMapper()
+                                .readValue(validationOutput, TerraformValidationResult.class);
+            }
             validationResult.setTerraformVersionUsed(
                     versionHelper.getExactVersionOfExecutor(executorPath));
             return validationResult;
-        } catch (JsonProcessingException ex) {
+        } catch (IOException ex) {
             throw new IllegalStateException("Serialising string to object failed.", ex);
         }
     }
@@ -108,7 +116,12 @@ public class TerraformDirectoryService {
             List<File> scriptFiles) {
         SystemCmdResult result;
         String executorPath = null;
-        try {
+        try (TaskExecutionRegistry.TaskExecution taskExecution =
+                taskExecutionRegistry.register(
+                        Objects.toString(request.getRequestId(), null),
+                        TaskOperationType.ofDeployment(request.getIsPlanOnly()),
+                        request.getTimeoutSeconds())) {
+            taskExecution.setPhase(INSTALL_PHASE);
             executorPath =
                     installer.getExecutorPathThatMatchesRequiredVersion(
                             request.getTerraformVersion());
@@ -148,7 +161,12 @@ public class TerraformDirectoryService {
             List<File> scriptFiles) {
         SystemCmdResult result;
         String executorPath = null;
-        try {
+        try (TaskExecutionRegistry.TaskExecution taskExecution =
+                taskExecutionRegistry.register(
+                        Objects.toString(request.getRequestId(), null),
+                        TaskOperationType.ofDeployment(request.getIsPlanOnly()),
+                        request.getTimeoutSeconds())) {
+            taskExecution.setPhase(INSTALL_PHASE);
             executorPath =
                     installer.getExecutorPathThatMatchesRequiredVersion(
                             request.getTerraformVersion());
@@ -189,7 +207,12 @@ public class TerraformDirectoryService {
             List<File> scriptFiles) {
         SystemCmdResult result;
         String executorPath = null;
-        try {
+        try (TaskExecutionRegistry.TaskExecution taskExecution =
+                taskExecutionRegistry.register(
+                        Objects.toString(request.getRequestId(), null),
+                        TaskOperationType.DESTROY,
+                        request.getTimeoutSeconds())) {
+            taskExecution.setPhase(INSTALL_PHASE);
             executorPath =
                     installer.getExecutorPathThatMatchesRequiredVersion(
                             request.getTerraformVersion());
@@ -217,14 +240,24 @@ public class TerraformDirectoryService {
     /** Executes terraform plan command on a directory and returns the plan as a JSON string. */
     public TerraformPlan getTerraformPlanFromDirectory(
             TerraformPlanFromDirectoryRequest request, String taskWorkspace) {
-        String executorPath =
-                installer.getExecutorPathThatMatchesRequiredVersion(request.getTerraformVersion());
-        String result =
-                executor.getTerraformPlanAsJson(
-                        executorPath,
-                        request.getVariables(),
-                        request.getEnvVariables(),
-                        taskWorkspace);
+        String executorPath;
+        String result;
+        try (TaskExecutionRegistry.TaskExecution taskExecution =
+                taskExecutionRegistry.register(
+                        Objects.toString(request.getRequestId(), null),
+                        TaskOperationType.PLAN,
+                        request.getTimeoutSeconds())) {
+            taskExecution.setPhase(INSTALL_PHASE);
+            executorPath =
+                    installer.getExecutorPathThatMatchesRequiredVersion(
+                            request.getTerraformVersion());
+            result =
+                    executor.getTerraformPlanAsJson(
+                            executorPath,
+                            request.getVariables(),
+                            request.getEnvVariables(),
+                            taskWorkspace);
+        }
         scriptsHelper.deleteTaskWorkspace(taskWorkspace);
         TerraformPlan terraformPlan = TerraformPlan.builder().plan(result).build();
         terraformPlan.setTerraformVersionUsed(
@@ -233,95 +266,135 @@ public class TerraformDirectoryService {
     }
 
     /** Async deploy a source by terraform. */
-    @Async(TaskConfiguration.TASK_EXECUTOR_NAME)
     public void asyncDeployWithScripts(
             TerraformAsyncDeployFromDirectoryRequest asyncDeployRequest,
             String taskWorkspace,
             List<File> scriptFiles) {
-        TerraformResult result;
-        try {
-            result = deployFromDirectory(asyncDeployRequest, taskWorkspace, scriptFiles);
-        } catch (RuntimeException e) {
-            result =
-                    TerraformResult.builder()
-                            .commandStdOutput(null)
-                            .commandStdError(e.getMessage())
-                            .isCommandSuccessful(false)
-                            .terraformState(null)
-                            .generatedFileContentMap(new HashMap<>())
-                            .build();
-        }
-        result.setRequestId(asyncDeployRequest.getRequestId());
-        String url = asyncDeployRequest.getWebhookConfig().getUrl();
-        log.info("Deployment service complete, callback POST url:{}, requestBody:{}", url, result);
-        sendTerraformResult(url, result);
+        taskScheduler.submit(
+                JournaledTask.queued(
+                        asyncDeployRequest.getRequestId(),
+                        JournaledTask.TaskSource.DIRECTORY,
+                        JournaledTask.TaskAction.DEPLOY,
+                        TaskOperationType.ofDeployment(asyncDeployRequest.getIsPlanOnly()),
+                        asyncDeployRequest,
+                        taskWorkspace),
+                () -> {
+                    TerraformResult result;
+                    try {
+                        result =
+                                deployFromDirectory(asyncDeployRequest, taskWorkspace, scriptFiles);
+                    } catch (RuntimeException e) {
+                        result =
+                                TerraformResult.builder()
+                                        .commandStdOutput(null)
+                                        .commandStdError(e.getMessage())
+                                        .isCommandSuccessful(false)
+                                        .terraformState(null)
+                                        .generatedFileContentMap(new HashMap<>())
+                                        .build();
+                    }
+                    result.setRequestId(asyncDeployRequest.getRequestId());
+                    String url = asyncDeployRequest.getWebhookConfig().getUrl();
+                    log.info(
+                            "Deployment service complete, callback POST url:{}, requestBody:{}",
+                            url,
+                            result);
+                    sendTerraformResult(url, result);
+                });
     }
 
     /** Async modify a source by terraform. */
-    @Async(TaskConfiguration.TASK_EXECUTOR_NAME)
     public void asyncModifyWithScripts(
             TerraformAsyncModifyFromDirectoryRequest asyncModifyRequest,
             String taskWorkspace,
             List<File> scriptFiles) {
-        TerraformResult result;
-        try {
-            result = modifyFromDirectory(asyncModifyRequest, taskWorkspace, scriptFiles);
-        } catch (RuntimeException e) {
-            result =
-                    TerraformResult.builder()
-                            .commandStdOutput(null)
-                            .commandStdError(e.getMessage())
-                            .isCommandSuccessful(false)
-                            .terraformState(null)
-                            .generatedFileContentMap(new HashMap<>())
-                            .build();
-        }
-        result.setRequestId(asyncModifyRequest.getRequestId());
-        String url = asyncModifyRequest.getWebhookConfig().getUrl();
-        log.info("Deployment service complete, callback POST url:{}, requestBody:{}", url, result);
-        sendTerraformResult(url, result);
+        taskScheduler.submit(
+                JournaledTask.queued(
+                        asyncModifyRequest.getRequestId(),
+                        JournaledTask.TaskSource.DIRECTORY,
+                        JournaledTask.TaskAction.MODIFY,
+                        TaskOperationType.ofDeployment(asyncModifyRequest.getIsPlanOnly()),
+                        asyncModifyRequest,
+                        taskWorkspace),
+                () -> {
+                    TerraformResult result;
+                    try {
+                        result =
+                                modifyFromDirectory(asyncModifyRequest, taskWorkspace, scriptFiles);
+                    } catch (RuntimeException e) {
+                        result =
+                                TerraformResult.builder()
+                                        .commandStdOutput(null)
+                                        .commandStdError(e.getMessage())
+                                        .isCommandSuccessful(false)
+                                        .terraformState(null)
+                                        .generatedFileContentMap(new HashMap<>())
+                                        .build();
+                    }
+                    result.setRequestId(asyncModifyRequest.getRequestId());
+                    String url = asyncModifyRequest.getWebhookConfig().getUrl();
+                    log.info(
+                            "Deployment service complete, callback POST url:{}, requestBody:{}",
+                            url,
+                            result);
+                    sendTerraformResult(url, result);
+                });
     }
 
     /** Async destroy resource of the service. */
-    @Async(TaskConfiguration.TASK_EXECUTOR_NAME)
     public void asyncDestroyWithScripts(
             TerraformAsyncDestroyFromDirectoryRequest request,
             String taskWorkspace,
             List<File> scriptFiles) {
-        TerraformResult result;
-        try {
-            result = destroyFromDirectory(request, taskWorkspace, scriptFiles);
-        } catch (RuntimeException e) {
-            result =
-                    TerraformResult.builder()
-                            .commandStdOutput(null)
-                            .commandStdError(e.getMessage())
-                            .isCommandSuccessful(false)
-                            .terraformState(null)
-                            .generatedFileContentMap(new HashMap<>())
-                            .build();
-        }
-        result.setRequestId(request.getRequestId());
-        String url = request.getWebhookConfig().getUrl();
-        log.info("Destroy service complete, callback POST url:{}, requestBody:{}", url, result);
-        sendTerraformResult(url, result);
+        taskScheduler.submit(
+                JournaledTask.queued(
+                        request.getRequestId(),
+                        JournaledTask.TaskSource.DIRECTORY,
+                        JournaledTask.TaskAction.DESTROY,
+                        TaskOperationType.DESTROY,
+                        request,
+                        taskWorkspace),
+                () -> {
+                    TerraformResult result;
+                    try {
+                        result = destroyFromDirectory(request, taskWorkspace, scriptFiles);
+                    } catch (RuntimeException e) {
+                        result =
+                                TerraformResult.builder()
+                                        .commandStdOutput(null)
+                                        .commandStdError(e.getMessage())
+                                        .isCommandSuccessful(false)
+                                        .terraformState(null)
+                                        .generatedFileContentMap(new HashMap<>())
+                                        .build();
+                    }
+                    result.setRequestId(request.getRequestId());
+                    String url = request.getWebhookConfig().getUrl();
+                    log.info(
+                            "Destroy service complete, callback POST url:{}, requestBody:{}",
+                            url,
+                            result);
+                    sendTerraformResult(url, result);
+                });
     }
 
     private void sendTerraformResult(String url, TerraformResult result) {
-        try {
-            restTemplate.postForLocation(url, result);
-        } catch (RestClientException e) {
-            log.error("error while sending terraform result", e);
-            terraformResultPersistenceManage.persistTerraformResult(result);
-        }
+        terraformResultDeliveryManage.deliver(url, result);
     }
 
+    /**
+     * Convert the result of the command to the result returned to the client. The retained outputs
+     * are returned as captured with their truncation policies, the captures are closed afterward.
+     */
     private TerraformResult transSystemCmdResultToTerraformResult(
             SystemCmdResult result, String taskWorkspace, List<File> scriptFiles) {
         TerraformResult terraformResult =
                 TerraformResult.builder().isCommandSuccessful(result.isCommandSuccessful()).build();
-        try {
-            BeanUtils.copyProperties(result, terraformResult);
+        try (result) {
+            BeanUtils.copyProperties(
+                    result, terraformResult, "commandStdOutput", "commandStdError");
+            terraformResult.setCommandStdOutput(result.getCommandStdOutput());
+            terraformResult.setCommandStdError(result.getCommandStdError());
             terraformResult.setTerraformState(scriptsHelper.getTerraformState(taskWorkspace));
             terraformResult.setGeneratedFileContentMap(
                     scriptsHelper.getDeploymentGeneratedFilesContent(taskWorkspace, scriptFiles));
@@ -12,7 +12,9 @@ import java.util.List;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.eclipse.xpanse.terraform.boot.async.TaskConfiguration;
+import org.eclipse.xpanse.terraform.boot.async.JournaledTask;
+import org.eclipse.xpanse.terraform.boot.async.TerraformTaskScheduler;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
 import org.eclipse.xpanse.terraform.boot.models.plan.TerraformPlan;
 import org.eclipse.xpanse.terraform.boot.models.plan.TerraformPlanFromGitRepoRequest;
 import org.eclipse.xpanse.terraform.boot.models.request.git.TerraformAsyncDeployFromGitRepoRequest;
@@ -24,20 +26,17 @@ import org.eclipse.xpanse.terraform.boot.models.request.git.TerraformModifyFromG
 import org.eclipse.xpanse.terraform.boot.models.request.git.TerraformScriptGitRepoDetails;
 import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
 import org.eclipse.xpanse.terraform.boot.models.validation.TerraformValidationResult;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 /** Bean to manage all Terraform execution using scripts from a GIT Repo. */
 @Slf4j
 @Component
 public class TerraformGitRepoService {
 
-    @Resource private RestTemplate restTemplate;
     @Resource private TerraformScriptsHelper scriptsHelper;
     @Resource private TerraformDirectoryService directoryService;
-    @Resource private TerraformResultPersistenceManage terraformResultPersistenceManage;
+    @Resource private TerraformResultDeliveryManage terraformResultDeliveryManage;
+    @Resource private TerraformTaskScheduler taskScheduler;
 
     /** Method of deployment a service using a script. */
     public TerraformValidationResult validateWithScripts(
@@ -105,81 +104,112 @@ public class TerraformGitRepoService {
     }
 
     /** Async deploy a source by terraform. */
-    @Async(TaskConfiguration.TASK_EXECUTOR_NAME)
     public void asyncDeployFromGitRepo(
             TerraformAsyncDeployFromGitRepoRequest asyncDeployRequest, UUID uuid) {
-        TerraformResult result;
-        try {
-            result = deployFromGitRepo(asyncDeployRequest, uuid);
-        } catch (RuntimeException e) {
-            result =
-                    TerraformResult.builder()
-                            .commandStdOutput(null)
-                            .commandStdError(e.getMessage())
-                            .isCommandSuccessful(false)
-                            .terraformState(null)
-                            .generatedFileContentMap(new HashMap<>())
-                            .build();
-        }
-        result.setRequestId(asyncDeployRequest.getRequestId());
-        String url = asyncDeployRequest.getWebhookConfig().getUrl();
-        log.info("Deployment service complete, callback POST url:{}, requestBody:{}", url, result);
-        sendTerraformResult(url, result);
+        taskScheduler.submit(
+                JournaledTask.queued(
+                        asyncDeployRequest.getRequestId(),
+                        JournaledTask.TaskSource.GIT_REPO,
+                        JournaledTask.TaskAction.DEPLOY,
+                        TaskOperationType.ofDeployment(asyncDeployRequest.getIsPlanOnly()),
+                        asyncDeployRequest,
+                        null),
+                () -> {
+                    TerraformResult result;
+                    try {
+                        result = deployFromGitRepo(asyncDeployRequest, uuid);
+                    } catch (RuntimeException e) {
+                        result =
+                                TerraformResult.builder()
+                                        .commandStdOutput(null)
+                                        .commandStdError(e.getMessage())
+                                        .isCommandSuccessful(false)
+                                        .terraformState(null)
+                                        .generatedFileContentMap(new HashMap<>())
+                                        .build();
+                    }
+                    result.setRequestId(asyncDeployRequest.getRequestId());
+                    String url = asyncDeployRequest.getWebhookConfig().getUrl();
+                    log.info(
+                            "Deployment service complete, callback POST url:{}, requestBody:{}",
+                            url,
+                            result);
+                    sendTerraformResult(url, result);
+                });
     }
 
     /** Async modify a source by terraform. */
-    @Async(TaskConfiguration.TASK_EXECUTOR_NAME)
     public void asyncModifyFromGitRepo(
             TerraformAsyncModifyFromGitRepoRequest asyncModifyRequest, UUID uuid) {
-        TerraformResult result;
-        try {
-            result = modifyFromGitRepo(asyncModifyRequest, uuid);
-        } catch (RuntimeException e) {
-            result =
-                    TerraformResult.builder()
-                            .commandStdOutput(null)
-                            .commandStdError(e.getMessage())
-                            .isCommandSuccessful(false)
-                            .terraformState(null)
-                            .generatedFileContentMap(new HashMap<>())
-                            .build();
-        }
-        result.setRequestId(asyncModifyRequest.getRequestId());
-        String url = asyncModifyRequest.getWebhookConfig().getUrl();
-        log.info("Modify service complete, callback POST url:{}, requestBody:{}", url, result);
-        sendTerraformResult(url, result);
+        taskScheduler.submit(
+                JournaledTask.queued(
+                        asyncModifyRequest.getRequestId(),
+                        JournaledTask.TaskSource.GIT_REPO,
+                        JournaledTask.TaskAction.MODIFY,
+                        TaskOperationType.ofDeployment(asyncModifyRequest.getIsPlanOnly()),
+                        asyncModifyRequest,
+                        null),
+                () -> {
+                    TerraformResult result;
+                    try {
+                        result = modifyFromGitRepo(asyncModifyRequest, uuid);
+                    } catch (RuntimeException e) {
+                        result =
+                                TerraformResult.builder()
+                                        .commandStdOutput(null)
+                                        .commandStdError(e.getMessage())
+                                        .isCommandSuccessful(false)
+                                        .terraformState(null)
+                                        .generatedFileContentMap(new HashMap<>())
+                                        .build();
+                    }
+                    result.setRequestId(asyncModifyRequest.getRequestId());
+                    String url = asyncModifyRequest.getWebhookConfig().getUrl();
+                    log.info(
+                            "Modify service complete, callback POST url:{}, requestBody:{}",
+                            url,
+                            result);
+                    sendTerraformResult(url, result);
+                });
     }
 
     /** Async destroy resource of the service. */
-    @Async(TaskConfiguration.TASK_EXECUTOR_NAME)
     public void asyncDestroyFromGitRepo(
             TerraformAsyncDestroyFromGitRepoRequest request, UUID uuid) {
-        TerraformResult result;
-        try {
-            result = destroyFromGitRepo(request, uuid);
-        } catch (RuntimeException e) {
-            result =
-                    TerraformResult.builder()
-                            .commandStdOutput(null)
-                            .commandStdError(e.getMessage())
-                            .isCommandSuccessful(false)
-                            .terraformState(null)
-                            .generatedFileContentMap(new HashMap<>())
-                            .build();
-        }
-        result.setRequestId(request.getRequestId());
-        String url = request.getWebhookConfig().getUrl();
-        log.info("Destroy service complete, callback POST url:{}, requestBody:{}", url, result);
-        sendTerraformResult(url, result);
+        taskScheduler.submit(
+                JournaledTask.queued(
+                        request.getRequestId(),
+                        JournaledTask.TaskSource.GIT_REPO,
+                        JournaledTask.TaskAction.DESTROY,
+                        TaskOperationType.DESTROY,
+                        request,
+                        null),
+                () -> {
+                    TerraformResult result;
+                    try {
+                        result = destroyFromGitRepo(request, uuid);
+                    } catch (RuntimeException e) {
+                        result =
+                                TerraformResult.builder()
+                                        .commandStdOutput(null)
+                                        .commandStdError(e.getMessage())
+                                        .isCommandSuccessful(false)
+                                        .terraformState(null)
+                                        .generatedFileContentMap(new HashMap<>())
+                                        .build();
+                    }
+                    result.setRequestId(request.getRequestId());
+                    String url = request.getWebhookConfig().getUrl();
+                    log.info(
+                            "Destroy service complete, callback POST url:{}, requestBody:{}",
+                            url,
+                            result);
+                    sendTerraformResult(url, result);
+                });
     }
 
     private void sendTerraformResult(String url, TerraformResult result) {
-        try {
-            restTemplate.postForLocation(url, result);
-        } catch (RestClientException e) {
-            log.error("error while sending terraform result", e);
-            terraformResultPersistenceManage.persistTerraformResult(result);
-        }
+        terraformResultDeliveryManage.deliver(url, result);
     }
 
     private String getScriptsLocationInTaskWorkspace(
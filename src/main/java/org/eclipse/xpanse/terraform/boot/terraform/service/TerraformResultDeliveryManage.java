@@ -0,0 +1,550 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
+import org.eclipse.xpanse.terraform.boot.security.hmac.HmacSignatureHeaderManage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Delivers the results of the async tasks to their webhooks. Every result is first written to the
+ * outbox directory and then sent in the background, so a restart does not lose undelivered results.
+ * Failed deliveries are retried with exponential backoff and jitter, and the number of concurrent
+ * requests to each destination is limited. Results which can not be delivered are stored for
+ * retrieval via the result API. The results are kept gzip compressed until they are delivered, and
+ * are also sent with `Content-Encoding: gzip` if enabled. Destinations rejecting the compressed
+ * body with 415 Unsupported Media Type get the plain body from then on. The bodies are streamed
+ * from the outbox files to the connections and signed on the fly, so a delivery holds only a buffer
+ * of the result in memory.
+ */
+@Slf4j
+@Component
+public class TerraformResultDeliveryManage {
+
+    private static final String OUTBOX_FILE_SUFFIX = ".outbox";
+    private static final String DEFAULT_OUTBOX_DIR_NAME = "terraform-webhook-outbox";
+    private static final long DESTINATION_BUSY_DELAY_MILLIS = 200;
+    private static final String GZIP_ENCODING = "gzip";
+
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Map<UUID, OutboxEntry> pendingEntries = new ConcurrentHashMap<>();
+
+    private final Map<String, Semaphore> destinationPermits = new ConcurrentHashMap<>();
+
+    private final Set<String> uncompressedDestinations = ConcurrentHashMap.newKeySet();
+
+    private final RestTemplate restTemplate;
+    private final HmacSignatureHeaderManage hmacSignatureHeaderManage;
+    private final TerraformResultPersistenceManage terraformResultPersistenceManage;
+    private final Path outboxDir;
+    private final int maxConcurrentRequestsPerDestination;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+    private final boolean compressionEnabled;
+    private final ScheduledExecutorService retryScheduler;
+    private final ExecutorService deliveryExecutor;
+    private final Timer deliveredTimer;
+    private final Timer failedTimer;
+    private final Counter successfulAttempts;
+    private final Counter retriedAttempts;
+    private final Counter failedAttempts;
+
+    /**
+     * Constructor for the TerraformResultDeliveryManage bean.
+     *
+     * @param clientHttpRequestFactory factory of the requests sending the results
+     * @param hmacSignatureHeaderManage signer of the requests, null if signing is disabled
+     * @param terraformResultPersistenceManage store of the results which can not be delivered
+     * @param meterRegistry registry of the delivery metrics
+     * @param virtualThreadsEnabled value of `spring.threads.virtual.enabled` property
+     * @param outboxDir value of `terraformboot.webhook.outbox.dir` property
+     * @param maxConcurrentRequestsPerDestination value of
+     *     `terraformboot.webhook.max.concurrent.requests.per.destination` property
+     * @param maxAttempts value of `terraformboot.webhook.retry.max.attempts` property
+     * @param initialBackoffMillis value of `terraformboot.webhook.retry.initial.backoff.millis`
+     * @param maxBackoffMillis value of `terraformboot.webhook.retry.max.backoff.millis` property
+     * @param compressionEnabled value of `terraformboot.webhook.compression.enabled` property
+     */
+    public TerraformResultDeliveryManage(
+            ClientHttpRequestFactory clientHttpRequestFactory,
+            @Autowired(required = false) HmacSignatureHeaderManage hmacSignatureHeaderManage,
+            TerraformResultPersistenceManage terraformResultPersistenceManage,
+            MeterRegistry meterRegistry,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled,
+            @Value("${terraformboot.webhook.outbox.dir:}") String outboxDir,
+            @Value("${terraformboot.webhook.max.concurrent.requests.per.destination:4}")
+                    int maxConcurrentRequestsPerDestination,
+            @Value("${terraformboot.webhook.retry.max.attempts:12}") int maxAttempts,
+            @Value("${terraformboot.webhook.retry.initial.backoff.millis:1000}")
+                    long initialBackoffMillis,
+            @Value("${terraformboot.webhook.retry.max.backoff.millis:300000}")
+                    long maxBackoffMillis,
+            @Value("${terraformboot.webhook.compression.enabled:false}")
+                    boolean compressionEnabled) {
+        // no interceptors, they would buffer the whole body to sign and log it.
+        this.restTemplate = new RestTemplate(clientHttpRequestFactory);
+        this.hmacSignatureHeaderManage = hmacSignatureHeaderManage;
+        this.terraformResultPersistenceManage = terraformResultPersistenceManage;
+        this.outboxDir =
+                (StringUtils.isNotBlank(outboxDir)
+                                ? Paths.get(outboxDir)
+                                : Paths.get(
+                                        System.getProperty("java.io.tmpdir"),
+                                        DEFAULT_OUTBOX_DIR_NAME))
+                        .toAbsolutePath();
+        this.maxConcurrentRequestsPerDestination = Math.max(1, maxConcurrentRequestsPerDestination);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.initialBackoffMillis = Math.max(1, initialBackoffMillis);
+        this.maxBackoffMillis = Math.max(this.initialBackoffMillis, maxBackoffMillis);
+        this.compressionEnabled = compressionEnabled;
+        this.retryScheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("webhook-retry-scheduler").daemon().factory());
+        this.deliveryExecutor =
+                virtualThreadsEnabled
+                        ? Executors.newThreadPerTaskExecutor(
+                                Thread.ofVirtual().name("webhook-delivery-", 0).factory())
+                        : Executors.newCachedThreadPool(
+                                Thread.ofPlatform()
+                                        .name("webhook-delivery-", 0)
+                                        .daemon()
+                                        .factory());
+        Gauge.builder("terraform.webhook.outbox.size", pendingEntries, Map::size)
+                .description("Number of task results waiting to be delivered to the webhooks")
+                .register(meterRegistry);
+        this.deliveredTimer = deliveryTimer(meterRegistry, "delivered");
+        this.failedTimer = deliveryTimer(meterRegistry, "failed");
+        this.successfulAttempts = attemptCounter(meterRegistry, "success");
+        this.retriedAttempts = attemptCounter(meterRegistry, "retry");
+        this.failedAttempts = attemptCounter(meterRegistry, "failure");
+    }
+
+    /** Load the results left in the outbox by the previous run and deliver them. */
+    @PostConstruct
+    public void drainOutbox() {
+        if (!Files.isDirectory(outboxDir)) {
+            return;
+        }
+        try (DirectoryStream<Path> files =
+                Files.newDirectoryStream(outboxDir, "*" + OUTBOX_FILE_SUFFIX)) {
+            for (Path file : files) {
+                try (InputStream inputStream =
+                        new BufferedInputStream(Files.newInputStream(file))) {
+                    OutboxHeader header =
+                            objectMapper.readValue(readHeaderLine(inputStream), OutboxHeader.class);
+                    OutboxEntry entry = new OutboxEntry(file, header.url(), header.requestId());
+                    pendingEntries.put(entry.requestId, entry);
+                    schedule(entry, 0);
+                } catch (IOException | IllegalArgumentException e) {
+                    log.error("Loading webhook outbox entry {} failed.", file, e);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Reading webhook outbox {} failed.", outboxDir, e);
+        }
+        if (!pendingEntries.isEmpty()) {
+            log.info(
+                    "Delivering {} task results left in the webhook outbox.",
+                    pendingEntries.size());
+        }
+    }
+
+    /** Stops the delivery threads when the application is shut down. */
+    @PreDestroy
+    public void shutdown() {
+        retryScheduler.shutdownNow();
+        deliveryExecutor.shutdownNow();
+    }
+
+    /**
+     * Deliver the result of a task to its webhook in the background. The result is stored for
+     * retrieval via the result API if it has no webhook or can not be delivered.
+     *
+     * @param url url of the webhook.
+     * @param result result of the task.
+     * @return true if the result was written to the outbox or stored, false if it is lost.
+     */
+    public boolean deliver(String url, TerraformResult result) {
+        if (StringUtils.isBlank(url) || Objects.isNull(result.getRequestId())) {
+            return terraformResultPersistenceManage.persistTerraformResult(result);
+        }
+        OutboxEntry entry;
+        try {
+            entry =
+                    new OutboxEntry(
+                            outboxDir.resolve(result.getRequestId() + OUTBOX_FILE_SUFFIX),
+                            url,
+                            result.getRequestId());
+            writeOutboxFile(entry.file, new OutboxHeader(url, result.getRequestId()), result);
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid webhook url {} of result {}.", url, result.getRequestId());
+            return terraformResultPersistenceManage.persistTerraformResult(result);
+        } catch (IOException e) {
+            log.error("Writing result {} to the webhook outbox failed.", result.getRequestId(), e);
+            return terraformResultPersistenceManage.persistTerraformResult(result);
+        }
+        pendingEntries.put(entry.requestId, entry);
+        schedule(entry, 0);
+        return true;
+    }
+
+    /**
+     * Check if the result of a task is waiting to be delivered.
+     *
+     * @param requestId id of the request.
+     * @return true if the result is in the outbox.
+     */
+    public boolean isDeliveryPending(UUID requestId) {
+        return pendingEntries.containsKey(requestId);
+    }
+
+    private void schedule(OutboxEntry entry, long delayMillis) {
+        try {
+            retryScheduler.schedule(() -> dispatch(entry), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the application is shutting down, the result is delivered after the restart.
+            log.info("Result {} stays in the webhook outbox.", entry.requestId);
+        }
+    }
+
+    /** Send the entry when a request slot of its destination is free. */
+    private void dispatch(OutboxEntry entry) {
+        Semaphore permits =
+                destinationPermits.computeIfAbsent(
+                        entry.destination,
+                        destination -> new Semaphore(maxConcurrentRequestsPerDestination));
+        if (!permits.tryAcquire()) {
+            schedule(entry, DESTINATION_BUSY_DELAY_MILLIS);
+            return;
+        }
+        try {
+            deliveryExecutor.execute(
+                    () -> {
+                        try {
+                            attempt(entry);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            log.info("Result {} stays in the webhook outbox.", entry.requestId);
+        }
+    }
+
+    private void attempt(OutboxEntry entry) {
+        entry.attempts++;
+        boolean compressed =
+                compressionEnabled && !uncompressedDestinations.contains(entry.destination);
+        long startTime = System.currentTimeMillis();
+        log.info(
+                "Request: POST {} with result {} in attempt {}.",
+                entry.url,
+                entry.requestId,
+                entry.attempts);
+        try {
+            HttpStatusCode statusCode =
+                    restTemplate.execute(
+                            URI.create(entry.url),
+                            HttpMethod.POST,
+                            request -> writeRequest(entry, compressed, request),
+                            ClientHttpResponse::getStatusCode);
+            successfulAttempts.increment();
+            log.info(
+                    "Delivered result {} to {}. Response: {} Duration: {}ms",
+                    entry.requestId,
+                    entry.url,
+                    statusCode,
+                    System.currentTimeMillis() - startTime);
+            complete(entry, deliveredTimer);
+            return;
+        } catch (RestClientException e) {
+            if (compressed
+                    && e instanceof RestClientResponseException responseException
+                    && responseException.getStatusCode().value()
+                            == HttpStatus.UNSUPPORTED_MEDIA_TYPE.value()) {
+                log.info("Webhook {} does not accept gzip, send the plain body.", entry.url);
+                uncompressedDestinations.add(entry.destination);
+                entry.attempts--;
+                schedule(entry, 0);
+                return;
+            }
+            long retryDelayMillis = getRetryDelayMillis(entry, e);
+            if (retryDelayMillis >= 0) {
+                retriedAttempts.increment();
+                log.warn(
+                        "Delivering result {} to {} failed in attempt {}, retry in {} ms. {}",
+                        entry.requestId,
+                        entry.url,
+                        entry.attempts,
+                        retryDelayMillis,
+                        e.getMessage());
+                schedule(entry, retryDelayMillis);
+                return;
+            }
+            failedAttempts.increment();
+            log.error(
+                    "Delivering result {} to {} failed after {} attempts, store it for retrieval.",
+                    entry.requestId,
+                    entry.url,
+                    entry.attempts,
+                    e);
+        }
+        try (InputStream inputStream = openBody(entry, false)) {
+            terraformResultPersistenceManage.persistTerraformResult(
+                    objectMapper.readValue(inputStream, TerraformResult.class));
+            complete(entry, failedTimer);
+        } catch (IOException e) {
+            // the result stays in the outbox and is delivered again after a restart.
+            log.error("Reading result {} from the webhook outbox failed.", entry.requestId, e);
+        }
+    }
+
+    /**
+     * Get the delay of the next attempt with exponential backoff and jitter. Responses with
+     * Retry-After are retried no earlier than requested.
+     *
+     * @return the delay in milliseconds, or -1 if the delivery must not be retried.
+     */
+    private long getRetryDelayMillis(OutboxEntry entry, RestClientException exception) {
+        if (entry.attempts >= maxAttempts) {
+            return -1;
+        }
+        long retryAfterMillis = 0;
+        if (exception instanceof RestClientResponseException responseException) {
+            HttpStatus status = HttpStatus.resolve(responseException.getStatusCode().value());
+            boolean retryable =
+                    responseException.getStatusCode().is5xxServerError()
+                            || status == HttpStatus.TOO_MANY_REQUESTS
+                            || status == HttpStatus.REQUEST_TIMEOUT;
+            if (!retryable) {
+                return -1;
+            }
+            retryAfterMillis = getRetryAfterMillis(responseException.getResponseHeaders());
+        } else if (!(exception instanceof ResourceAccessException)) {
+            return -1;
+        }
+        long backoffMillis =
+                Math.min(
+                        maxBackoffMillis, initialBackoffMillis << Math.min(entry.attempts - 1, 30));
+        // equal jitter: spread the retries of results failed at the same time.
+        long delayMillis =
+                backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
+        return Math.max(delayMillis, Math.min(retryAfterMillis, maxBackoffMillis));
+    }
+
+    private long getRetryAfterMillis(HttpHeaders headers) {
+        String retryAfter =
+                Objects.nonNull(headers) ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (StringUtils.isNumeric(retryAfter)) {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter));
+        }
+        return 0;
+    }
+
+    /**
+     * Write the body of the request from the outbox file. The body is read twice, once to sign it
+     * and once to send it, so only a buffer of it is in memory at a time.
+     */
+    private void writeRequest(OutboxEntry entry, boolean compressed, ClientHttpRequest request)
+            throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (compressed) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+        }
+        if (Objects.nonNull(hmacSignatureHeaderManage)) {
+            try (InputStream body = openBody(entry, compressed)) {
+                hmacSignatureHeaderManage
+                        .createHmacSignatureHeader(request.getURI().toURL().toString(), body)
+                        .forEach(headers::set);
+            }
+        }
+        if (request instanceof StreamingHttpOutputMessage streamingRequest) {
+            streamingRequest.setBody(
+                    outputStream -> {
+                        try (InputStream body = openBody(entry, compressed)) {
+                            body.transferTo(outputStream);
+                        }
+                    });
+        } else {
+            try (InputStream body = openBody(entry, compressed)) {
+                body.transferTo(request.getBody());
+            }
+        }
+    }
+
+    /**
+     * Open the body stored in an outbox file.
+     *
+     * @param compressed true to read the gzip compressed body, false to read the plain JSON.
+     */
+    private InputStream openBody(OutboxEntry entry, boolean compressed) throws IOException {
+        InputStream inputStream = new BufferedInputStream(Files.newInputStream(entry.file));
+        try {
+            readHeaderLine(inputStream);
+            return compressed ? inputStream : new GZIPInputStream(inputStream);
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /** Read the header line of an outbox file, which is followed by the compressed result. */
+    private static byte[] readHeaderLine(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        int nextByte;
+        while ((nextByte = inputStream.read()) != '\n') {
+            if (nextByte < 0) {
+                throw new EOFException("Missing header of the webhook outbox entry.");
+            }
+            header.write(nextByte);
+        }
+        return header.toByteArray();
+    }
+
+    private void complete(OutboxEntry entry, Timer timer) {
+        timer.record(System.nanoTime() - entry.enqueuedNanos, TimeUnit.NANOSECONDS);
+        pendingEntries.remove(entry.requestId);
+        try {
+            Files.deleteIfExists(entry.file);
+        } catch (IOException e) {
+            log.error("Deleting webhook outbox entry {} failed.", entry.file, e);
+        }
+    }
+
+    /** Write the header line and the result, serialized directly into the gzip stream. */
+    private void writeOutboxFile(Path file, OutboxHeader header, TerraformResult result)
+            throws IOException {
+        createOutboxDirectory();
+        Path tempFile = Files.createTempFile(outboxDir, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream outputStream =
+                    new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                outputStream.write(objectMapper.writeValueAsBytes(header));
+                outputStream.write('\n');
+                try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+                    objectMapper.writeValue(gzipOutputStream, result);
+                }
+            }
+            Files.move(
+                    tempFile,
+                    file,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private void createOutboxDirectory() throws IOException {
+        if (Files.isDirectory(outboxDir)) {
+            return;
+        }
+        // the results contain the terraform states, hence only the owner may read them.
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(
+                    outboxDir,
+                    PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(outboxDir);
+        }
+    }
+
+    private static Timer deliveryTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("terraform.webhook.delivery.latency")
+                .description("Time from the completion of a task until its result is delivered")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Counter attemptCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("terraform.webhook.delivery.attempts")
+                .description("Number of attempts to deliver task results to the webhooks")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /** Header line of an outbox file. */
+    private record OutboxHeader(String url, UUID requestId) {}
+
+    /** Result waiting to be delivered. */
+    private static class OutboxEntry {
+
+        private final Path file;
+        private final String url;
+        private final String destination;
+        private final UUID requestId;
+        private final long enqueuedNanos = System.nanoTime();
+        private volatile int attempts;
+
+        OutboxEntry(Path file, String url, UUID requestId) {
+            this.file = file;
+            this.url = url;
+            this.requestId = requestId;
+            URI uri = URI.create(url);
+            this.destination = uri.getScheme() + "://" + uri.getAuthority();
+        }
+    }
+}
@@ -8,12 +8,14 @@ package org.eclipse.xpanse.terraform.boot.terraform.service;
 import jakarta.annotation.Resource;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.ResultAlreadyReturnedOrRequestIdInvalidException;
 import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskExecutionRegistry;
 import org.eclipse.xpanse.terraform.boot.utils.TerraformResultSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
@@ -25,46 +27,35 @@ import org.springframework.stereotype.Component;
 public class TerraformResultPersistenceManage {
 
     private static final String TF_RESULT_FILE_SUFFIX = ".dat";
-    private static final String TF_LOCK_FILE_NAME = ".terraform.tfstate.lock.info";
 
     @Value("${failed.callback.response.store.location}")
     private String failedCallbackStoreLocation;
 
-    @Value("${clean.workspace.after.deployment.enabled:true}")
-    private Boolean cleanWorkspaceAfterDeployment;
-
-    @Resource private TerraformScriptsHelper scriptsHelper;
+    @Resource private TaskExecutionRegistry taskExecutionRegistry;
     @Resource private TerraformResultSerializer terraformResultSerializer;
+    @Resource private TerraformResultStore terraformResultStore;
 
     /**
      * When the terraform-boot callback fails, store the TerraformResult in the local file system.
      *
      * @param result TerraformResult.
+     * @return true if the result is stored.
      */
-    public void persistTerraformResult(TerraformResult result) {
-        String filePath = getFilePath(result.getRequestId());
-        File file = new File(filePath);
-        if (!file.exists() && !file.mkdirs()) {
-            log.error("Failed to create directory {}", filePath);
-            return;
-        }
+    public boolean persistTerraformResult(TerraformResult result) {
         byte[] terraformResultData = terraformResultSerializer.serialize(result);
-        try (FileOutputStream fos =
-                new FileOutputStream(
-                        file.getPath()
-                                + File.separator
-                                + result.getRequestId()
-                                + TF_RESULT_FILE_SUFFIX)) {
-            fos.write(terraformResultData);
+        try {
+            terraformResultStore.put(result.getRequestId(), terraformResultData);
             log.info(
-                    "terraform result successfully stored to directoryName: {}",
+                    "terraform result successfully stored with requestId: {}",
                     result.getRequestId());
-        } catch (IOException e) {
+            return true;
+        } catch (UncheckedIOException e) {
             String errorMsg =
                     String.format(
-                            "storing terraform result to " + "directoryName %s failed. %s",
+                            "storing terraform result with requestId %s failed. %s",
                             result.getRequestId(), e);
             log.error(errorMsg);
+            return false;
         }
     }
 
@@ -74,11 +65,24 @@ public class TerraformResultPersistenceManage {
      * @param requestId requestId.
      * @return TerraformResult.
      */
-    public ResponseEntity<TerraformResult> retrieveTerraformResultByRequestId(String requestId) {
-        String filePath = getFilePath(UUID.fromString(requestId));
-        File resultFile = new File(filePath + File.separator + requestId + TF_RESULT_FILE_SUFFIX);
+    public ResponseEntity<TerraformResult> retrieveTerraformResultByRequestId(UUID requestId) {
+        TerraformResult storedResult;
+        try {
+            storedResult =
+                    terraformResultStore.take(requestId, terraformResultSerializer::deserialize);
+        } catch (UncheckedIOException e) {
+            log.error("Failed to retrieve TerraformResult for requestId: {}", requestId, e);
+            throw new ResultAlreadyReturnedOrRequestIdInvalidException(
+                    "Failed to retrieve TerraformResult for requestId: " + requestId);
+        }
+        if (Objects.nonNull(storedResult)) {
+            return ResponseEntity.ok(storedResult);
+        }
+        // results stored by earlier versions in a directory per request.
+        String filePath = getFilePath(requestId);
+        File resultFile = getLegacyResultFile(requestId);
         if (!resultFile.exists() && !resultFile.isFile()) {
-            if (isDeployingInProgress(requestId)) {
+            if (Objects.nonNull(taskExecutionRegistry.get(requestId.toString()))) {
                 return ResponseEntity.noContent().build();
             }
             throw new ResultAlreadyReturnedOrRequestIdInvalidException(
@@ -98,16 +102,14 @@ public class TerraformResultPersistenceManage {
         }
     }
 
-    private boolean isDeployingInProgress(String requestId) {
-        String workspace = scriptsHelper.buildTaskWorkspace(requestId);
-        File targetFile;
-        if (cleanWorkspaceAfterDeployment) {
-            targetFile = new File(workspace);
-            return targetFile.exists() && targetFile.isDirectory();
-        } else {
-            targetFile = new File(workspace, TF_LOCK_FILE_NAME);
-            return targetFile.exists() && targetFile.isFile();
-        }
+    /**
+     * Check if a result is stored for the request, without taking it.
+     *
+     * @param requestId requestId.
+     * @return true if the result can be retrieved.
+     */
+    public boolean hasStoredResult(UUID requestId) {
+        return terraformResultStore.contains(requestId) || getLegacyResultFile(requestId).isFile();
     }
 
     private void deleteResultFileAndDirectory(File resultFile) {
@@ -132,6 +134,11 @@ public class TerraformResultPersistenceManage {
         file.delete();
     }
 
+    private File getLegacyResultFile(UUID requestId) {
+        return new File(
+                getFilePath(requestId) + File.separator + requestId + TF_RESULT_FILE_SUFFIX);
+    }
+
     private String getFilePath(UUID requestId) {
         return failedCallbackStoreLocation + File.separator + requestId.toString();
     }
@@ -0,0 +1,445 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Append-only store of the task results which could not be delivered. The results are appended to
+ * segment files, and an in-memory index maps each request id to the position of its result. The
+ * index is rebuilt from the segments on startup. Taking a result appends a tombstone, so it is not
+ * returned again after a restart. Results older than the TTL are dropped, and segments are
+ * compacted from the oldest one on, so a tombstone is never removed before the result it shadows.
+ */
+@Slf4j
+@Component
+public class TerraformResultStore {
+
+    private static final String STORE_DIR_NAME = "terraform-result-store";
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+    private static final String SEGMENT_FILE_SUFFIX = ".log";
+    private static final int RECORD_MAGIC = 0x54465252;
+    private static final byte PUT_RECORD = 1;
+    private static final byte TOMBSTONE_RECORD = 2;
+    // magic, type, request id, timestamp, payload length and checksum.
+    private static final int RECORD_HEADER_LENGTH = 4 + 1 + 16 + 8 + 4 + 4;
+    private static final long COMPACTION_INTERVAL_MINUTES = 10;
+
+    private final Map<UUID, RecordLocation> index = new ConcurrentHashMap<>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final ReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+    private final Path storeDir;
+    private final long segmentSizeBytes;
+    private final long ttlMillis;
+    private Segment activeSegment;
+    private ScheduledExecutorService compactionScheduler;
+
+    /**
+     * Constructor for the TerraformResultStore bean.
+     *
+     * @param storeLocation value of `failed.callback.response.store.location` property
+     * @param segmentSizeMb value of `terraform.result.store.segment.size.mb` property
+     * @param ttlHours value of `terraform.result.store.ttl.hours` property
+     */
+    public TerraformResultStore(
+            @Value("${failed.callback.response.store.location}") String storeLocation,
+            @Value("${terraform.result.store.segment.size.mb:64}") long segmentSizeMb,
+            @Value("${terraform.result.store.ttl.hours:168}") long ttlHours) {
+        this.storeDir = Paths.get(storeLocation, STORE_DIR_NAME).toAbsolutePath();
+        this.segmentSizeBytes = Math.max(1, segmentSizeMb) * 1024 * 1024;
+        this.ttlMillis = TimeUnit.HOURS.toMillis(ttlHours);
+    }
+
+    /** Rebuild the index from the segments and start the compaction. */
+    @PostConstruct
+    public void open() {
+        segmentsLock.writeLock().lock();
+        try {
+            createStoreDirectory();
+            loadSegments();
+            if (Objects.isNull(activeSegment) || activeSegment.size >= segmentSizeBytes) {
+                activeSegment = createSegment();
+            }
+            compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Opening result store " + storeDir + " failed.", e);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+        if (!index.isEmpty()) {
+            log.info("Loaded {} stored task results from {}.", index.size(), storeDir);
+        }
+        compactionScheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("result-store-compaction").daemon().factory());
+        compactionScheduler.scheduleWithFixedDelay(
+                this::runCompaction,
+                COMPACTION_INTERVAL_MINUTES,
+                COMPACTION_INTERVAL_MINUTES,
+                TimeUnit.MINUTES);
+    }
+
+    /** Stop the compaction and close the segments. */
+    @PreDestroy
+    public void close() {
+        if (Objects.nonNull(compactionScheduler)) {
+            compactionScheduler.shutdownNow();
+        }
+        segmentsLock.writeLock().lock();
+        try {
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+            segments.clear();
+            index.clear();
+            activeSegment = null;
+        } catch (IOException e) {
+            log.warn("Closing result store {} failed.", storeDir, e);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Store the serialized result of a task. A result stored before for the same request is
+     * replaced.
+     *
+     * @param requestId id of the request.
+     * @param data serialized result.
+     */
+    public void put(UUID requestId, byte[] data) {
+        segmentsLock.writeLock().lock();
+        try {
+            RecordLocation location =
+                    append(PUT_RECORD, requestId, System.currentTimeMillis(), data);
+            release(index.put(requestId, location));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Storing result " + requestId + " failed.", e);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Take the stored result of a task. The result is removed from the store when the reader
+     * returns, so it is returned only once, also if taken concurrently.
+     *
+     * @param requestId id of the request.
+     * @param reader function reading the serialized result.
+     * @return the value returned by the reader, or null if no result is stored for the request.
+     */
+    public <T> T take(UUID requestId, Function<byte[], T> reader) {
+        while (true) {
+            RecordLocation location = index.get(requestId);
+            if (Objects.isNull(location)) {
+                return null;
+            }
+            byte[] data = read(requestId, location);
+            T value = Objects.nonNull(data) ? reader.apply(data) : null;
+            segmentsLock.writeLock().lock();
+            try {
+                if (Objects.nonNull(data) && index.remove(requestId, location)) {
+                    release(location);
+                    append(TOMBSTONE_RECORD, requestId, System.currentTimeMillis(), new byte[0]);
+                    return value;
+                }
+                // taken by another request, or replaced or moved by a compaction in the meantime.
+            } catch (IOException e) {
+                throw new UncheckedIOException("Removing result " + requestId + " failed.", e);
+            } finally {
+                segmentsLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Check if a result is stored for a request.
+     *
+     * @param requestId id of the request.
+     * @return true if a result is stored.
+     */
+    public boolean contains(UUID requestId) {
+        return index.containsKey(requestId);
+    }
+
+    /** Drop the expired results and compact the segments, run periodically. */
+    void runCompaction() {
+        segmentsLock.writeLock().lock();
+        try {
+            compact();
+        } catch (IOException e) {
+            log.error("Compacting result store {} failed.", storeDir, e);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    private byte[] read(UUID requestId, RecordLocation location) {
+        segmentsLock.readLock().lock();
+        try {
+            Segment segment = segments.get(location.segmentId);
+            if (Objects.isNull(segment)) {
+                // moved by a compaction in the meantime.
+                return null;
+            }
+            MappedByteBuffer buffer =
+                    segment.channel.map(
+                            FileChannel.MapMode.READ_ONLY,
+                            location.offset + RECORD_HEADER_LENGTH,
+                            location.length);
+            byte[] data = new byte[location.length];
+            buffer.get(data);
+            if (checksum(data) != location.checksum) {
+                throw new IOException("Checksum mismatch of stored result " + requestId);
+            }
+            return data;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading result " + requestId + " failed.", e);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    private RecordLocation append(byte type, UUID requestId, long timestamp, byte[] data)
+            throws IOException {
+        if (activeSegment.size >= segmentSizeBytes) {
+            activeSegment = createSegment();
+        }
+        int checksum = checksum(data);
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+        header.putInt(RECORD_MAGIC)
+                .put(type)
+                .putLong(requestId.getMostSignificantBits())
+                .putLong(requestId.getLeastSignificantBits())
+                .putLong(timestamp)
+                .putInt(data.length)
+                .putInt(checksum)
+                .flip();
+        long offset = activeSegment.size;
+        ByteBuffer[] buffers = {header, ByteBuffer.wrap(data)};
+        long written = 0;
+        while (written < RECORD_HEADER_LENGTH + data.length) {
+            written += activeSegment.channel.write(buffers);
+        }
+        activeSegment.channel.force(false);
+        activeSegment.size += written;
+        if (type == TOMBSTONE_RECORD) {
+            return null;
+        }
+        activeSegment.liveBytes += written;
+        return new RecordLocation(activeSegment.id, offset, data.length, checksum, timestamp);
+    }
+
+    /** Account a record which is not live any more to its segment. */
+    private void release(RecordLocation location) {
+        if (Objects.isNull(location)) {
+            return;
+        }
+        Segment segment = segments.get(location.segmentId);
+        if (Objects.nonNull(segment)) {
+            segment.liveBytes -= RECORD_HEADER_LENGTH + location.length;
+        }
+    }
+
+    /**
+     * Drop the expired results, then rewrite the live results of the oldest segments into the
+     * active segment while at most half of them is live.
+     */
+    private void compact() throws IOException {
+        if (ttlMillis > 0) {
+            long expiry = System.currentTimeMillis() - ttlMillis;
+            index.entrySet()
+                    .removeIf(
+                            entry -> {
+                                if (entry.getValue().timestamp >= expiry) {
+                                    return false;
+                                }
+                                log.info("Stored result {} expired.", entry.getKey());
+                                release(entry.getValue());
+                                return true;
+                            });
+        }
+        while (segments.size() > 1) {
+            Segment oldestSegment = segments.firstEntry().getValue();
+            if (oldestSegment == activeSegment
+                    || oldestSegment.liveBytes * 2 > oldestSegment.size) {
+                return;
+            }
+            for (Map.Entry<UUID, RecordLocation> entry : index.entrySet()) {
+                RecordLocation location = entry.getValue();
+                if (location.segmentId == oldestSegment.id) {
+                    byte[] data = read(entry.getKey(), location);
+                    entry.setValue(append(PUT_RECORD, entry.getKey(), location.timestamp, data));
+                }
+            }
+            segments.remove(oldestSegment.id);
+            oldestSegment.channel.close();
+            Files.deleteIfExists(oldestSegment.file);
+            log.debug("Compacted result store segment {}.", oldestSegment.file);
+        }
+    }
+
+    /** Replay the records of all segments in order to rebuild the index. */
+    private void loadSegments() throws IOException {
+        List<Path> segmentFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files =
+                Files.newDirectoryStream(
+                        storeDir, SEGMENT_FILE_PREFIX + "*" + SEGMENT_FILE_SUFFIX)) {
+            files.forEach(segmentFiles::add);
+        }
+        segmentFiles.sort(null);
+        for (Path file : segmentFiles) {
+            Segment segment = openSegment(file);
+            segments.put(segment.id, segment);
+            activeSegment = segment;
+            loadRecords(segment);
+        }
+    }
+
+    private void loadRecords(Segment segment) throws IOException {
+        long fileSize = segment.channel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+        while (offset + RECORD_HEADER_LENGTH <= fileSize) {
+            header.clear();
+            segment.channel.read(header, offset);
+            header.flip();
+            int length = header.getInt(RECORD_HEADER_LENGTH - 8);
+            if (header.getInt(0) != RECORD_MAGIC
+                    || length < 0
+                    || offset + RECORD_HEADER_LENGTH + length > fileSize) {
+                break;
+            }
+            byte type = header.get(4);
+            UUID requestId = new UUID(header.getLong(5), header.getLong(13));
+            long timestamp = header.getLong(21);
+            if (type == PUT_RECORD) {
+                RecordLocation location =
+                        new RecordLocation(
+                                segment.id,
+                                offset,
+                                length,
+                                header.getInt(RECORD_HEADER_LENGTH - 4),
+                                timestamp);
+                segment.liveBytes += RECORD_HEADER_LENGTH + length;
+                release(index.put(requestId, location));
+            } else {
+                release(index.remove(requestId));
+            }
+            offset += RECORD_HEADER_LENGTH + length;
+        }
+        if (offset < fileSize) {
+            // a record was written partially when the application stopped.
+            log.warn(
+                    "Truncate result store segment {} to {} of {} bytes.",
+                    segment.file,
+                    offset,
+                    fileSize);
+            segment.channel.truncate(offset);
+        }
+        segment.size = offset;
+        segment.channel.position(offset);
+    }
+
+    private Segment createSegment() throws IOException {
+        long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Segment segment =
+                openSegment(
+                        storeDir.resolve(
+                                String.format(
+                                        "%s%020d%s",
+                                        SEGMENT_FILE_PREFIX, id, SEGMENT_FILE_SUFFIX)));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private Segment openSegment(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        long id =
+                Long.parseLong(
+                        fileName.substring(
+                                SEGMENT_FILE_PREFIX.length(),
+                                fileName.length() - SEGMENT_FILE_SUFFIX.length()));
+        FileChannel channel =
+                FileChannel.open(
+                        file,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+        return new Segment(id, file, channel);
+    }
+
+    private void createStoreDirectory() throws IOException {
+        if (Files.isDirectory(storeDir)) {
+            return;
+        }
+        // the results contain the terraform states, hence only the owner may read them.
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(
+                    storeDir,
+                    PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(storeDir);
+        }
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(data);
+        return (int) crc32.getValue();
+    }
+
+    /** Position of a stored result. */
+    private record RecordLocation(
+            long segmentId, long offset, int length, int checksum, long timestamp) {}
+
+    /** Segment file of the store. */
+    private static class Segment {
+
+        private final long id;
+        private final Path file;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+
+        Segment(long id, Path file, FileChannel channel) {
+            this.id = id;
+            this.file = file;
+            this.channel = channel;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.TerraformExecutorException;
 import org.eclipse.xpanse.terraform.boot.models.request.git.TerraformScriptGitRepoDetails;
+import org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformPluginCacheManager;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
@@ -35,6 +36,7 @@ public class TerraformScriptsHelper {
 
     public static final String TF_SCRIPT_FILE_EXTENSION = ".tf";
     private static final String TF_STATE_FILE_NAME = "terraform.tfstate";
+    private static final String TF_STATE_LOCK_INFO_FILE_NAME = ".terraform.tfstate.lock.info";
     private static final List<String> EXCLUDED_FILE_SUFFIX_LIST =
             Arrays.asList(".tf", ".tfstate", ".binary", ".hcl");
 
@@ -45,6 +47,7 @@ public class TerraformScriptsHelper {
     private Boolean cleanWorkspaceAfterDeployment;
 
     @Resource private ScriptsGitRepoManage scriptsGitRepoManage;
+    @Resource private TerraformPluginCacheManager pluginCacheManager;
 
     /**
      * Create workspace for the Terraform deployment task.
@@ -247,6 +250,7 @@ public class TerraformScriptsHelper {
      */
     public void deleteTaskWorkspace(String taskWorkspace) {
         if (cleanWorkspaceAfterDeployment) {
+            pluginCacheManager.releaseProviders(taskWorkspace);
             Path path = Paths.get(taskWorkspace).toAbsolutePath().normalize();
             try (Stream<Path> pathStream = Files.walk(path)) {
                 pathStream
@@ -266,6 +270,21 @@ public class TerraformScriptsHelper {
         }
     }
 
+    /**
+     * Delete the lock of the terraform state left behind by a terraform process which was killed.
+     *
+     * @param taskWorkspace workspace path for the Terraform deployment task.
+     */
+    public void deleteStaleStateLock(String taskWorkspace) {
+        try {
+            if (Files.deleteIfExists(Paths.get(taskWorkspace, TF_STATE_LOCK_INFO_FILE_NAME))) {
+                log.info("Deleted stale terraform state lock in workspace {}.", taskWorkspace);
+            }
+        } catch (IOException e) {
+            log.error("Delete terraform state lock in workspace:{} error", taskWorkspace, e);
+        }
+    }
+
     private boolean isExcludedFile(String fileName) {
         if (StringUtils.isNotBlank(fileName) && fileName.contains(".")) {
             String fileSuffix = fileName.substring(fileName.lastIndexOf("."));
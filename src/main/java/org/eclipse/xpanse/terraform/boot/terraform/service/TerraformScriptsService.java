@@ -11,7 +11,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
-import org.eclipse.xpanse.terraform.boot.async.TaskConfiguration;
+import org.eclipse.xpanse.terraform.boot.async.JournaledTask;
+import org.eclipse.xpanse.terraform.boot.async.TerraformTaskScheduler;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
 import org.eclipse.xpanse.terraform.boot.models.plan.TerraformPlan;
 import org.eclipse.xpanse.terraform.boot.models.plan.TerraformPlanWithScriptsRequest;
 import org.eclipse.xpanse.terraform.boot.models.request.scripts.TerraformAsyncDeployFromScriptsRequest;
@@ -22,20 +24,17 @@ import org.eclipse.xpanse.terraform.boot.models.request.scripts.TerraformDestroy
 import org.eclipse.xpanse.terraform.boot.models.request.scripts.TerraformModifyWithScriptsRequest;
 import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
 import org.eclipse.xpanse.terraform.boot.models.validation.TerraformValidationResult;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
 /** Terraform service classes are deployed form Scripts. */
 @Slf4j
 @Service
 public class TerraformScriptsService {
 
-    @Resource private RestTemplate restTemplate;
     @Resource private TerraformScriptsHelper scriptsHelper;
     @Resource private TerraformDirectoryService directoryService;
-    @Resource private TerraformResultPersistenceManage terraformResultPersistenceManage;
+    @Resource private TerraformResultDeliveryManage terraformResultDeliveryManage;
+    @Resource private TerraformTaskScheduler taskScheduler;
 
     /** /** Method of deployment a service using a script. */
     public TerraformValidationResult validateWithScripts(
@@ -85,80 +84,111 @@ public class TerraformScriptsService {
     }
 
     /** Async deploy a source by terraform. */
-    @Async(TaskConfiguration.TASK_EXECUTOR_NAME)
     public void asyncDeployWithScripts(
             TerraformAsyncDeployFromScriptsRequest asyncDeployRequest, UUID uuid) {
-        TerraformResult result;
-        try {
-            result = deployWithScripts(asyncDeployRequest, uuid);
-        } catch (RuntimeException e) {
-            result =
-                    TerraformResult.builder()
-                            .commandStdOutput(null)
-                            .commandStdError(e.getMessage())
-                            .isCommandSuccessful(false)
-                            .terraformState(null)
-                            .generatedFileContentMap(new HashMap<>())
-                            .build();
-        }
-        result.setRequestId(asyncDeployRequest.getRequestId());
-        String url = asyncDeployRequest.getWebhookConfig().getUrl();
-        log.info("Deployment service complete, callback POST url:{}, requestBody:{}", url, result);
-        sendTerraformResult(url, result);
+        taskScheduler.submit(
+                JournaledTask.queued(
+                        asyncDeployRequest.getRequestId(),
+                        JournaledTask.TaskSource.SCRIPTS,
+                        JournaledTask.TaskAction.DEPLOY,
+                        TaskOperationType.ofDeployment(asyncDeployRequest.getIsPlanOnly()),
+                        asyncDeployRequest,
+                        null),
+                () -> {
+                    TerraformResult result;
+                    try {
+                        result = deployWithScripts(asyncDeployRequest, uuid);
+                    } catch (RuntimeException e) {
+                        result =
+                                TerraformResult.builder()
+                                        .commandStdOutput(null)
+                                        .commandStdError(e.getMessage())
+                                        .isCommandSuccessful(false)
+                                        .terraformState(null)
+                                        .generatedFileContentMap(new HashMap<>())
+                                        .build();
+                    }
+                    result.setRequestId(asyncDeployRequest.getRequestId());
+                    String url = asyncDeployRequest.getWebhookConfig().getUrl();
+                    log.info(
+                            "Deployment service complete, callback POST url:{}, requestBody:{}",
+                            url,
+                            result);
+                    sendTerraformResult(url, result);
+                });
     }
 
     /** Async modify a source by terraform. */
-    @Async(TaskConfiguration.TASK_EXECUTOR_NAME)
     public void asyncModifyWithScripts(
             TerraformAsyncModifyFromScriptsRequest asyncModifyRequest, UUID uuid) {
-        TerraformResult result;
-        try {
-            result = modifyWithScripts(asyncModifyRequest, uuid);
-        } catch (RuntimeException e) {
-            result =
-                    TerraformResult.builder()
-                            .commandStdOutput(null)
-                            .commandStdError(e.getMessage())
-                            .isCommandSuccessful(false)
-                            .terraformState(null)
-                            .generatedFileContentMap(new HashMap<>())
-                            .build();
-        }
-        result.setRequestId(asyncModifyRequest.getRequestId());
-        String url = asyncModifyRequest.getWebhookConfig().getUrl();
-        log.info("Modify service complete, callback POST url:{}, requestBody:{}", url, result);
-        sendTerraformResult(url, result);
+        taskScheduler.submit(
+                JournaledTask.queued(
+                        asyncModifyRequest.getRequestId(),
+                        JournaledTask.TaskSource.SCRIPTS,
+                        JournaledTask.TaskAction.MODIFY,
+                        TaskOperationType.ofDeployment(asyncModifyRequest.getIsPlanOnly()),
+                        asyncModifyRequest,
+                        null),
+                () -> {
+                    TerraformResult result;
+                    try {
+                        result = modifyWithScripts(asyncModifyRequest, uuid);
+                    } catch (RuntimeException e) {
+                        result =
+                                TerraformResult.builder()
+                                        .commandStdOutput(null)
+                                        .commandStdError(e.getMessage())
+                                        .isCommandSuccessful(false)
+                                        .terraformState(null)
+                                        .generatedFileContentMap(new HashMap<>())
+                                        .build();
+                    }
+                    result.setRequestId(asyncModifyRequest.getRequestId());
+                    String url = asyncModifyRequest.getWebhookConfig().getUrl();
+                    log.info(
+                            "Modify service complete, callback POST url:{}, requestBody:{}",
+                            url,
+                            result);
+                    sendTerraformResult(url, result);
+                });
     }
 
     /** Async destroy resource of the service. */
-    @Async(TaskConfiguration.TASK_EXECUTOR_NAME)
     public void asyncDestroyWithScripts(
             TerraformAsyncDestroyFromScriptsRequest request, UUID uuid) {
-        TerraformResult result;
-        try {
-            result = destroyWithScripts(request, uuid);
-        } catch (RuntimeException e) {
-            result =
-                    TerraformResult.builder()
-                            .commandStdOutput(null)
-                            .commandStdError(e.getMessage())
-                            .isCommandSuccessful(false)
-                            .terraformState(null)
-                            .generatedFileContentMap(new HashMap<>())
-                            .build();
-        }
-        result.setRequestId(request.getRequestId());
-        String url = request.getWebhookConfig().getUrl();
-        log.info("Destroy service complete, callback POST url:{}, requestBody:{}", url, result);
-        sendTerraformResult(url, result);
+        taskScheduler.submit(
+                JournaledTask.queued(
+                        request.getRequestId(),
+                        JournaledTask.TaskSource.SCRIPTS,
+                        JournaledTask.TaskAction.DESTROY,
+                        TaskOperationType.DESTROY,
+                        request,
+                        null),
+                () -> {
+                    TerraformResult result;
+                    try {
+                        result = destroyWithScripts(request, uuid);
+                    } catch (RuntimeException e) {
+                        result =
+                                TerraformResult.builder()
+                                        .commandStdOutput(null)
+                                        .commandStdError(e.getMessage())
+                                        .isCommandSuccessful(false)
+                                        .terraformState(null)
+                                        .generatedFileContentMap(new HashMap<>())
+                                        .build();
+                    }
+                    result.setRequestId(request.getRequestId());
+                    String url = request.getWebhookConfig().getUrl();
+                    log.info(
+                            "Destroy service complete, callback POST url:{}, requestBody:{}",
+                            url,
+                            result);
+                    sendTerraformResult(url, result);
+                });
     }
 
     private void sendTerraformResult(String url, TerraformResult result) {
-        try {
-            restTemplate.postForLocation(url, result);
-        } catch (RestClientException e) {
-            log.error("error while sending terraform result", e);
-            terraformResultPersistenceManage.persistTerraformResult(result);
-        }
+        terraformResultDeliveryManage.deliver(url, result);
     }
 }
@@ -0,0 +1,218 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.service;
+
+import static org.eclipse.xpanse.terraform.boot.logging.CustomRequestIdGenerator.REQUEST_ID;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Resource;
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.xpanse.terraform.boot.async.JournaledTask;
+import org.eclipse.xpanse.terraform.boot.async.TerraformTaskJournal;
+import org.eclipse.xpanse.terraform.boot.models.request.directory.TerraformAsyncDeployFromDirectoryRequest;
+import org.eclipse.xpanse.terraform.boot.models.request.directory.TerraformAsyncDestroyFromDirectoryRequest;
+import org.eclipse.xpanse.terraform.boot.models.request.directory.TerraformAsyncModifyFromDirectoryRequest;
+import org.eclipse.xpanse.terraform.boot.models.request.git.TerraformAsyncDeployFromGitRepoRequest;
+import org.eclipse.xpanse.terraform.boot.models.request.git.TerraformAsyncDestroyFromGitRepoRequest;
+import org.eclipse.xpanse.terraform.boot.models.request.git.TerraformAsyncModifyFromGitRepoRequest;
+import org.eclipse.xpanse.terraform.boot.models.request.scripts.TerraformAsyncDeployFromScriptsRequest;
+import org.eclipse.xpanse.terraform.boot.models.request.scripts.TerraformAsyncDestroyFromScriptsRequest;
+import org.eclipse.xpanse.terraform.boot.models.request.scripts.TerraformAsyncModifyFromScriptsRequest;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskExecutionRegistry;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bean to reconcile the async tasks left unfinished by the previous run of the application. Queued
+ * tasks are submitted again. Tasks which were running are marked as failed: their surviving
+ * processes are interrupted and given the grace period to save the state, the callback is delivered
+ * with the partial state and the workspace is cleaned up. Only workspaces of tasks known to the
+ * journal are touched, and a workspace is kept as long as its state is neither in the webhook
+ * outbox nor in the result store.
+ */
+@Slf4j
+@Component
+public class TerraformTaskRecoveryManage implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final String INTERRUPTED_TASK_ERROR =
+            "The task was interrupted by a restart of terraform-boot.";
+
+    @Resource private TerraformTaskJournal taskJournal;
+    @Resource private TerraformScriptsHelper scriptsHelper;
+    @Resource private TerraformScriptsService scriptsService;
+    @Resource private TerraformGitRepoService gitRepoService;
+    @Resource private TerraformDirectoryService directoryService;
+    @Resource private TerraformResultDeliveryManage terraformResultDeliveryManage;
+
+    @Value("${terraform.task.stop.grace.period.seconds:30}")
+    private long gracePeriodSeconds;
+
+    @Override
+    public void onApplicationEvent(@Nonnull ApplicationReadyEvent event) {
+        for (JournaledTask task : taskJournal.getRecoveredTasks()) {
+            MDC.put(REQUEST_ID, task.getRequestId().toString());
+            try {
+                if (task.getPhase() == JournaledTask.TaskPhase.QUEUED) {
+                    resubmitTask(task);
+                } else {
+                    failInterruptedTask(task, INTERRUPTED_TASK_ERROR);
+                }
+            } catch (RuntimeException e) {
+                log.error("Recovering task {} failed.", task.getRequestId(), e);
+                failInterruptedTask(task, e.getMessage());
+            } finally {
+                MDC.remove(REQUEST_ID);
+            }
+        }
+    }
+
+    private void resubmitTask(JournaledTask task) {
+        log.info("Resubmit queued {} task {}.", task.getAction(), task.getRequestId());
+        UUID requestId = task.getRequestId();
+        String moduleDirectory = task.getModuleDirectory();
+        switch (task.getSource()) {
+            case SCRIPTS -> {
+                switch (task.getAction()) {
+                    case DEPLOY ->
+                            scriptsService.asyncDeployWithScripts(
+                                    task.getRequestAs(TerraformAsyncDeployFromScriptsRequest.class),
+                                    requestId);
+                    case MODIFY ->
+                            scriptsService.asyncModifyWithScripts(
+                                    task.getRequestAs(TerraformAsyncModifyFromScriptsRequest.class),
+                                    requestId);
+                    default ->
+                            scriptsService.asyncDestroyWithScripts(
+                                    task.getRequestAs(
+                                            TerraformAsyncDestroyFromScriptsRequest.class),
+                                    requestId);
+                }
+            }
+            case GIT_REPO -> {
+                switch (task.getAction()) {
+                    case DEPLOY ->
+                            gitRepoService.asyncDeployFromGitRepo(
+                                    task.getRequestAs(TerraformAsyncDeployFromGitRepoRequest.class),
+                                    requestId);
+                    case MODIFY ->
+                            gitRepoService.asyncModifyFromGitRepo(
+                                    task.getRequestAs(TerraformAsyncModifyFromGitRepoRequest.class),
+                                    requestId);
+                    default ->
+                            gitRepoService.asyncDestroyFromGitRepo(
+                                    task.getRequestAs(
+                                            TerraformAsyncDestroyFromGitRepoRequest.class),
+                                    requestId);
+                }
+            }
+            default -> {
+                List<File> scriptFiles =
+                        scriptsHelper.getDeploymentFilesFromTaskWorkspace(moduleDirectory);
+                switch (task.getAction()) {
+                    case DEPLOY ->
+                            directoryService.asyncDeployWithScripts(
+                                    task.getRequestAs(
+                                            TerraformAsyncDeployFromDirectoryRequest.class),
+                                    moduleDirectory,
+                                    scriptFiles);
+                    case MODIFY ->
+                            directoryService.asyncModifyWithScripts(
+                                    task.getRequestAs(
+                                            TerraformAsyncModifyFromDirectoryRequest.class),
+                                    moduleDirectory,
+                                    scriptFiles);
+                    default ->
+                            directoryService.asyncDestroyWithScripts(
+                                    task.getRequestAs(
+                                            TerraformAsyncDestroyFromDirectoryRequest.class),
+                                    moduleDirectory,
+                                    scriptFiles);
+                }
+            }
+        }
+    }
+
+    private void failInterruptedTask(JournaledTask task, String errorMessage) {
+        log.warn("Mark interrupted {} task {} as failed.", task.getAction(), task.getRequestId());
+        stopSurvivingProcess(task);
+        TerraformResult result =
+                TerraformResult.builder()
+                        .requestId(task.getRequestId())
+                        .isCommandSuccessful(false)
+                        .commandStdError(errorMessage)
+                        .terraformState(
+                                Objects.nonNull(task.getWorkspace())
+                                        ? scriptsHelper.getTerraformState(task.getWorkspace())
+                                        : null)
+                        .generatedFileContentMap(new HashMap<>())
+                        .build();
+        boolean resultSaved =
+                terraformResultDeliveryManage.deliver(
+                        task.getRequest().path("webhookConfig").path("url").asText(null), result);
+        if (!resultSaved) {
+            // the task stays in the journal, it is failed again with the kept state next time.
+            log.error(
+                    "Result of interrupted task {} is not saved, kept its workspace.",
+                    task.getRequestId());
+            return;
+        }
+        if (task.getSource() == JournaledTask.TaskSource.DIRECTORY) {
+            if (Objects.nonNull(task.getWorkspace())) {
+                scriptsHelper.deleteStaleStateLock(task.getWorkspace());
+            }
+        } else {
+            File taskWorkspace =
+                    new File(scriptsHelper.buildTaskWorkspace(task.getRequestId().toString()));
+            scriptsHelper.deleteStaleStateLock(
+                    Objects.nonNull(task.getWorkspace())
+                            ? task.getWorkspace()
+                            : taskWorkspace.getAbsolutePath());
+            scriptsHelper.deleteTaskWorkspace(taskWorkspace.getAbsolutePath());
+        }
+        taskJournal.recordCompleted(task.getRequestId());
+    }
+
+    /**
+     * Stop the terraform process of the task and its children if they survived the restart. The
+     * process gets SIGINT first, so terraform can save the state and release the state lock, and
+     * the state is read only after it has exited.
+     */
+    private void stopSurvivingProcess(JournaledTask task) {
+        Long pid = task.getPid();
+        if (Objects.isNull(pid)) {
+            return;
+        }
+        ProcessHandle.of(pid)
+                .filter(ProcessHandle::isAlive)
+                .filter(process -> isProcessOfTask(process, task.getProcessStartTime()))
+                .ifPresent(
+                        process -> {
+                            log.warn("Stop terraform process {} of the interrupted task.", pid);
+                            TaskExecutionRegistry.terminateProcessTree(process, gracePeriodSeconds)
+                                    .join();
+                        });
+    }
+
+    /** The pid may be reused by another process, only the process with the same start is used. */
+    private boolean isProcessOfTask(ProcessHandle process, Long processStartTime) {
+        ProcessHandle.Info info = process.info();
+        if (Objects.nonNull(processStartTime)) {
+            return info.startInstant()
+                    .map(startInstant -> startInstant.toEpochMilli() == processStartTime)
+                    .orElse(false);
+        }
+        return info.command().map(command -> command.contains("terraform")).orElse(false);
+    }
+}
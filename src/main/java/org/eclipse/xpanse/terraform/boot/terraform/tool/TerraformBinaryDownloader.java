@@ -0,0 +1,242 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bean to download the terraform binary zip file and extract the executor in a single pass. The
+ * downloaded bytes are hashed and decompressed while they are received, and are kept on disk only
+ * to resume the download with an HTTP range request after a failure.
+ */
+@Slf4j
+@Component
+public class TerraformBinaryDownloader {
+
+    private static final String CHECKSUMS_FILE_NAME_FORMAT = "terraform_%s_SHA256SUMS";
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416;
+
+    @Value("${terraform.download.chunk.size.bytes:65536}")
+    private int chunkSizeInBytes;
+
+    @Value("${terraform.download.timeout.millis:30000}")
+    private int timeoutInMillis;
+
+    @Value("${terraform.download.max.resume.attempts:3}")
+    private int maxResumeAttempts;
+
+    @Value("${terraform.download.checksum.verification.enabled:true}")
+    private boolean checksumVerificationEnabled;
+
+    /**
+     * Download the binary zip file and extract the terraform executor from it.
+     *
+     * @param binaryDownloadUrl download url of the binary zip file
+     * @param versionNumber version number of terraform
+     * @param downloadDir directory to keep the partially downloaded zip file
+     * @param executorFile file to extract the executor to
+     * @throws IOException if the download, the checksum verification or the extraction failed.
+     */
+    public void downloadAndExtractExecutor(
+            String binaryDownloadUrl, String versionNumber, File downloadDir, File executorFile)
+            throws IOException {
+        String zipFileName = binaryDownloadUrl.substring(binaryDownloadUrl.lastIndexOf("/") + 1);
+        String expectedChecksum =
+                checksumVerificationEnabled
+                        ? getExpectedChecksum(binaryDownloadUrl, versionNumber, zipFileName)
+                        : null;
+        File partialZipFile = new File(downloadDir, zipFileName);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                downloadAndExtractInOnePass(
+                        binaryDownloadUrl, partialZipFile, executorFile, expectedChecksum);
+                log.info(
+                        "Downloaded terraform binary file from {} and extracted the executor {}.",
+                        binaryDownloadUrl,
+                        executorFile.getAbsolutePath());
+                return;
+            } catch (IOException e) {
+                if (attempt >= maxResumeAttempts) {
+                    throw e;
+                }
+                log.warn(
+                        "Downloading terraform binary file from {} failed after {} bytes, "
+                                + "resume the download. Error: {}",
+                        binaryDownloadUrl,
+                        partialZipFile.length(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    private void downloadAndExtractInOnePass(
+            String binaryDownloadUrl,
+            File partialZipFile,
+            File executorFile,
+            String expectedChecksum)
+            throws IOException {
+        long downloadedBytes = partialZipFile.length();
+        HttpURLConnection connection = openConnection(binaryDownloadUrl);
+        if (downloadedBytes > 0) {
+            connection.setRequestProperty("Range", "bytes=" + downloadedBytes + "-");
+        }
+        int responseCode = connection.getResponseCode();
+        if (responseCode == HttpURLConnection.HTTP_OK) {
+            // the server does not support ranges, download the whole file again.
+            downloadedBytes = 0;
+        } else if (responseCode != HttpURLConnection.HTTP_PARTIAL) {
+            connection.disconnect();
+            if (responseCode == HTTP_RANGE_NOT_SATISFIABLE) {
+                Files.deleteIfExists(partialZipFile.toPath());
+            }
+            throw new IOException(
+                    String.format(
+                            "Downloading %s failed with response code %d.",
+                            binaryDownloadUrl, responseCode));
+        }
+        log.info(
+                "Downloading terraform binary file from {} starting at byte {}.",
+                binaryDownloadUrl,
+                downloadedBytes);
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        // the bytes downloaded before are read from disk, the new bytes are stored while read.
+        try (InputStream downloadedInput =
+                        downloadedBytes > 0
+                                ? new FileInputStream(partialZipFile)
+                                : InputStream.nullInputStream();
+                OutputStream partialZipOutput =
+                        new FileOutputStream(partialZipFile, downloadedBytes > 0);
+                InputStream input =
+                        new BufferedInputStream(
+                                new DigestInputStream(
+                                        new SequenceInputStream(
+                                                downloadedInput,
+                                                new TeeInputStream(
+                                                        connection.getInputStream(),
+                                                        partialZipOutput)),
+                                        digest),
+                                chunkSizeInBytes)) {
+            extractExecutor(input, executorFile);
+            // read the rest of the zip file to complete the checksum.
+            input.transferTo(OutputStream.nullOutputStream());
+        } finally {
+            connection.disconnect();
+        }
+        String actualChecksum = Hex.encodeHexString(digest.digest());
+        if (expectedChecksum != null && !expectedChecksum.equalsIgnoreCase(actualChecksum)) {
+            Files.deleteIfExists(partialZipFile.toPath());
+            throw new IOException(
+                    String.format(
+                            "Checksum of %s is %s, but %s is expected.",
+                            binaryDownloadUrl, actualChecksum, expectedChecksum));
+        }
+        Files.deleteIfExists(partialZipFile.toPath());
+    }
+
+    private void extractExecutor(InputStream input, File executorFile) throws IOException {
+        ZipInputStream zis = new ZipInputStream(input);
+        ZipEntry entry;
+        boolean executorExtracted = false;
+        while ((entry = zis.getNextEntry()) != null) {
+            if (!entry.isDirectory() && entry.getName().startsWith("terraform")) {
+                try (OutputStream executorOutput = new FileOutputStream(executorFile)) {
+                    byte[] chunk = new byte[chunkSizeInBytes];
+                    int read;
+                    while ((read = zis.read(chunk)) != -1) {
+                        executorOutput.write(chunk, 0, read);
+                    }
+                }
+                executorExtracted = true;
+            }
+        }
+        if (!executorExtracted) {
+            throw new IOException("No terraform executor found in the binary zip file.");
+        }
+    }
+
+    private String getExpectedChecksum(
+            String binaryDownloadUrl, String versionNumber, String zipFileName) throws IOException {
+        String checksumsUrl =
+                binaryDownloadUrl.substring(0, binaryDownloadUrl.lastIndexOf("/") + 1)
+                        + String.format(CHECKSUMS_FILE_NAME_FORMAT, versionNumber);
+        HttpURLConnection connection = openConnection(checksumsUrl);
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(
+                                connection.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] checksumAndFileName = line.trim().split("\\s+");
+                if (checksumAndFileName.length == 2 && checksumAndFileName[1].equals(zipFileName)) {
+                    return checksumAndFileName[0];
+                }
+            }
+        } finally {
+            connection.disconnect();
+        }
+        throw new IOException(
+                String.format("No checksum of %s found in %s.", zipFileName, checksumsUrl));
+    }
+
+    private HttpURLConnection openConnection(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        connection.setConnectTimeout(timeoutInMillis);
+        connection.setReadTimeout(timeoutInMillis);
+        return connection;
+    }
+
+    /** Input stream which writes all bytes read from the source to the output. */
+    private static class TeeInputStream extends FilterInputStream {
+
+        private final OutputStream output;
+
+        TeeInputStream(InputStream source, OutputStream output) {
+            super(source);
+            this.output = output;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read != -1) {
+                output.write(read);
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                output.write(bytes, offset, read);
+            }
+            return read;
+        }
+    }
+}
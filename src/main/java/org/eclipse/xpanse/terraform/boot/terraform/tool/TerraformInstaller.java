@@ -5,9 +5,19 @@
 
 package org.eclipse.xpanse.terraform.boot.terraform.tool;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
 import java.io.File;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.InvalidTerraformToolException;
@@ -16,17 +26,26 @@ import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Component;
 
-/** Bean help to install terraform with specific version. */
+/**
+ * Bean help to install terraform with specific version. Concurrent requests for the same version
+ * share one installation.
+ */
 @Slf4j
 @Component
 public class TerraformInstaller {
 
+    private static final String INSTALLATION_TIMER_NAME = "terraform.installation";
+
     @Value("${terraform.download.base.url:https://releases.hashicorp.com/terraform}")
     private String terraformDownloadBaseUrl;
 
     @Value("${terraform.install.dir:/opt/terraform}")
     private String terraformInstallDir;
 
+    private final Map<String, CompletableFuture<String>> installationsInProgress =
+            new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requestedVersionsCount = new ConcurrentHashMap<>();
+
     @Resource private TerraformVersionsCache versionsCache;
     @Resource private TerraformVersionsHelper versionHelper;
 
@@ -47,6 +66,46 @@ public class TerraformInstaller {
             log.info("No required version of terraform is specified, use the default terraform.");
             return "terraform";
         }
+        this.requestedVersionsCount
+                .computeIfAbsent(requiredVersion.replaceAll("\\s+", ""), v -> new LongAdder())
+                .increment();
+        return findOrInstallExecutorMatchesRequiredVersion(requiredVersion);
+    }
+
+    /**
+     * Install the Terraform tool with the required version in advance, if no matching executable
+     * binary is installed yet. The required version is not counted as requested.
+     *
+     * @param requiredVersion The required version of Terraform tool.
+     * @return The path of the executable binary.
+     */
+    @Retryable(
+            retryFor = InvalidTerraformToolException.class,
+            maxAttemptsExpression = "${spring.retry.max-attempts}",
+            backoff = @Backoff(delayExpression = "${spring.retry.delay-millions}"))
+    public String preInstallExecutorMatchesRequiredVersion(String requiredVersion) {
+        return findOrInstallExecutorMatchesRequiredVersion(requiredVersion);
+    }
+
+    /**
+     * Get the required versions requested most often since the start of the service.
+     *
+     * @param limit maximum number of required versions to return.
+     * @return list of required versions, the most requested first.
+     */
+    public List<String> getMostRequestedVersions(int limit) {
+        return this.requestedVersionsCount.entrySet().stream()
+                .sorted(
+                        Comparator.comparingLong(
+                                        (Map.Entry<String, LongAdder> entry) ->
+                                                entry.getValue().sum())
+                                .reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private String findOrInstallExecutorMatchesRequiredVersion(String requiredVersion) {
         String[] operatorAndNumber =
                 this.versionHelper.getOperatorAndNumberFromRequiredVersion(requiredVersion);
         String requiredOperator = operatorAndNumber[0];
@@ -70,19 +129,70 @@ public class TerraformInstaller {
             String requiredOperator, String requiredNumber) {
         String bestVersionNumber =
                 getBestAvailableVersionMatchingRequiredVersion(requiredOperator, requiredNumber);
-        File installedExecutorFile =
-                this.versionHelper.installTerraformWithVersion(
-                        bestVersionNumber, this.terraformDownloadBaseUrl, this.terraformInstallDir);
-        if (this.versionHelper.checkIfExecutorCanBeExecuted(installedExecutorFile)) {
-            log.info("Terraform with version {}  installed successfully.", installedExecutorFile);
-            return installedExecutorFile.getAbsolutePath();
+        CompletableFuture<String> installation = new CompletableFuture<>();
+        CompletableFuture<String> runningInstallation =
+                this.installationsInProgress.putIfAbsent(bestVersionNumber, installation);
+        if (Objects.nonNull(runningInstallation)) {
+            log.info(
+                    "Terraform with version {} is being installed, wait for the installation.",
+                    bestVersionNumber);
+            return waitForInstallation(runningInstallation);
+        }
+        try {
+            installation.complete(installTerraformWithVersion(bestVersionNumber));
+        } catch (RuntimeException e) {
+            installation.completeExceptionally(e);
+        } finally {
+            this.installationsInProgress.remove(bestVersionNumber, installation);
+        }
+        return waitForInstallation(installation);
+    }
+
+    private String installTerraformWithVersion(String versionNumber) {
+        // the version may have been installed by a call which has just finished.
+        String installedExecutorPath =
+                this.versionHelper.getExecutorPathMatchedRequiredVersion(
+                        this.terraformInstallDir, "=", versionNumber);
+        if (StringUtils.isNotBlank(installedExecutorPath)) {
+            return installedExecutorPath;
+        }
+        Timer.Sample installationSample = Timer.start();
+        String outcome = "failure";
+        try {
+            File installedExecutorFile =
+                    this.versionHelper.installTerraformWithVersion(
+                            versionNumber, this.terraformDownloadBaseUrl, this.terraformInstallDir);
+            if (this.versionHelper.checkIfExecutorCanBeExecuted(installedExecutorFile)) {
+                log.info(
+                        "Terraform with version {}  installed successfully.",
+                        installedExecutorFile);
+                outcome = "success";
+                return installedExecutorFile.getAbsolutePath();
+            }
+            String errorMsg =
+                    String.format(
+                            "Installing terraform with version %s into the dir %s " + "failed. ",
+                            versionNumber, this.terraformInstallDir);
+            log.error(errorMsg);
+            throw new InvalidTerraformToolException(errorMsg);
+        } finally {
+            installationSample.stop(
+                    Timer.builder(INSTALLATION_TIMER_NAME)
+                            .tag("version", versionNumber)
+                            .tag("outcome", outcome)
+                            .register(Metrics.globalRegistry));
+        }
+    }
+
+    private String waitForInstallation(CompletableFuture<String> installation) {
+        try {
+            return installation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof InvalidTerraformToolException toolException) {
+                throw toolException;
+            }
+            throw new InvalidTerraformToolException(e.getCause().getMessage());
         }
-        String errorMsg =
-                String.format(
-                        "Installing terraform with version %s into the dir %s " + "failed. ",
-                        bestVersionNumber, this.terraformInstallDir);
-        log.error(errorMsg);
-        throw new InvalidTerraformToolException(errorMsg);
     }
 
     /**
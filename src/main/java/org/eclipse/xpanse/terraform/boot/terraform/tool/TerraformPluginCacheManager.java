@@ -0,0 +1,515 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Bean to manage the provider plugin cache shared by all task workspaces of this node. Terraform
+ * links the providers from the cache into the workspace during init instead of downloading them
+ * again from the registry.
+ */
+@Slf4j
+@Component
+public class TerraformPluginCacheManager {
+
+    /** Environment variable to point terraform to the plugin cache directory. */
+    public static final String TF_PLUGIN_CACHE_DIR_ENV = "TF_PLUGIN_CACHE_DIR";
+
+    /**
+     * Task workspaces are created without a dependency lock file. Without this flag terraform
+     * downloads the providers again to record their checksums in the new lock file.
+     */
+    public static final String TF_PLUGIN_CACHE_MAY_BREAK_LOCK_FILE_ENV =
+            "TF_PLUGIN_CACHE_MAY_BREAK_DEPENDENCY_LOCK_FILE";
+
+    private static final String CACHE_LOCK_FILE_NAME = ".terraform-boot.lock";
+    private static final String STAGING_DIR_SUFFIX = "-staging";
+    private static final String STAGING_CACHE_PREFIX = "init-";
+    private static final Pattern LOCKED_PROVIDER_PATTERN =
+            Pattern.compile("provider\\s+\"([^\"]+)\"\\s*\\{[^}]*?\\bversion\\s*=\\s*\"([^\"]+)\"");
+    private static final String WORKSPACE_PROVIDERS_DIR =
+            ".terraform" + File.separator + "providers";
+    // providers are stored as <hostname>/<namespace>/<type>/<version>/<os_arch>.
+    private static final int PROVIDER_VERSION_DIR_DEPTH = 4;
+
+    private final boolean pluginCacheEnabled;
+    private final Path pluginCacheDir;
+    private final Path stagingDir;
+    private final long maxCacheSizeInBytes;
+    private final ReadWriteLock cacheLock = new ReentrantReadWriteLock(true);
+    private final Set<Path> leasedWorkspaces = ConcurrentHashMap.newKeySet();
+    private final AtomicLong cacheSizeInBytes = new AtomicLong();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter bytesSaved;
+
+    /**
+     * Constructor for the TerraformPluginCacheManager bean.
+     *
+     * @param pluginCacheEnabled value of `terraform.plugin.cache.enabled` property
+     * @param pluginCacheDir value of `terraform.plugin.cache.dir` property
+     * @param maxCacheSizeInMb value of `terraform.plugin.cache.max.size.mb` property
+     * @param meterRegistry registry of the application metrics
+     */
+    public TerraformPluginCacheManager(
+            @Value("${terraform.plugin.cache.enabled:true}") boolean pluginCacheEnabled,
+            @Value("${terraform.plugin.cache.dir:}") String pluginCacheDir,
+            @Value("${terraform.plugin.cache.max.size.mb:5120}") long maxCacheSizeInMb,
+            MeterRegistry meterRegistry) {
+        this.pluginCacheEnabled = pluginCacheEnabled;
+        this.pluginCacheDir =
+                Path.of(
+                                StringUtils.isNotBlank(pluginCacheDir)
+                                        ? pluginCacheDir
+                                        : System.getProperty("java.io.tmpdir")
+                                                + File.separator
+                                                + "terraform-plugin-cache")
+                        .toAbsolutePath()
+                        .normalize();
+        this.stagingDir =
+                this.pluginCacheDir.resolveSibling(
+                        this.pluginCacheDir.getFileName() + STAGING_DIR_SUFFIX);
+        this.maxCacheSizeInBytes = maxCacheSizeInMb * 1024 * 1024;
+        this.cacheHits = meterRegistry.counter("terraform.plugin.cache.hits");
+        this.cacheMisses = meterRegistry.counter("terraform.plugin.cache.misses");
+        this.bytesSaved = meterRegistry.counter("terraform.plugin.cache.bytes.saved");
+        Gauge.builder("terraform.plugin.cache.size.bytes", cacheSizeInBytes, AtomicLong::get)
+                .register(meterRegistry);
+        if (pluginCacheEnabled) {
+            log.info("Terraform provider plugin cache enabled in dir {}.", this.pluginCacheDir);
+        }
+    }
+
+    /**
+     * Runs terraform init with the shared plugin cache. Terraform does not support concurrent
+     * writes to the same cache. Inits whose locked providers are all cached only create links and
+     * use the shared cache directly. Other inits may download providers, they use a staging cache
+     * of their own which links the cached providers. The downloaded providers are moved into the
+     * shared cache afterward, only this merge is serialized on this node and across processes
+     * sharing the same cache dir.
+     *
+     * @param taskWorkspace workspace in which terraform init is executed.
+     * @param envVariables environment variables of the init command, the cache dir is added.
+     * @param initCommand the terraform init command to be executed.
+     * @return result of the init command.
+     */
+    public <T> T initWithPluginCache(
+            String taskWorkspace, Map<String, String> envVariables, Supplier<T> initCommand) {
+        if (!pluginCacheEnabled) {
+            return initCommand.get();
+        }
+        if (areLockedProvidersCached(taskWorkspace)) {
+            return initWithSharedCache(taskWorkspace, envVariables, initCommand);
+        }
+        return initWithStagingCache(taskWorkspace, envVariables, initCommand);
+    }
+
+    private <T> T initWithSharedCache(
+            String taskWorkspace, Map<String, String> envVariables, Supplier<T> initCommand) {
+        cacheLock.readLock().lock();
+        try {
+            Set<Path> cachedVersionsBeforeInit = listCachedProviderVersions();
+            envVariables.put(TF_PLUGIN_CACHE_DIR_ENV, pluginCacheDir.toString());
+            envVariables.put(TF_PLUGIN_CACHE_MAY_BREAK_LOCK_FILE_ENV, "true");
+            T result = initCommand.get();
+            recordProviderUsage(taskWorkspace, cachedVersionsBeforeInit);
+            return result;
+        } finally {
+            cacheLock.readLock().unlock();
+        }
+    }
+
+    private <T> T initWithStagingCache(
+            String taskWorkspace, Map<String, String> envVariables, Supplier<T> initCommand) {
+        Set<Path> cachedVersionsBeforeInit;
+        Path stagingCacheDir;
+        T result;
+        // the read lock keeps the cached providers linked from the staging cache from eviction.
+        cacheLock.readLock().lock();
+        try {
+            cachedVersionsBeforeInit = listCachedProviderVersions();
+            try {
+                stagingCacheDir = createStagingCache(cachedVersionsBeforeInit);
+            } catch (IOException e) {
+                log.warn("Using terraform plugin cache failed, init without cache.", e);
+                return initCommand.get();
+            }
+            envVariables.put(TF_PLUGIN_CACHE_DIR_ENV, stagingCacheDir.toString());
+            envVariables.put(TF_PLUGIN_CACHE_MAY_BREAK_LOCK_FILE_ENV, "true");
+            result = initCommand.get();
+        } finally {
+            cacheLock.readLock().unlock();
+        }
+        CacheLock lock;
+        try {
+            lock = lockCacheExclusively();
+        } catch (IOException e) {
+            // the workspace links the staging cache, hence it is kept.
+            log.warn("Merging staging cache {} into the plugin cache failed.", stagingCacheDir, e);
+            return result;
+        }
+        try {
+            mergeStagingCache(stagingCacheDir, taskWorkspace);
+            deleteQuietly(stagingCacheDir);
+            recordProviderUsage(taskWorkspace, cachedVersionsBeforeInit);
+            evictLeastRecentlyUsedVersions();
+        } catch (IOException e) {
+            log.warn("Merging staging cache {} into the plugin cache failed.", stagingCacheDir, e);
+        } finally {
+            lock.release();
+        }
+        return result;
+    }
+
+    /**
+     * Runs an action which links providers of the cache into a workspace, for example from a
+     * workspace template. No provider is evicted meanwhile.
+     *
+     * @param linkAction the action creating the links.
+     * @return result of the action.
+     */
+    public <T> T linkProviders(ProviderLinkAction<T> linkAction) throws IOException {
+        cacheLock.readLock().lock();
+        try {
+            return linkAction.run();
+        } finally {
+            cacheLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Lease the providers linked into a task workspace, they are not evicted while the workspace
+     * exists or until the lease is released.
+     *
+     * @param taskWorkspace workspace of the task.
+     */
+    public void leaseProviders(String taskWorkspace) {
+        if (pluginCacheEnabled) {
+            leasedWorkspaces.add(Path.of(taskWorkspace).toAbsolutePath());
+        }
+    }
+
+    /**
+     * Release the lease of the providers linked into a task workspace.
+     *
+     * @param taskWorkspace workspace of the task.
+     */
+    public void releaseProviders(String taskWorkspace) {
+        leasedWorkspaces.remove(Path.of(taskWorkspace).toAbsolutePath());
+    }
+
+    /**
+     * Create the staging cache of an init. It links the provider versions of the shared cache, so
+     * terraform does not download them again.
+     */
+    private Path createStagingCache(Set<Path> cachedVersions) throws IOException {
+        Files.createDirectories(stagingDir);
+        Path stagingCacheDir = Files.createTempDirectory(stagingDir, STAGING_CACHE_PREFIX);
+        try {
+            for (Path cachedVersionDir : cachedVersions) {
+                Path stagedVersionDir =
+                        stagingCacheDir.resolve(pluginCacheDir.relativize(cachedVersionDir));
+                Files.createDirectories(stagedVersionDir.getParent());
+                Files.createSymbolicLink(stagedVersionDir, cachedVersionDir);
+            }
+            return stagingCacheDir;
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(stagingCacheDir);
+            throw e;
+        }
+    }
+
+    /**
+     * Move the provider versions downloaded into the staging cache to the shared cache and link the
+     * providers of the workspace to the shared cache instead of the staging cache.
+     */
+    private void mergeStagingCache(Path stagingCacheDir, String taskWorkspace) throws IOException {
+        for (Path stagedVersionDir : listProviderVersionDirs(stagingCacheDir)) {
+            Path cachedVersionDir =
+                    pluginCacheDir.resolve(stagingCacheDir.relativize(stagedVersionDir));
+            // versions linked from the shared cache or cached by another init meanwhile are kept.
+            if (Files.isSymbolicLink(stagedVersionDir) || Files.exists(cachedVersionDir)) {
+                continue;
+            }
+            Files.createDirectories(cachedVersionDir.getParent());
+            Files.move(stagedVersionDir, cachedVersionDir, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Path workspaceProvidersDir = Path.of(taskWorkspace, WORKSPACE_PROVIDERS_DIR);
+        if (!Files.isDirectory(workspaceProvidersDir)) {
+            return;
+        }
+        List<Path> links;
+        try (Stream<Path> paths = Files.walk(workspaceProvidersDir)) {
+            links = paths.filter(Files::isSymbolicLink).toList();
+        }
+        for (Path link : links) {
+            Path linkTarget =
+                    link.toAbsolutePath()
+                            .getParent()
+                            .resolve(Files.readSymbolicLink(link))
+                            .normalize();
+            if (linkTarget.startsWith(stagingCacheDir)) {
+                Files.delete(link);
+                Files.createSymbolicLink(
+                        link, pluginCacheDir.resolve(stagingCacheDir.relativize(linkTarget)));
+            }
+        }
+    }
+
+    /**
+     * Lock the cache exclusively. The lock is also held on the lock file of the cache dir, to
+     * serialize writers across processes.
+     */
+    private CacheLock lockCacheExclusively() throws IOException {
+        Lock lock = cacheLock.writeLock();
+        lock.lock();
+        FileChannel lockChannel = null;
+        try {
+            Files.createDirectories(pluginCacheDir);
+            lockChannel =
+                    FileChannel.open(
+                            pluginCacheDir.resolve(CACHE_LOCK_FILE_NAME),
+                            StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE);
+            lockChannel.lock();
+            return new CacheLock(lock, lockChannel);
+        } catch (IOException | RuntimeException e) {
+            if (Objects.nonNull(lockChannel)) {
+                lockChannel.close();
+            }
+            lock.unlock();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if all providers of the dependency lock file of the workspace are in the cache, so
+     * terraform init does not download anything into the cache.
+     */
+    private boolean areLockedProvidersCached(String taskWorkspace) {
+        Path lockFile = Path.of(taskWorkspace, TerraformWorkspaceFingerprint.TF_LOCK_FILE_NAME);
+        if (!Files.isRegularFile(lockFile)) {
+            return false;
+        }
+        try {
+            Matcher matcher = LOCKED_PROVIDER_PATTERN.matcher(Files.readString(lockFile));
+            boolean providersFound = false;
+            while (matcher.find()) {
+                providersFound = true;
+                Path versionDir =
+                        pluginCacheDir.resolve(matcher.group(1)).resolve(matcher.group(2));
+                if (!isNotEmptyDirectory(versionDir)) {
+                    return false;
+                }
+            }
+            return providersFound;
+        } catch (IOException | InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private boolean isNotEmptyDirectory(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return false;
+        }
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths.findAny().isPresent();
+        }
+    }
+
+    /**
+     * Counts hits and misses of the providers used by the workspace and marks the cached versions
+     * as recently used.
+     */
+    private void recordProviderUsage(String taskWorkspace, Set<Path> cachedVersionsBeforeInit) {
+        Path workspaceProvidersDir = Path.of(taskWorkspace, WORKSPACE_PROVIDERS_DIR);
+        if (!Files.isDirectory(workspaceProvidersDir)) {
+            return;
+        }
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        for (Path versionDir : listProviderVersionDirs(workspaceProvidersDir)) {
+            Path cachedVersionDir =
+                    pluginCacheDir.resolve(workspaceProvidersDir.relativize(versionDir));
+            if (!Files.isDirectory(cachedVersionDir)) {
+                continue;
+            }
+            if (cachedVersionsBeforeInit.contains(cachedVersionDir)) {
+                cacheHits.increment();
+                bytesSaved.increment(getSizeInBytes(cachedVersionDir));
+            } else {
+                cacheMisses.increment();
+            }
+            try {
+                Files.setLastModifiedTime(cachedVersionDir, now);
+            } catch (IOException e) {
+                log.warn("Failed to update last use of cached provider {}.", cachedVersionDir);
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used provider versions until the cache fits in its budget. The
+     * versions linked into leased workspaces are kept.
+     */
+    private void evictLeastRecentlyUsedVersions() {
+        List<Path> cachedVersions = new ArrayList<>(listCachedProviderVersions());
+        Set<Path> leasedVersions = listLeasedProviderVersions();
+        cachedVersions.sort(Comparator.comparing(this::getLastModifiedTime));
+        long totalSize = 0;
+        for (Path versionDir : cachedVersions) {
+            totalSize += getSizeInBytes(versionDir);
+        }
+        for (Path versionDir : cachedVersions) {
+            if (totalSize <= maxCacheSizeInBytes) {
+                break;
+            }
+            if (leasedVersions.contains(versionDir)) {
+                continue;
+            }
+            long versionSize = getSizeInBytes(versionDir);
+            try {
+                FileSystemUtils.deleteRecursively(versionDir);
+                totalSize -= versionSize;
+                log.info("Evicted provider {} from the terraform plugin cache.", versionDir);
+            } catch (IOException e) {
+                log.warn("Failed to evict provider {} from the plugin cache.", versionDir, e);
+            }
+        }
+        cacheSizeInBytes.set(totalSize);
+    }
+
+    /** Lists the cached versions linked into the leased workspaces which still exist. */
+    private Set<Path> listLeasedProviderVersions() {
+        Set<Path> leasedVersions = new HashSet<>();
+        for (Path workspace : leasedWorkspaces) {
+            if (!Files.isDirectory(workspace)) {
+                leasedWorkspaces.remove(workspace);
+                continue;
+            }
+            Path workspaceProvidersDir = workspace.resolve(WORKSPACE_PROVIDERS_DIR);
+            if (Files.isDirectory(workspaceProvidersDir)) {
+                for (Path versionDir : listProviderVersionDirs(workspaceProvidersDir)) {
+                    leasedVersions.add(
+                            pluginCacheDir.resolve(workspaceProvidersDir.relativize(versionDir)));
+                }
+            }
+        }
+        return leasedVersions;
+    }
+
+    private Set<Path> listCachedProviderVersions() {
+        return new HashSet<>(listProviderVersionDirs(pluginCacheDir));
+    }
+
+    private List<Path> listProviderVersionDirs(Path providersDir) {
+        if (!Files.isDirectory(providersDir)) {
+            return List.of();
+        }
+        try (Stream<Path> paths =
+                Files.find(
+                        providersDir,
+                        PROVIDER_VERSION_DIR_DEPTH,
+                        (path, attributes) ->
+                                providersDir.relativize(path).getNameCount()
+                                                == PROVIDER_VERSION_DIR_DEPTH
+                                        && Files.isDirectory(path))) {
+            return paths.toList();
+        } catch (IOException e) {
+            log.warn("Failed to list providers in {}.", providersDir, e);
+            return List.of();
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}.", path, e);
+        }
+    }
+
+    private FileTime getLastModifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private long getSizeInBytes(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile)
+                    .mapToLong(
+                            file -> {
+                                try {
+                                    return Files.size(file);
+                                } catch (IOException e) {
+                                    return 0;
+                                }
+                            })
+                    .sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /** Action which links providers of the cache into a workspace. */
+    @FunctionalInterface
+    public interface ProviderLinkAction<T> {
+
+        T run() throws IOException;
+    }
+
+    /** Exclusive lock of the cache, with the lock on the lock file of the cache dir. */
+    private record CacheLock(Lock lock, FileChannel lockChannel) {
+
+        void release() {
+            try {
+                if (Objects.nonNull(lockChannel)) {
+                    // closing the channel releases the file lock.
+                    lockChannel.close();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to release lock of the terraform plugin cache.", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
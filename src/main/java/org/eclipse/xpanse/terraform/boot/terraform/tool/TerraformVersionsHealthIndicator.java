@@ -0,0 +1,34 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import jakarta.annotation.Resource;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the node as ready only after the pre-installation of Terraform versions has run once.
+ * Versions failed to be pre-installed are listed in the details, they are still installed on
+ * demand.
+ */
+@Component
+public class TerraformVersionsHealthIndicator implements HealthIndicator {
+
+    @Resource private TerraformVersionsPreInstaller versionsPreInstaller;
+
+    @Override
+    public Health health() {
+        if (!versionsPreInstaller.isPreInstallationCompleted()) {
+            return Health.outOfService()
+                    .withDetail("reason", "Terraform versions are being pre-installed.")
+                    .build();
+        }
+        return Health.up()
+                .withDetail("failedVersions", versionsPreInstaller.getFailedVersions())
+                .build();
+    }
+}
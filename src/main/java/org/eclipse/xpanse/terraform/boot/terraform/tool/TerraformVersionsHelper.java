@@ -5,28 +5,30 @@
 
 package org.eclipse.xpanse.terraform.boot.terraform.tool;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URI;
-import java.net.URL;
-import java.nio.channels.Channels;
-import java.nio.channels.ReadableByteChannel;
+import java.nio.file.ClosedWatchServiceException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.InvalidTerraformToolException;
@@ -35,6 +37,7 @@ import org.eclipse.xpanse.terraform.boot.terraform.utils.SystemCmdResult;
 import org.semver4j.Semver;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.FileSystemUtils;
 
 /** Defines methods for handling terraform with required version. */
 @Slf4j
@@ -54,11 +57,23 @@ public class TerraformVersionsHelper {
     private static final String OS_NAME = System.getProperty("os.name").toLowerCase();
     private static final String OS_ARCH = System.getProperty("os.arch").toLowerCase();
     private static final String TERRAFORM_EXECUTOR_PREFIX = "terraform-";
+    private static final String DOWNLOAD_DIR_PREFIX = ".download-";
+
+    private final Map<String, ProbedExecutor> probedExecutors = new ConcurrentHashMap<>();
+    private final Map<Path, NavigableMap<Semver, File>> installedExecutorsIndexes =
+            new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> watchedInstallDirs = new ConcurrentHashMap<>();
+    // bumped by the watcher on every change, listings started before a change are stale.
+    private final AtomicLong installDirsGeneration = new AtomicLong();
+    private volatile WatchService installDirWatchService;
 
     @Resource private SystemCmd systemCmd;
 
+    @Resource private TerraformBinaryDownloader binaryDownloader;
+
     /**
-     * Get terraform executor path which matches the required version.
+     * Get terraform executor path which matches the required version. The executors are looked up
+     * in an index of the installation dir, which is refreshed when the dir is changed.
      *
      * @param installationDir terraform installation directory
      * @param requiredOperator operator in required version
@@ -72,36 +87,123 @@ public class TerraformVersionsHelper {
         if (!installDir.exists() || !installDir.isDirectory()) {
             return null;
         }
-        File[] terraformExecutors = installDir.listFiles();
-        if (Objects.isNull(terraformExecutors) || terraformExecutors.length == 0) {
+        NavigableMap<Semver, File> installedExecutors =
+                getInstalledExecutorsIndex(installDir.toPath().toAbsolutePath());
+        if (CollectionUtils.isEmpty(installedExecutors)) {
             return null;
         }
-        Map<String, File> executorVersionFileMap = new HashMap<>();
-        Arrays.stream(terraformExecutors)
-                .filter(
-                        f ->
-                                f.isFile()
-                                        && f.canExecute()
-                                        && f.getName().startsWith(TERRAFORM_EXECUTOR_PREFIX))
-                .forEach(
-                        f -> {
-                            String versionNumber = getVersionFromExecutorPath(f.getAbsolutePath());
-                            executorVersionFileMap.put(versionNumber, f);
-                        });
-        if (CollectionUtils.isEmpty(executorVersionFileMap)) {
-            return null;
+        Semver requiredSemver = new Semver(requiredNumber);
+        File executorFile =
+                switch (requiredOperator) {
+                    case "=" -> installedExecutors.get(requiredSemver);
+                    case ">=" -> getValue(installedExecutors.ceilingEntry(requiredSemver));
+                    case "<=" -> getValue(installedExecutors.floorEntry(requiredSemver));
+                    default -> null;
+                };
+        if (Objects.nonNull(executorFile)
+                && checkIfExecutorIsMatchedRequiredVersion(
+                        executorFile, requiredOperator, requiredNumber)) {
+            return executorFile.getAbsolutePath();
+        }
+        return null;
+    }
+
+    private File getValue(Map.Entry<Semver, File> entry) {
+        return Objects.nonNull(entry) ? entry.getValue() : null;
+    }
+
+    private NavigableMap<Semver, File> getInstalledExecutorsIndex(Path installDir) {
+        NavigableMap<Semver, File> installedExecutors = installedExecutorsIndexes.get(installDir);
+        if (Objects.nonNull(installedExecutors)) {
+            return installedExecutors;
         }
-        String findBestVersion =
-                findBestVersionFromAllAvailableVersions(
-                        executorVersionFileMap.keySet(), requiredOperator, requiredNumber);
-        if (StringUtils.isNotBlank(findBestVersion)) {
-            File executorFile = executorVersionFileMap.get(findBestVersion);
-            if (checkIfExecutorIsMatchedRequiredVersion(
-                    executorFile, requiredOperator, requiredNumber)) {
-                return executorFile.getAbsolutePath();
+        // the index is cached only while the dir is watched, otherwise changes would be missed.
+        boolean watched = watchInstallDir(installDir);
+        long generation = installDirsGeneration.get();
+        installedExecutors = new TreeMap<>();
+        File[] terraformExecutors = installDir.toFile().listFiles();
+        if (Objects.nonNull(terraformExecutors)) {
+            for (File executor : terraformExecutors) {
+                if (executor.isFile()
+                        && executor.canExecute()
+                        && executor.getName().startsWith(TERRAFORM_EXECUTOR_PREFIX)) {
+                    Semver version =
+                            Semver.parse(getVersionFromExecutorPath(executor.getAbsolutePath()));
+                    if (Objects.nonNull(version)) {
+                        installedExecutors.put(version, executor);
+                    }
+                }
             }
         }
-        return null;
+        NavigableMap<Semver, File> listedExecutors =
+                Collections.unmodifiableNavigableMap(installedExecutors);
+        if (watched) {
+            // the watcher bumps the generation before it removes the index under the same lock,
+            // so a listing which raced with a change is never cached.
+            installedExecutorsIndexes.compute(
+                    installDir,
+                    (dir, cachedExecutors) ->
+                            installDirsGeneration.get() == generation
+                                    ? listedExecutors
+                                    : cachedExecutors);
+        }
+        return listedExecutors;
+    }
+
+    private boolean watchInstallDir(Path installDir) {
+        if (watchedInstallDirs.containsKey(installDir)) {
+            return true;
+        }
+        synchronized (watchedInstallDirs) {
+            try {
+                if (Objects.isNull(installDirWatchService)) {
+                    installDirWatchService = installDir.getFileSystem().newWatchService();
+                    Thread.ofPlatform()
+                            .daemon()
+                            .name("terraform-install-dir-watcher")
+                            .start(this::invalidateIndexesOnChanges);
+                }
+                WatchKey watchKey =
+                        installDir.register(
+                                installDirWatchService,
+                                StandardWatchEventKinds.ENTRY_CREATE,
+                                StandardWatchEventKinds.ENTRY_DELETE,
+                                StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedInstallDirs.put(installDir, watchKey);
+                log.info("Watching terraform installation dir {} for changes.", installDir);
+                return true;
+            } catch (IOException | UnsupportedOperationException e) {
+                log.warn("Failed to watch terraform installation dir {}.", installDir, e);
+                return false;
+            }
+        }
+    }
+
+    private void invalidateIndexesOnChanges() {
+        try {
+            while (true) {
+                WatchKey watchKey = installDirWatchService.take();
+                Path installDir = (Path) watchKey.watchable();
+                watchKey.pollEvents();
+                installDirsGeneration.incrementAndGet();
+                installedExecutorsIndexes.remove(installDir);
+                if (!watchKey.reset()) {
+                    watchedInstallDirs.remove(installDir);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Stopped watching terraform installation dirs.");
+        }
+    }
+
+    /** Stop watching the terraform installation dirs. */
+    @PreDestroy
+    public void stopWatchingInstallDirs() throws IOException {
+        if (Objects.nonNull(installDirWatchService)) {
+            installDirWatchService.close();
+        }
     }
 
     /**
@@ -198,6 +300,28 @@ public class TerraformVersionsHelper {
      * @return exact version of executor.
      */
     public String getExactVersionOfExecutor(String executorPath) {
+        File executorFile = resolveExecutorFile(executorPath);
+        if (Objects.isNull(executorFile)) {
+            return probeVersionOfExecutor(executorPath);
+        }
+        // the binary is probed again only when it was replaced.
+        String executorKey = executorFile.getAbsolutePath();
+        ProbedExecutor probedExecutor = probedExecutors.get(executorKey);
+        if (Objects.nonNull(probedExecutor)
+                && probedExecutor.size() == executorFile.length()
+                && probedExecutor.lastModified() == executorFile.lastModified()) {
+            return probedExecutor.version();
+        }
+        long size = executorFile.length();
+        long lastModified = executorFile.lastModified();
+        String version = probeVersionOfExecutor(executorPath);
+        if (StringUtils.isNotBlank(version)) {
+            probedExecutors.put(executorKey, new ProbedExecutor(size, lastModified, version));
+        }
+        return version;
+    }
+
+    private String probeVersionOfExecutor(String executorPath) {
         String versionOutput = getVersionCommandOutput(executorPath);
         if (StringUtils.isNotBlank(versionOutput)) {
             Matcher matcher = TERRAFORM_VERSION_OUTPUT_PATTERN.matcher(versionOutput);
@@ -209,39 +333,60 @@ public class TerraformVersionsHelper {
         return null;
     }
 
+    /** Resolve the executor file, executors given only by name are searched in the PATH. */
+    private File resolveExecutorFile(String executorPath) {
+        File executorFile = new File(executorPath);
+        if (executorFile.isFile()) {
+            return executorFile;
+        }
+        String systemPath = System.getenv("PATH");
+        if (executorPath.contains(File.separator) || StringUtils.isBlank(systemPath)) {
+            return null;
+        }
+        for (String dir : systemPath.split(File.pathSeparator)) {
+            File candidate = new File(dir, executorPath);
+            if (candidate.isFile() && candidate.canExecute()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
     private String getVersionCommandOutput(String executorPath) {
         try {
             File executorFile = new File(executorPath);
             if (executorFile.exists() && !executorFile.canExecute()) {
-                SystemCmdResult chmodResult =
+                try (SystemCmdResult chmodResult =
                         systemCmd.execute(
                                 String.format("chmod +x %s", executorFile.getAbsolutePath()),
                                 5,
                                 System.getProperty("java.io.tmpdir"),
                                 false,
-                                new HashMap<>());
-                if (!chmodResult.isCommandSuccessful()) {
-                    log.error(chmodResult.getCommandStdError());
+                                new HashMap<>())) {
+                    if (!chmodResult.isCommandSuccessful()) {
+                        log.error(chmodResult.getCommandStdError());
+                    }
                 }
             }
-            SystemCmdResult versionCheckResult =
+            try (SystemCmdResult versionCheckResult =
                     systemCmd.execute(
                             executorPath + " version",
                             5,
                             System.getProperty("java.io.tmpdir"),
                             false,
-                            new HashMap<>());
-            if (versionCheckResult.isCommandSuccessful()) {
-                log.info(
-                        "Get version of executor {} output: {}",
-                        executorPath,
-                        versionCheckResult.getCommandStdOutput());
-                return versionCheckResult.getCommandStdOutput();
-            } else {
-                log.error(
-                        "Get version of executor {} output error :{}",
-                        executorPath,
-                        versionCheckResult.getCommandStdError());
+                            new HashMap<>())) {
+                if (versionCheckResult.isCommandSuccessful()) {
+                    log.info(
+                            "Get version of executor {} output: {}",
+                            executorPath,
+                            versionCheckResult.getCommandStdOutput());
+                    return versionCheckResult.getCommandStdOutput();
+                } else {
+                    log.error(
+                            "Get version of executor {} output error :{}",
+                            executorPath,
+                            versionCheckResult.getCommandStdError());
+                }
             }
         } catch (Exception e) {
             log.error("Failed to get version of executor {}.", executorPath, e);
@@ -250,7 +395,9 @@ public class TerraformVersionsHelper {
     }
 
     /**
-     * Install terraform with specific version.
+     * Install terraform with specific version. The binary is downloaded, verified and extracted in
+     * a temporary dir and then moved atomically into the installation directory, so concurrent
+     * installations never see or delete the files of each other.
      *
      * @param versionNumber the version number
      * @param downloadBaseUrl download base url
@@ -263,6 +410,7 @@ public class TerraformVersionsHelper {
         String terraformExecutorName = getTerraformExecutorName(versionNumber);
         File terraformExecutorFile = new File(installDir, terraformExecutorName);
         File parentDir = terraformExecutorFile.getParentFile();
+        File downloadDir = null;
         try {
             if (!parentDir.exists()) {
                 log.info(
@@ -270,102 +418,41 @@ public class TerraformVersionsHelper {
                         parentDir.getAbsolutePath(),
                         parentDir.mkdirs() ? "successfully" : "failed");
             }
-            // download the binary zip file into the installation directory
-            File terraformZipFile =
-                    downloadTerraformBinaryZipFile(versionNumber, downloadBaseUrl, installDir);
-            // unzip the zip file and move the executable binary to the installation directory
-            unzipBinaryZipToGetExecutor(terraformZipFile, terraformExecutorFile);
+            downloadDir =
+                    Files.createTempDirectory(parentDir.toPath(), DOWNLOAD_DIR_PREFIX).toFile();
+            // download the binary zip file and extract the executor into the download directory
+            File downloadedExecutorFile = new File(downloadDir, terraformExecutorName);
+            binaryDownloader.downloadAndExtractExecutor(
+                    getTerraformBinaryDownloadUrl(downloadBaseUrl, versionNumber),
+                    versionNumber,
+                    downloadDir,
+                    downloadedExecutorFile);
+            // move the executable binary to the installation directory
+            if (!downloadedExecutorFile.setExecutable(true)) {
+                log.warn("Failed to set {} executable.", downloadedExecutorFile);
+            }
+            Files.move(
+                    downloadedExecutorFile.toPath(),
+                    terraformExecutorFile.toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
             log.error(e.getMessage(), e);
             throw new InvalidTerraformToolException(e.getMessage());
+        } finally {
+            // delete the non-executable files
+            deleteDownloadDir(downloadDir);
         }
-        // delete the non-executable files
-        deleteNonExecutorFiles(parentDir);
         return terraformExecutorFile;
     }
 
-    private File downloadTerraformBinaryZipFile(
-            String versionNumber, String downloadBaseUrl, String installDir) throws IOException {
-        String binaryDownloadUrl = getTerraformBinaryDownloadUrl(downloadBaseUrl, versionNumber);
-        String binaryZipFileName = getTerraformBinaryZipFileName(binaryDownloadUrl);
-        File binaryZipFile = new File(installDir, binaryZipFileName);
-        URL url = URI.create(binaryDownloadUrl).toURL();
-        try (ReadableByteChannel rbc = Channels.newChannel(url.openStream());
-                FileOutputStream fos = new FileOutputStream(binaryZipFile, false)) {
-            log.info(
-                    "Downloading terraform binary file from {} to {}",
-                    url,
-                    binaryZipFile.getAbsolutePath());
-            fos.getChannel().transferFrom(rbc, 0, Long.MAX_VALUE);
-            log.info(
-                    "Downloaded terraform binary file from {} to {} successfully.",
-                    url,
-                    binaryZipFile.getAbsolutePath());
-        }
-        return binaryZipFile;
-    }
-
-    private void unzipBinaryZipToGetExecutor(File binaryZipFile, File executorFile)
-            throws IOException {
-        if (!binaryZipFile.exists()) {
-            String errorMsg =
-                    String.format(
-                            "Terraform binary zip file %s not found.",
-                            binaryZipFile.getAbsolutePath());
-            log.error(errorMsg);
-            throw new IOException(errorMsg);
-        }
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(binaryZipFile))) {
-            log.info("Unzipping terraform binary zip file {}", binaryZipFile.getAbsolutePath());
-            ZipEntry entry;
-            while ((entry = zis.getNextEntry()) != null) {
-                if (!entry.isDirectory()) {
-                    String entryName = entry.getName();
-                    File entryDestinationFile = new File(executorFile.getParentFile(), entryName);
-                    if (isExecutorFileInZipForTerraform(entryName)) {
-                        extractFile(zis, entryDestinationFile);
-                        Files.move(
-                                entryDestinationFile.toPath(),
-                                executorFile.toPath(),
-                                StandardCopyOption.REPLACE_EXISTING);
-                        log.info(
-                                "Unzipped terraform file {} and extract the executor {} "
-                                        + "successfully.",
-                                binaryZipFile.getAbsolutePath(),
-                                executorFile.getAbsolutePath());
-                    }
-                }
-            }
-        }
-    }
-
-    private boolean isExecutorFileInZipForTerraform(String entryName) {
-        return entryName.startsWith("terraform");
-    }
-
-    private void extractFile(ZipInputStream zis, File destinationFile) throws IOException {
-        try (BufferedOutputStream bos =
-                new BufferedOutputStream(new FileOutputStream(destinationFile))) {
-            byte[] bytesIn = new byte[4096];
-            int read;
-            while ((read = zis.read(bytesIn)) != -1) {
-                bos.write(bytesIn, 0, read);
-            }
+    private void deleteDownloadDir(File downloadDir) {
+        if (Objects.isNull(downloadDir)) {
+            return;
         }
-    }
-
-    private void deleteNonExecutorFiles(File dir) {
-        File[] files = dir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                if (file.isDirectory()) {
-                    deleteNonExecutorFiles(file);
-                } else {
-                    if (!file.getName().startsWith(TERRAFORM_EXECUTOR_PREFIX) && !file.delete()) {
-                        log.warn("Failed to delete file {}.", file.getAbsolutePath());
-                    }
-                }
-            }
+        try {
+            FileSystemUtils.deleteRecursively(downloadDir.toPath());
+        } catch (IOException e) {
+            log.warn("Failed to delete download dir {}.", downloadDir.getAbsolutePath(), e);
         }
     }
 
@@ -417,10 +504,6 @@ public class TerraformVersionsHelper {
                 OS_ARCH);
     }
 
-    private String getTerraformBinaryZipFileName(String executorBinaryDownloadUrl) {
-        return executorBinaryDownloadUrl.substring(executorBinaryDownloadUrl.lastIndexOf("/") + 1);
-    }
-
     private String getOperatingSystemCode() {
         if (OS_NAME.contains("windows")) {
             return "windows";
@@ -437,4 +520,7 @@ public class TerraformVersionsHelper {
         }
         return "Unsupported OS";
     }
+
+    /** Version of an executor binary probed with the given size and last modified time. */
+    private record ProbedExecutor(long size, long lastModified, String version) {}
 }
@@ -0,0 +1,146 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Resource;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bean to install the configured and the most requested versions of Terraform in the background, so
+ * the requests do not pay for the download and installation.
+ */
+@Slf4j
+@Component
+public class TerraformVersionsPreInstaller implements ApplicationListener<ApplicationStartedEvent> {
+
+    private final AtomicBoolean preInstallationRunning = new AtomicBoolean(false);
+    private final AtomicBoolean preInstallationCompleted = new AtomicBoolean(false);
+    private final Map<String, String> failedVersions = new ConcurrentHashMap<>();
+
+    @Value("${terraform.preinstall.enabled:true}")
+    private boolean preInstallEnabled;
+
+    @Value("${terraform.preinstall.versions:}")
+    private String preInstallVersions;
+
+    @Value("${terraform.preinstall.most.requested.count:3}")
+    private int mostRequestedVersionsCount;
+
+    @Value("${terraform.preinstall.max.parallel.installations:2}")
+    private int maxParallelInstallations;
+
+    @Resource private TerraformInstaller installer;
+
+    @Resource private TerraformVersionsFetcher versionsFetcher;
+
+    @Override
+    public void onApplicationEvent(@Nonnull ApplicationStartedEvent event) {
+        if (!preInstallEnabled) {
+            preInstallationCompleted.set(true);
+            return;
+        }
+        Thread.ofPlatform()
+                .daemon()
+                .name("terraform-versions-preinstaller")
+                .start(this::preInstallVersions);
+    }
+
+    /**
+     * Install the configured versions and the most requested versions which are not installed yet.
+     * This method is scheduled to run every one hour.
+     */
+    @Scheduled(cron = "0 30 * * * ?")
+    public void preInstallVersions() {
+        if (!preInstallEnabled || !preInstallationRunning.compareAndSet(false, true)) {
+            return;
+        }
+        Set<String> requiredVersions = getVersionsToPreInstall();
+        log.info("Start to pre-install terraform with required versions {}.", requiredVersions);
+        try (ExecutorService installationExecutor =
+                Executors.newFixedThreadPool(
+                        Math.max(1, maxParallelInstallations),
+                        Thread.ofPlatform().daemon().name("terraform-preinstall-", 0).factory())) {
+            List<CompletableFuture<Void>> installations =
+                    requiredVersions.stream()
+                            .map(
+                                    requiredVersion ->
+                                            CompletableFuture.runAsync(
+                                                    () -> preInstallVersion(requiredVersion),
+                                                    installationExecutor))
+                            .toList();
+            CompletableFuture.allOf(installations.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            preInstallationRunning.set(false);
+            preInstallationCompleted.set(true);
+        }
+        log.info(
+                "Finished pre-installing terraform with required versions {}, failed versions {}.",
+                requiredVersions,
+                failedVersions.keySet());
+    }
+
+    private void preInstallVersion(String requiredVersion) {
+        try {
+            String executorPath =
+                    installer.preInstallExecutorMatchesRequiredVersion(requiredVersion);
+            failedVersions.remove(requiredVersion);
+            log.info("Pre-installed terraform {} with executor {}.", requiredVersion, executorPath);
+        } catch (RuntimeException e) {
+            failedVersions.put(requiredVersion, String.valueOf(e.getMessage()));
+            log.error("Failed to pre-install terraform with version {}.", requiredVersion, e);
+        }
+    }
+
+    private Set<String> getVersionsToPreInstall() {
+        Set<String> requiredVersions = new LinkedHashSet<>();
+        Stream<String> configuredVersions =
+                StringUtils.isNotBlank(preInstallVersions)
+                        ? Arrays.stream(preInstallVersions.replaceAll("\\s+", "").split(","))
+                        : versionsFetcher.getDefaultVersionsFromConfig().stream();
+        configuredVersions
+                .filter(StringUtils::isNotBlank)
+                .sorted()
+                .forEach(version -> requiredVersions.add("=" + version));
+        requiredVersions.addAll(installer.getMostRequestedVersions(mostRequestedVersionsCount));
+        return requiredVersions;
+    }
+
+    /**
+     * Check if the first pre-installation run has completed.
+     *
+     * @return true if the versions were pre-installed or the pre-installation is disabled.
+     */
+    public boolean isPreInstallationCompleted() {
+        return preInstallationCompleted.get();
+    }
+
+    /**
+     * Get the required versions which failed to be pre-installed with the error messages.
+     *
+     * @return map of required version and error message.
+     */
+    public Map<String, String> getFailedVersions() {
+        return Map.copyOf(failedVersions);
+    }
+}
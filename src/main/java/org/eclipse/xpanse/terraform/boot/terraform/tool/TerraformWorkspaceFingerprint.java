@@ -0,0 +1,142 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Fingerprints of everything in a workspace that decides the result of terraform init: the
+ * terraform binary, the scripts of the root module and of the local modules in its sub directories,
+ * the dependency lock file and the CLI configuration.
+ */
+public final class TerraformWorkspaceFingerprint {
+
+    public static final String TF_DATA_DIR_NAME = ".terraform";
+    public static final String TF_LOCK_FILE_NAME = ".terraform.lock.hcl";
+    private static final String TF_MODULES_MANIFEST = "modules" + File.separator + "modules.json";
+    private static final String TF_CLI_CONFIG_FILE_ENV = "TF_CLI_CONFIG_FILE";
+    private static final String TF_CLI_CONFIG_FILE_NAME = ".terraformrc";
+    private static final String GIT_DIR_NAME = ".git";
+    private static final List<String> SCRIPT_FILE_SUFFIXES = List.of(".tf", ".tf.json");
+
+    private TerraformWorkspaceFingerprint() {}
+
+    /**
+     * Get the fingerprint of the scripts in the workspace. Workspaces with the same fingerprint are
+     * initialized the same way.
+     *
+     * @param workspace workspace of the task.
+     * @param terraformBinary the terraform binary which runs the commands.
+     * @return hex encoded SHA-256 hash, or null if there are no scripts in the workspace.
+     */
+    public static String getScriptsFingerprint(Path workspace, String terraformBinary)
+            throws IOException {
+        List<Path> files = listInitInputFiles(workspace);
+        if (files.stream().noneMatch(TerraformWorkspaceFingerprint::isScriptFile)) {
+            return null;
+        }
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        File binary = new File(terraformBinary);
+        digest.update(
+                (binary.getAbsolutePath() + binary.length() + binary.lastModified())
+                        .getBytes(StandardCharsets.UTF_8));
+        for (Path file : files) {
+            digest.update(workspace.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+            digest.update(Files.readAllBytes(file));
+        }
+        Path cliConfigFile = getCliConfigFile();
+        if (Objects.nonNull(cliConfigFile) && Files.isRegularFile(cliConfigFile)) {
+            digest.update(Files.readAllBytes(cliConfigFile));
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /**
+     * Get the fingerprint of an initialized workspace. It covers the scripts fingerprint and the
+     * manifest of the modules installed by init.
+     *
+     * @param workspace workspace of the task.
+     * @param terraformBinary the terraform binary which runs the commands.
+     * @return hex encoded SHA-256 hash, or null if the workspace was never initialized.
+     */
+    public static String getInitFingerprint(Path workspace, String terraformBinary)
+            throws IOException {
+        Path dataDir = workspace.resolve(TF_DATA_DIR_NAME);
+        if (!Files.isDirectory(dataDir)
+                || !Files.isRegularFile(workspace.resolve(TF_LOCK_FILE_NAME))) {
+            return null;
+        }
+        String scriptsFingerprint = getScriptsFingerprint(workspace, terraformBinary);
+        if (Objects.isNull(scriptsFingerprint)) {
+            return null;
+        }
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        digest.update(scriptsFingerprint.getBytes(StandardCharsets.UTF_8));
+        Path modulesManifest = dataDir.resolve(TF_MODULES_MANIFEST);
+        if (Files.isRegularFile(modulesManifest)) {
+            digest.update(Files.readAllBytes(modulesManifest));
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+    /** List the scripts and the lock file, without the terraform data and git directories. */
+    private static List<Path> listInitInputFiles(Path workspace) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(
+                workspace,
+                new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(
+                            Path dir, BasicFileAttributes attributes) {
+                        String name = String.valueOf(dir.getFileName());
+                        return !dir.equals(workspace)
+                                        && (name.equals(TF_DATA_DIR_NAME)
+                                                || name.equals(GIT_DIR_NAME))
+                                ? FileVisitResult.SKIP_SUBTREE
+                                : FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if (attributes.isRegularFile()
+                                && (isScriptFile(file)
+                                        || file.equals(workspace.resolve(TF_LOCK_FILE_NAME)))) {
+                            files.add(file);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+        files.sort(null);
+        return files;
+    }
+
+    private static boolean isScriptFile(Path file) {
+        String name = file.getFileName().toString();
+        return SCRIPT_FILE_SUFFIXES.stream().anyMatch(name::endsWith);
+    }
+
+    private static Path getCliConfigFile() {
+        String cliConfigFile = System.getenv(TF_CLI_CONFIG_FILE_ENV);
+        if (StringUtils.isNotBlank(cliConfigFile)) {
+            return Path.of(cliConfigFile);
+        }
+        return Path.of(System.getProperty("user.home"), TF_CLI_CONFIG_FILE_NAME);
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import static org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformWorkspaceFingerprint.TF_DATA_DIR_NAME;
+import static org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformWorkspaceFingerprint.TF_LOCK_FILE_NAME;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Bean to manage the templates of initialized workspaces. A template holds the terraform data
+ * directory and the dependency lock file of a workspace after terraform init, keyed by the hash of
+ * the scripts and the terraform executor. New task workspaces with the same scripts are
+ * materialized from the template, so terraform init is not executed again.
+ */
+@Slf4j
+@Component
+public class TerraformWorkspaceTemplateManage {
+
+    private static final String TEMPORARY_TEMPLATE_PREFIX = ".tmp-";
+    // provider binaries are large and never rewritten in place, hence they are hard linked.
+    private static final long HARD_LINK_MIN_FILE_SIZE = 1024 * 1024;
+
+    private final ReadWriteLock templatesLock = new ReentrantReadWriteLock();
+
+    private final boolean workspaceTemplateEnabled;
+
+    private final String workspaceTemplateDir;
+
+    private final long maxTemplatesSizeInMb;
+
+    private final TerraformPluginCacheManager pluginCacheManager;
+
+    /**
+     * Constructor for the TerraformWorkspaceTemplateManage bean.
+     *
+     * @param workspaceTemplateEnabled value of `terraform.workspace.template.enabled` property
+     * @param workspaceTemplateDir value of `terraform.workspace.template.dir` property
+     * @param maxTemplatesSizeInMb value of `terraform.workspace.template.max.size.mb` property
+     * @param pluginCacheManager TerraformPluginCacheManager bean
+     */
+    public TerraformWorkspaceTemplateManage(
+            @Value("${terraform.workspace.template.enabled:true}") boolean workspaceTemplateEnabled,
+            @Value("${terraform.workspace.template.dir:}") String workspaceTemplateDir,
+            @Value("${terraform.workspace.template.max.size.mb:2048}") long maxTemplatesSizeInMb,
+            TerraformPluginCacheManager pluginCacheManager) {
+        this.workspaceTemplateEnabled = workspaceTemplateEnabled;
+        this.workspaceTemplateDir = workspaceTemplateDir;
+        this.maxTemplatesSizeInMb = maxTemplatesSizeInMb;
+        this.pluginCacheManager = pluginCacheManager;
+    }
+
+    /**
+     * Get the key of the template for the workspace.
+     *
+     * @param terraformBinary the terraform binary which runs the commands.
+     * @param taskWorkspace workspace path for the Terraform deployment task.
+     * @return key of the template, or null if templates are not used for the workspace.
+     */
+    public String getTemplateKey(String terraformBinary, String taskWorkspace) {
+        if (!workspaceTemplateEnabled || Files.exists(Path.of(taskWorkspace, TF_DATA_DIR_NAME))) {
+            return null;
+        }
+        try {
+            return TerraformWorkspaceFingerprint.getScriptsFingerprint(
+                    Path.of(taskWorkspace), terraformBinary);
+        } catch (IOException e) {
+            log.warn("Calculating hash of scripts in workspace {} failed.", taskWorkspace, e);
+            return null;
+        }
+    }
+
+    /**
+     * Materialize the initialized files of the template into the workspace.
+     *
+     * @param templateKey key of the template.
+     * @param taskWorkspace workspace path for the Terraform deployment task.
+     * @return true if the workspace was materialized from the template.
+     */
+    public boolean materializeWorkspace(String templateKey, String taskWorkspace) {
+        if (Objects.isNull(templateKey)) {
+            return false;
+        }
+        boolean templateInvalidated = false;
+        templatesLock.readLock().lock();
+        try {
+            Path template = getTemplatesDir().resolve(templateKey);
+            if (!Files.isDirectory(template)) {
+                return false;
+            }
+            // the providers linked from the plugin cache are not evicted while they are copied.
+            boolean materialized =
+                    pluginCacheManager.linkProviders(
+                            () -> {
+                                if (hasBrokenSymbolicLinks(template)) {
+                                    return false;
+                                }
+                                copyInitializedFiles(template, Path.of(taskWorkspace));
+                                return true;
+                            });
+            if (!materialized) {
+                log.info("Template {} refers to deleted files, it is invalidated.", templateKey);
+                templateInvalidated = true;
+                return false;
+            }
+            Files.setLastModifiedTime(template, FileTime.fromMillis(System.currentTimeMillis()));
+            log.info("Workspace {} materialized from template {}.", taskWorkspace, templateKey);
+            return true;
+        } catch (IOException e) {
+            log.warn("Materializing workspace {} from template failed.", taskWorkspace, e);
+            deleteQuietly(Path.of(taskWorkspace, TF_DATA_DIR_NAME));
+            deleteQuietly(Path.of(taskWorkspace, TF_LOCK_FILE_NAME));
+            return false;
+        } finally {
+            templatesLock.readLock().unlock();
+            if (templateInvalidated) {
+                deleteTemplate(templateKey);
+            }
+        }
+    }
+
+    /**
+     * Save the initialized files of the workspace as template.
+     *
+     * @param templateKey key of the template.
+     * @param taskWorkspace workspace path for the Terraform deployment task.
+     */
+    public void saveWorkspaceTemplate(String templateKey, String taskWorkspace) {
+        if (Objects.isNull(templateKey)) {
+            return;
+        }
+        Path templatesDir = getTemplatesDir();
+        Path template = templatesDir.resolve(templateKey);
+        if (Files.isDirectory(template)) {
+            return;
+        }
+        Path temporaryTemplate =
+                templatesDir.resolve(TEMPORARY_TEMPLATE_PREFIX + UUID.randomUUID());
+        try {
+            Files.createDirectories(temporaryTemplate);
+            copyInitializedFiles(Path.of(taskWorkspace), temporaryTemplate);
+            templatesLock.writeLock().lock();
+            try {
+                Files.move(temporaryTemplate, template, StandardCopyOption.ATOMIC_MOVE);
+                log.info("Template {} saved from workspace {}.", templateKey, taskWorkspace);
+                evictLeastRecentlyUsedTemplates(templatesDir);
+            } finally {
+                templatesLock.writeLock().unlock();
+            }
+        } catch (FileAlreadyExistsException e) {
+            log.debug("Template {} already saved by another task.", templateKey);
+        } catch (IOException e) {
+            log.warn("Saving template of workspace {} failed.", taskWorkspace, e);
+        } finally {
+            deleteQuietly(temporaryTemplate);
+        }
+    }
+
+    private void copyInitializedFiles(Path source, Path target) throws IOException {
+        Path sourceLockFile = source.resolve(TF_LOCK_FILE_NAME);
+        if (Files.isRegularFile(sourceLockFile)) {
+            Files.copy(
+                    sourceLockFile,
+                    target.resolve(TF_LOCK_FILE_NAME),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path sourceDataDir = source.resolve(TF_DATA_DIR_NAME);
+        try (Stream<Path> paths = Files.walk(sourceDataDir)) {
+            for (Path path : paths.toList()) {
+                Path targetPath = target.resolve(source.relativize(path).toString());
+                if (Files.isSymbolicLink(path)) {
+                    Files.createSymbolicLink(targetPath, getAbsoluteLinkTarget(path));
+                } else if (Files.isDirectory(path)) {
+                    Files.createDirectories(targetPath);
+                } else if (Files.size(path) >= HARD_LINK_MIN_FILE_SIZE) {
+                    linkOrCopy(path, targetPath);
+                } else {
+                    Files.copy(path, targetPath, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+            }
+        }
+    }
+
+    /**
+     * Terraform links the providers of the plugin cache with relative paths. The template is at a
+     * different depth than the workspaces, hence the links are copied with absolute paths.
+     */
+    private Path getAbsoluteLinkTarget(Path link) throws IOException {
+        Path linkTarget = Files.readSymbolicLink(link);
+        return linkTarget.isAbsolute()
+                ? linkTarget
+                : link.toAbsolutePath().getParent().resolve(linkTarget).normalize();
+    }
+
+    private void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            // hard links are not possible across file systems.
+            Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+    /** Providers linked from the plugin cache are broken when the cache has evicted them. */
+    private boolean hasBrokenSymbolicLinks(Path template) throws IOException {
+        try (Stream<Path> paths = Files.walk(template)) {
+            return paths.anyMatch(path -> Files.isSymbolicLink(path) && !Files.exists(path));
+        }
+    }
+
+    private void evictLeastRecentlyUsedTemplates(Path templatesDir) throws IOException {
+        List<Path> templates;
+        try (Stream<Path> paths = Files.list(templatesDir)) {
+            templates =
+                    new ArrayList<>(
+                            paths.filter(
+                                            path ->
+                                                    !path.getFileName()
+                                                            .toString()
+                                                            .startsWith(TEMPORARY_TEMPLATE_PREFIX))
+                                    .toList());
+        }
+        templates.sort(Comparator.comparing(this::getLastModifiedTime));
+        long maxTemplatesSizeInBytes = maxTemplatesSizeInMb * 1024 * 1024;
+        long totalSize = 0;
+        for (Path template : templates) {
+            totalSize += getSizeInBytes(template);
+        }
+        for (Path template : templates) {
+            if (totalSize <= maxTemplatesSizeInBytes) {
+                return;
+            }
+            totalSize -= getSizeInBytes(template);
+            deleteQuietly(template);
+            log.info("Evicted template {} of initialized workspace.", template.getFileName());
+        }
+    }
+
+    private void deleteTemplate(String templateKey) {
+        templatesLock.writeLock().lock();
+        try {
+            deleteQuietly(getTemplatesDir().resolve(templateKey));
+        } finally {
+            templatesLock.writeLock().unlock();
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete {}.", path, e);
+        }
+    }
+
+    private FileTime getLastModifiedTime(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private long getSizeInBytes(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(path -> Files.isRegularFile(path) && !Files.isSymbolicLink(path))
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Path getTemplatesDir() {
+        return Path.of(
+                StringUtils.isNotBlank(workspaceTemplateDir)
+                        ? workspaceTemplateDir
+                        : System.getProperty("java.io.tmpdir")
+                                + File.separator
+                                + "terraform-workspace-templates");
+    }
+}
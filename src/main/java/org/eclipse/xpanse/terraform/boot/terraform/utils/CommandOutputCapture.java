@@ -0,0 +1,281 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Captures the output stream of a command with bounded heap usage. The output is kept in memory up
+ * to a threshold and spooled to a temporary file beyond it. With the HEAD policy only the first
+ * bytes are retained, with the TAIL policy only the last bytes are retained in a ring buffer in
+ * memory. The temporary file is deleted when the capture is closed or garbage collected. The output
+ * is read as string only once, large outputs should be read as stream or as their tail.
+ */
+@Slf4j
+public class CommandOutputCapture implements Closeable {
+
+    private static final Cleaner SPOOL_FILE_CLEANER = Cleaner.create();
+    private static final byte[] LINE_SEPARATOR =
+            System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    /** Policies for output exceeding the maximum retained bytes. */
+    public enum TruncationPolicy {
+        /** Retain the whole output. */
+        NONE,
+        /** Retain the first bytes of the output. */
+        HEAD,
+        /** Retain the last bytes of the output. */
+        TAIL
+    }
+
+    private final TruncationPolicy truncationPolicy;
+    private final long maxRetainedBytes;
+    private final int memoryThresholdBytes;
+    private final ByteArrayOutputStream memoryBuffer = new ByteArrayOutputStream();
+    private byte[] ringBuffer;
+    private long ringBufferWrittenBytes;
+    private File spoolFile;
+    private OutputStream spoolOutput;
+    private Cleaner.Cleanable spoolFileCleanable;
+    private long totalBytes;
+    private long retainedBytes;
+    private boolean hasLines;
+    private String retainedText;
+    private boolean closed;
+
+    /**
+     * Constructor of the capture.
+     *
+     * @param truncationPolicy policy for output exceeding the maximum retained bytes.
+     * @param maxRetainedBytes maximum bytes retained with HEAD and TAIL policies.
+     * @param memoryThresholdBytes bytes kept in memory before spooling to a temporary file.
+     */
+    public CommandOutputCapture(
+            TruncationPolicy truncationPolicy, long maxRetainedBytes, int memoryThresholdBytes) {
+        this.truncationPolicy = truncationPolicy;
+        // the tail is retained in memory, hence it is limited to the size of an array.
+        this.maxRetainedBytes =
+                truncationPolicy == TruncationPolicy.TAIL
+                        ? Math.min(maxRetainedBytes, Integer.MAX_VALUE - 8)
+                        : maxRetainedBytes;
+        this.memoryThresholdBytes = memoryThresholdBytes;
+    }
+
+    /**
+     * Create a capture holding the given text.
+     *
+     * @param text text to capture.
+     * @return capture of the text, or null if the text is null.
+     */
+    public static CommandOutputCapture of(String text) {
+        if (Objects.isNull(text)) {
+            return null;
+        }
+        CommandOutputCapture capture =
+                new CommandOutputCapture(TruncationPolicy.NONE, Long.MAX_VALUE, Integer.MAX_VALUE);
+        capture.write(text.getBytes(StandardCharsets.UTF_8));
+        return capture;
+    }
+
+    /**
+     * Append a line of output. Lines are separated by the line separator of the system.
+     *
+     * @param line line of output without line terminator.
+     */
+    public synchronized void appendLine(String line) {
+        if (hasLines) {
+            write(LINE_SEPARATOR);
+        }
+        hasLines = true;
+        write(line.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void write(byte[] bytes) {
+        retainedText = null;
+        totalBytes += bytes.length;
+        switch (truncationPolicy) {
+            case TAIL -> writeToRingBuffer(bytes);
+            case HEAD -> {
+                int length = (int) Math.min(bytes.length, maxRetainedBytes - retainedBytes);
+                if (length > 0) {
+                    writeToSpool(bytes, length);
+                }
+            }
+            default -> writeToSpool(bytes, bytes.length);
+        }
+    }
+
+    private void writeToRingBuffer(byte[] bytes) {
+        if (Objects.isNull(ringBuffer)) {
+            // the ring buffer is allocated only when the output exceeds the retained bytes.
+            if (memoryBuffer.size() + (long) bytes.length <= maxRetainedBytes) {
+                memoryBuffer.write(bytes, 0, bytes.length);
+                retainedBytes = memoryBuffer.size();
+                return;
+            }
+            ringBuffer = new byte[(int) maxRetainedBytes];
+            byte[] bufferedBytes = memoryBuffer.toByteArray();
+            memoryBuffer.reset();
+            appendToRingBuffer(bufferedBytes);
+        }
+        appendToRingBuffer(bytes);
+    }
+
+    private void appendToRingBuffer(byte[] bytes) {
+        if (ringBuffer.length == 0) {
+            return;
+        }
+        int offset = Math.max(0, bytes.length - ringBuffer.length);
+        ringBufferWrittenBytes += offset;
+        for (int i = offset; i < bytes.length; ) {
+            int position = (int) (ringBufferWrittenBytes % ringBuffer.length);
+            int length = Math.min(bytes.length - i, ringBuffer.length - position);
+            System.arraycopy(bytes, i, ringBuffer, position, length);
+            ringBufferWrittenBytes += length;
+            i += length;
+        }
+        retainedBytes = Math.min(ringBufferWrittenBytes, ringBuffer.length);
+    }
+
+    private void writeToSpool(byte[] bytes, int length) {
+        retainedBytes += length;
+        if (Objects.isNull(spoolOutput)
+                && memoryBuffer.size() + (long) length <= memoryThresholdBytes) {
+            memoryBuffer.write(bytes, 0, length);
+            return;
+        }
+        try {
+            if (Objects.isNull(spoolOutput)) {
+                spoolFile = Files.createTempFile("terraform-output-", ".log").toFile();
+                File fileToDelete = spoolFile;
+                spoolFileCleanable =
+                        SPOOL_FILE_CLEANER.register(this, () -> deleteSpoolFile(fileToDelete));
+                spoolOutput = new BufferedOutputStream(new FileOutputStream(spoolFile));
+                memoryBuffer.writeTo(spoolOutput);
+                memoryBuffer.reset();
+            }
+            spoolOutput.write(bytes, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Spooling command output failed.", e);
+        }
+    }
+
+    /**
+     * Open a stream to read the retained output.
+     *
+     * @return input stream of the retained output.
+     */
+    public synchronized InputStream openInputStream() {
+        if (truncationPolicy == TruncationPolicy.TAIL && Objects.nonNull(ringBuffer)) {
+            if (ringBuffer.length == 0) {
+                return InputStream.nullInputStream();
+            }
+            int start = (int) (ringBufferWrittenBytes % ringBuffer.length);
+            return new SequenceInputStream(
+                    new ByteArrayInputStream(ringBuffer, start, ringBuffer.length - start),
+                    new ByteArrayInputStream(ringBuffer, 0, start));
+        }
+        if (Objects.isNull(spoolFile)) {
+            return new ByteArrayInputStream(memoryBuffer.toByteArray());
+        }
+        if (closed) {
+            throw new IllegalStateException("The spooled command output is already deleted.");
+        }
+        try {
+            spoolOutput.flush();
+            return Files.newInputStream(spoolFile.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading spooled command output failed.", e);
+        }
+    }
+
+    /**
+     * Read the retained output as string. The output is read once, later calls return the same
+     * string until more output is captured.
+     *
+     * @return the retained output.
+     */
+    public synchronized String readAsString() {
+        if (Objects.isNull(retainedText)) {
+            retainedText = readRetainedBytes(0);
+        }
+        return retainedText;
+    }
+
+    /**
+     * Read the tail of the retained output as string, at most the maximum retained bytes. Outputs
+     * retained as a whole with the NONE policy are not read into the heap completely.
+     *
+     * @return the tail of the retained output.
+     */
+    public synchronized String readTailAsString() {
+        long skippedBytes = retainedBytes - maxRetainedBytes;
+        return skippedBytes > 0 ? readRetainedBytes(skippedBytes) : readAsString();
+    }
+
+    private String readRetainedBytes(long skippedBytes) {
+        try (InputStream inputStream = openInputStream()) {
+            inputStream.skipNBytes(skippedBytes);
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Reading command output failed.", e);
+        }
+    }
+
+    /**
+     * Get the number of bytes of the output which were not retained.
+     *
+     * @return number of truncated bytes.
+     */
+    public synchronized long getTruncatedBytes() {
+        return totalBytes - retainedBytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        try {
+            if (Objects.nonNull(spoolOutput)) {
+                spoolOutput.close();
+            }
+        } catch (IOException e) {
+            log.warn("Closing spooled command output failed.", e);
+        }
+        if (Objects.nonNull(spoolFileCleanable)) {
+            spoolFileCleanable.clean();
+        }
+    }
+
+    private static void deleteSpoolFile(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            log.warn("Deleting spooled command output {} failed.", file, e);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(
+                "CommandOutputCapture(policy=%s, totalBytes=%d, retainedBytes=%d, spooled=%s)",
+                truncationPolicy, totalBytes, retainedBytes, Objects.nonNull(spoolFile));
+    }
+}
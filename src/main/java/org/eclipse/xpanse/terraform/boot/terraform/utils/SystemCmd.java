@@ -5,8 +5,9 @@
 
 package org.eclipse.xpanse.terraform.boot.terraform.utils;
 
-import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.eclipse.xpanse.terraform.boot.logging.CustomRequestIdGenerator.REQUEST_ID;
 
+import jakarta.annotation.PreDestroy;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
@@ -16,11 +17,16 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.xpanse.terraform.boot.async.ThreadMdcUtil;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.TerraformExecutorException;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /** Executes operating system commands. */
@@ -28,6 +34,83 @@ import org.springframework.stereotype.Component;
 @Component
 public class SystemCmd {
 
+    private static final String OUTPUT_READER_THREAD_NAME_PREFIX = "cmd-output-reader-";
+    private static final String STDOUT_STREAM_NAME = "stdout";
+    private static final String STDERR_STREAM_NAME = "stderr";
+
+    /**
+     * Pool shared by all commands to pump stdout and stderr of the started processes. Reader
+     * threads are blocked on I/O most of the time, hence the pool is unbounded and idle threads are
+     * reclaimed by the cached pool. With virtual threads enabled, every reader runs on its own
+     * virtual thread.
+     */
+    private final ExecutorService outputReaderExecutor;
+
+    private final int outputMemoryThresholdBytes;
+
+    private final long outputMaxRetainedBytes;
+
+    private final CommandOutputCapture.TruncationPolicy stdoutTruncationPolicy;
+
+    private final CommandOutputCapture.TruncationPolicy stderrTruncationPolicy;
+
+    private final TaskLogBus taskLogBus;
+
+    private final TaskExecutionRegistry taskExecutionRegistry;
+
+    private final long gracePeriodSeconds;
+
+    /**
+     * Constructor for the SystemCmd bean.
+     *
+     * @param virtualThreadsEnabled value of `spring.threads.virtual.enabled` property
+     * @param outputMemoryThresholdBytes value of `terraform.output.memory.threshold.bytes`
+     * @param outputMaxRetainedBytes value of `terraform.output.max.retained.bytes` property
+     * @param stdoutTruncationPolicy value of `terraform.stdout.truncation.policy` property
+     * @param stderrTruncationPolicy value of `terraform.stderr.truncation.policy` property
+     * @param taskLogBus bus to publish the output lines of the tasks
+     * @param taskExecutionRegistry registry of the tasks to stop their processes
+     * @param gracePeriodSeconds value of `terraform.task.stop.grace.period.seconds` property
+     */
+    public SystemCmd(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled,
+            @Value("${terraform.output.memory.threshold.bytes:1048576}")
+                    int outputMemoryThresholdBytes,
+            @Value("${terraform.output.max.retained.bytes:1048576}") long outputMaxRetainedBytes,
+            @Value("${terraform.stdout.truncation.policy:TAIL}")
+                    CommandOutputCapture.TruncationPolicy stdoutTruncationPolicy,
+            @Value("${terraform.stderr.truncation.policy:TAIL}")
+                    CommandOutputCapture.TruncationPolicy stderrTruncationPolicy,
+            TaskLogBus taskLogBus,
+            TaskExecutionRegistry taskExecutionRegistry,
+            @Value("${terraform.task.stop.grace.period.seconds:30}") long gracePeriodSeconds) {
+        this.taskLogBus = taskLogBus;
+        this.taskExecutionRegistry = taskExecutionRegistry;
+        this.gracePeriodSeconds = gracePeriodSeconds;
+        this.outputMemoryThresholdBytes = outputMemoryThresholdBytes;
+        this.outputMaxRetainedBytes = outputMaxRetainedBytes;
+        this.stdoutTruncationPolicy = stdoutTruncationPolicy;
+        this.stderrTruncationPolicy = stderrTruncationPolicy;
+        if (virtualThreadsEnabled) {
+            this.outputReaderExecutor =
+                    Executors.newThreadPerTaskExecutor(
+                            Thread.ofVirtual().name(OUTPUT_READER_THREAD_NAME_PREFIX, 0).factory());
+        } else {
+            this.outputReaderExecutor =
+                    Executors.newCachedThreadPool(
+                            Thread.ofPlatform()
+                                    .name(OUTPUT_READER_THREAD_NAME_PREFIX, 0)
+                                    .daemon()
+                                    .factory());
+        }
+    }
+
+    /** Stops the shared output reader pool when the application is shut down. */
+    @PreDestroy
+    public void shutdownOutputReaderExecutor() {
+        outputReaderExecutor.shutdownNow();
+    }
+
     public SystemCmdResult execute(
             String cmd,
             String workspace,
@@ -37,10 +120,11 @@ public class SystemCmd {
     }
 
     /**
-     * Executes operating system command.
+     * Executes operating system command. The command is stopped when the wait time or the deadline
+     * of the task running it is exceeded, or when the task is cancelled.
      *
      * @param cmd command to be executed.
-     * @param waitSecond time to wait for the command to be completed.
+     * @param waitSecond time to wait for the command to be completed, 0 to wait without limit.
      * @return returns SystemCmdResult object which has all the execution details.
      */
     public SystemCmdResult execute(
@@ -49,9 +133,78 @@ public class SystemCmd {
             String workspace,
             boolean isCommandOutputToBeLogged,
             Map<String, String> envVariables) {
+        return execute(cmd, waitSecond, workspace, isCommandOutputToBeLogged, envVariables, null);
+    }
+
+    /**
+     * Executes operating system command. The command is stopped when the wait time or the deadline
+     * of the task running it is exceeded, or when the task is cancelled.
+     *
+     * @param cmd command to be executed.
+     * @param waitSecond time to wait for the command to be completed, 0 to wait without limit.
+     * @param stdoutLineConsumer consumer of each stdout line as it is read, may be null.
+     * @return returns SystemCmdResult object which has all the execution details.
+     */
+    public SystemCmdResult execute(
+            String cmd,
+            int waitSecond,
+            String workspace,
+            boolean isCommandOutputToBeLogged,
+            Map<String, String> envVariables,
+            Consumer<String> stdoutLineConsumer) {
+        return execute(
+                cmd,
+                waitSecond,
+                workspace,
+                isCommandOutputToBeLogged,
+                envVariables,
+                stdoutLineConsumer,
+                stdoutTruncationPolicy);
+    }
+
+    /**
+     * Executes operating system command whose stdout is parsed by the caller. The stdout is
+     * captured completely, regardless of the truncation policy.
+     *
+     * @param cmd command to be executed.
+     * @return returns SystemCmdResult object which has all the execution details.
+     */
+    public SystemCmdResult executeWithCompleteStdout(
+            String cmd,
+            String workspace,
+            boolean isCommandOutputToBeLogged,
+            Map<String, String> envVariables) {
+        return execute(
+                cmd,
+                0,
+                workspace,
+                isCommandOutputToBeLogged,
+                envVariables,
+                null,
+                CommandOutputCapture.TruncationPolicy.NONE);
+    }
+
+    private SystemCmdResult execute(
+            String cmd,
+            int waitSecond,
+            String workspace,
+            boolean isCommandOutputToBeLogged,
+            Map<String, String> envVariables,
+            Consumer<String> stdoutLineConsumer,
+            CommandOutputCapture.TruncationPolicy stdoutTruncationPolicy) {
         SystemCmdResult systemCmdResult = new SystemCmdResult();
         systemCmdResult.setCommandExecuted(cmd);
+        TaskExecutionRegistry.TaskExecution taskExecution =
+                taskExecutionRegistry.get(MDC.get(REQUEST_ID));
+        if (Objects.nonNull(taskExecution) && taskExecution.isStopped()) {
+            log.warn("SystemCmd skipped cmd of stopped task: " + cmd);
+            systemCmdResult.setCommandSuccessful(false);
+            systemCmdResult.setCommandStdError(taskExecution.getStopReason());
+            return systemCmdResult;
+        }
         log.info("SystemCmd executing cmd: " + String.join(" ", cmd));
+        long startTime = System.currentTimeMillis();
+        Process process = null;
         try {
             String[] safeCmd = cmd.split(" +");
             ProcessBuilder processBuilder = new ProcessBuilder(safeCmd);
@@ -59,49 +212,114 @@ public class SystemCmd {
                 processBuilder.environment().putAll(envVariables);
             }
             processBuilder.directory(new File(workspace));
-            Process process = processBuilder.start();
-            readProcessOutput(process, systemCmdResult, isCommandOutputToBeLogged);
+            if (Objects.nonNull(taskExecution)) {
+                // the subcommand of the executable, e.g. init or apply for terraform.
+                taskExecution.setPhase(safeCmd.length > 1 ? safeCmd[1] : safeCmd[0]);
+            }
+            process = processBuilder.start();
+            if (Objects.nonNull(taskExecution)) {
+                taskExecution.attach(process, workspace);
+            }
+            ProcessOutput processOutput =
+                    readProcessOutput(
+                            process,
+                            isCommandOutputToBeLogged,
+                            stdoutLineConsumer,
+                            stdoutTruncationPolicy);
+            String stopReason = waitForProcess(process, waitSecond, taskExecution);
+            processOutput.collect(systemCmdResult);
 
-            if (waitSecond <= 0) {
-                process.waitFor();
-            } else {
-                if (!process.waitFor(waitSecond, TimeUnit.SECONDS)) {
-                    log.error("SystemCmd wait process failed");
-                    systemCmdResult.setCommandSuccessful(false);
-                }
+            if (Objects.isNull(stopReason) && Objects.nonNull(taskExecution)) {
+                stopReason = taskExecution.getStopReason();
             }
-            if (process.exitValue() != 0) {
+            if (Objects.nonNull(stopReason)) {
+                log.error("SystemCmd process stopped. {}", stopReason);
+                String stdError = systemCmdResult.getCommandStdError();
+                systemCmdResult.setCommandSuccessful(false);
+                systemCmdResult.setCommandStdError(
+                        StringUtils.isEmpty(stdError)
+                                ? stopReason
+                                : stopReason + System.lineSeparator() + stdError);
+            } else if (process.exitValue() != 0) {
                 log.error(
                         "SystemCmd process finished with abnormal value {}.", process.exitValue());
                 systemCmdResult.setCommandSuccessful(false);
             } else {
                 systemCmdResult.setCommandSuccessful(true);
             }
-            log.debug("stdout of the command: " + systemCmdResult.getCommandStdOutput());
-            log.debug("stderr of the command: " + systemCmdResult.getCommandStdError());
+            if (log.isDebugEnabled()) {
+                log.debug("stdout of the command: " + systemCmdResult.getCommandStdOutput());
+                log.debug("stderr of the command: " + systemCmdResult.getCommandStdError());
+            }
         } catch (final IOException ex) {
             systemCmdResult.setCommandSuccessful(false);
             systemCmdResult.setCommandStdError(ex.getMessage());
         } catch (final InterruptedException ex) {
             log.error("SystemCmd process be interrupted.");
             Thread.currentThread().interrupt();
+            if (Objects.nonNull(process)) {
+                TaskExecutionRegistry.terminateProcessTree(process, gracePeriodSeconds);
+            }
             systemCmdResult.setCommandSuccessful(false);
             systemCmdResult.setCommandStdError(ex.getMessage());
         } catch (ExecutionException e) {
             systemCmdResult.setCommandSuccessful(false);
             systemCmdResult.setCommandStdError(e.getMessage());
             throw new TerraformExecutorException(e.getMessage());
+        } finally {
+            if (Objects.nonNull(taskExecution)) {
+                taskExecution.detach();
+            }
+            systemCmdResult.setDurationInMillis(System.currentTimeMillis() - startTime);
         }
         return systemCmdResult;
     }
 
-    private String readStream(
+    /**
+     * Wait for the process to exit. If the wait time or the deadline of the task is exceeded, the
+     * process is stopped and the reason is returned.
+     *
+     * @return the reason why the process was stopped, or null if it exited by itself.
+     */
+    private String waitForProcess(
+            Process process, int waitSecond, TaskExecutionRegistry.TaskExecution taskExecution)
+            throws InterruptedException {
+        long waitMillis = waitSecond > 0 ? TimeUnit.SECONDS.toMillis(waitSecond) : Long.MAX_VALUE;
+        boolean deadlineFirst =
+                Objects.nonNull(taskExecution) && taskExecution.getRemainingMillis() < waitMillis;
+        if (deadlineFirst) {
+            waitMillis = taskExecution.getRemainingMillis();
+        }
+        if (waitMillis == Long.MAX_VALUE) {
+            process.waitFor();
+            return null;
+        }
+        if (process.waitFor(waitMillis, TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        String stopReason;
+        if (deadlineFirst) {
+            stopReason = "The task exceeded its deadline.";
+            taskExecution.stop(stopReason);
+        } else {
+            stopReason = "The command did not complete within " + waitSecond + " seconds.";
+            TaskExecutionRegistry.terminateProcessTree(process, gracePeriodSeconds);
+        }
+        // terraform persists the state and releases the lock before exiting on SIGINT.
+        process.waitFor();
+        return stopReason;
+    }
+
+    private CommandOutputCapture readStream(
             BufferedReader bufferedReader,
-            Map<String, String> contextMap,
-            boolean isCommandOutputToBeLogged) {
-        // copying MDC context of the main deployment thread to the stream reader thread.
-        MDC.setContextMap(contextMap);
-        StringBuilder stringBuilder = new StringBuilder();
+            String streamName,
+            CommandOutputCapture.TruncationPolicy truncationPolicy,
+            boolean isCommandOutputToBeLogged,
+            Consumer<String> lineConsumer) {
+        CommandOutputCapture outputCapture =
+                new CommandOutputCapture(
+                        truncationPolicy, outputMaxRetainedBytes, outputMemoryThresholdBytes);
+        String requestId = MDC.get(REQUEST_ID);
         bufferedReader
                 .lines()
                 .forEach(
@@ -109,62 +327,91 @@ public class SystemCmd {
                             if (isCommandOutputToBeLogged) {
                                 log.info(line);
                             }
-                            // skip adding new line for the first line.
-                            if (!stringBuilder.isEmpty()) {
-                                stringBuilder.append(System.lineSeparator());
+                            outputCapture.appendLine(line);
+                            if (Objects.nonNull(lineConsumer)) {
+                                lineConsumer.accept(line);
                             }
-                            stringBuilder.append(line);
+                            taskLogBus.publish(requestId, streamName, line);
                         });
-        return stringBuilder.toString();
+        return outputCapture;
     }
 
-    private void readProcessOutput(
-            Process process, SystemCmdResult systemCmdResult, boolean isCommandOutputToBeLogged)
-            throws IOException, ExecutionException, InterruptedException {
-        if (Objects.isNull(process)) {
-            return;
-        }
+    private ProcessOutput readProcessOutput(
+            Process process,
+            boolean isCommandOutputToBeLogged,
+            Consumer<String> stdoutLineConsumer,
+            CommandOutputCapture.TruncationPolicy stdoutTruncationPolicy) {
         final Map<String, String> contextMap =
                 new HashMap<>(
                         Objects.nonNull(MDC.getCopyOfContextMap())
                                 ? MDC.getCopyOfContextMap()
                                 : new HashMap<>());
 
-        // Starting threads in parallel to read stdout and stderr. This is needed because in
-        // some cases reading stdout first works and in some cases reading stderr first works.
-        // we now let both stdout and stderr streams to be fully read in parallel and then read
-        // the output after the buffers are fully read.
+        // Both stdout and stderr are pumped in parallel by the shared reader pool. This is needed
+        // because the process blocks if either of its output buffers is full. The MDC context of
+        // the main deployment thread is copied to the reader threads. The streams reach EOF when
+        // the process exits, meanwhile the calling thread watches the deadline of the process.
         BufferedReader stdoutReader =
                 new BufferedReader(new InputStreamReader(process.getInputStream()));
-
-        try (ExecutorService threadToReadStdout = newSingleThreadExecutor()) {
-            Future<String> stdOutFuture =
-                    threadToReadStdout.submit(
-                            () -> readStream(stdoutReader, contextMap, isCommandOutputToBeLogged));
-
-            BufferedReader stdErrorReader =
-                    new BufferedReader(new InputStreamReader(process.getErrorStream()));
-            Future<String> stdErrFuture;
-            try (ExecutorService threadToReadStdErr = newSingleThreadExecutor()) {
-                stdErrFuture =
-                        threadToReadStdErr.submit(
+        BufferedReader stdErrorReader =
+                new BufferedReader(new InputStreamReader(process.getErrorStream()));
+        Future<CommandOutputCapture> stdOutFuture =
+                outputReaderExecutor.submit(
+                        ThreadMdcUtil.wrap(
+                                () ->
+                                        readStream(
+                                                stdoutReader,
+                                                STDOUT_STREAM_NAME,
+                                                stdoutTruncationPolicy,
+                                                isCommandOutputToBeLogged,
+                                                stdoutLineConsumer),
+                                contextMap));
+        Future<CommandOutputCapture> stdErrFuture =
+                outputReaderExecutor.submit(
+                        ThreadMdcUtil.wrap(
                                 () ->
                                         readStream(
                                                 stdErrorReader,
-                                                contextMap,
-                                                isCommandOutputToBeLogged));
-
-                int count = 0;
-                while (!stdOutFuture.isDone() || !stdErrFuture.isDone()) {
-                    if (count++ < 10 || count % 100000 == 0) {
-                        log.debug("Command output and error streams are still being read.");
-                    }
-                }
-
-                systemCmdResult.setCommandStdError(stdErrFuture.get());
-                systemCmdResult.setCommandStdOutput(stdOutFuture.get());
-                threadToReadStdout.shutdown();
-                threadToReadStdErr.shutdown();
+                                                STDERR_STREAM_NAME,
+                                                stderrTruncationPolicy,
+                                                isCommandOutputToBeLogged,
+                                                null),
+                                contextMap));
+        return new ProcessOutput(stdOutFuture, stdErrFuture);
+    }
+
+    /** Output of a process being read by the reader pool. */
+    private record ProcessOutput(
+            Future<CommandOutputCapture> stdOutFuture, Future<CommandOutputCapture> stdErrFuture) {
+
+        /**
+         * Collect the captured outputs into the result. If reading fails, all captures are closed,
+         * so no spooled output is left to the cleaner.
+         */
+        void collect(SystemCmdResult systemCmdResult)
+                throws ExecutionException, InterruptedException {
+            try {
+                systemCmdResult.setCommandStdOutputCapture(stdOutFuture.get());
+                systemCmdResult.setCommandStdErrorCapture(stdErrFuture.get());
+            } catch (InterruptedException e) {
+                stdOutFuture.cancel(true);
+                stdErrFuture.cancel(true);
+                systemCmdResult.close();
+                throw e;
+            } catch (ExecutionException e) {
+                systemCmdResult.close();
+                // the process has exited, hence the stderr reader completes as well.
+                closeCapture(stdErrFuture);
+                throw e;
+            }
+        }
+
+        private static void closeCapture(Future<CommandOutputCapture> outputFuture)
+                throws InterruptedException {
+            try {
+                outputFuture.get().close();
+            } catch (ExecutionException e) {
+                log.debug("Nothing was captured by the failed output reader.");
             }
         }
     }
@@ -5,14 +5,76 @@
 
 package org.eclipse.xpanse.terraform.boot.terraform.utils;
 
+import java.io.Closeable;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import lombok.Data;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformChangeSummary;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformDiagnostic;
 
-/** Encapsulates a result of system command execution. */
+/**
+ * Encapsulates a result of system command execution. The result must be closed to delete the
+ * spooled output of the command.
+ */
 @Data
-public class SystemCmdResult {
+public class SystemCmdResult implements Closeable {
 
     private String commandExecuted;
     private boolean isCommandSuccessful;
-    private String commandStdOutput;
-    private String commandStdError;
+
+    /** Captured stdout of the command, large outputs should be read as stream from it. */
+    private CommandOutputCapture commandStdOutputCapture;
+
+    /** Captured stderr of the command. */
+    private CommandOutputCapture commandStdErrorCapture;
+
+    private long durationInMillis;
+
+    /** Duration of each terraform phase that was executed to produce this result. */
+    private Map<String, Long> phaseDurationsInMillis;
+
+    /** Diagnostics reported by terraform, only parsed when the JSON output is enabled. */
+    private List<TerraformDiagnostic> diagnostics;
+
+    /** Summary of the resource changes, only parsed when the JSON output is enabled. */
+    private TerraformChangeSummary changeSummary;
+
+    /** Duration of the action on each resource, only parsed when the JSON output is enabled. */
+    private Map<String, Long> resourceDurationsInSeconds;
+
+    public String getCommandStdOutput() {
+        return Objects.nonNull(commandStdOutputCapture)
+                ? commandStdOutputCapture.readAsString()
+                : null;
+    }
+
+    public void setCommandStdOutput(String commandStdOutput) {
+        closeCapture(commandStdOutputCapture);
+        this.commandStdOutputCapture = CommandOutputCapture.of(commandStdOutput);
+    }
+
+    public String getCommandStdError() {
+        return Objects.nonNull(commandStdErrorCapture)
+                ? commandStdErrorCapture.readAsString()
+                : null;
+    }
+
+    public void setCommandStdError(String commandStdError) {
+        closeCapture(commandStdErrorCapture);
+        this.commandStdErrorCapture = CommandOutputCapture.of(commandStdError);
+    }
+
+    /** Close the captured outputs, the spooled outputs are deleted. */
+    @Override
+    public void close() {
+        closeCapture(commandStdOutputCapture);
+        closeCapture(commandStdErrorCapture);
+    }
+
+    private static void closeCapture(CommandOutputCapture capture) {
+        if (Objects.nonNull(capture)) {
+            capture.close();
+        }
+    }
 }
@@ -0,0 +1,364 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.utils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registry of the running and queued tasks, to enforce their deadlines, to cancel them and to
+ * report their status without touching the file system. A task is stopped by sending SIGINT to its
+ * terraform process, so terraform can release the state lock and persist the state. Processes of
+ * the tree still alive after the grace period are killed. The log of a task is opened when it is
+ * registered and completed when it ends, for synchronous and asynchronous tasks alike.
+ */
+@Slf4j
+@Component
+public class TaskExecutionRegistry {
+
+    private final Map<String, TaskExecution> executions = new ConcurrentHashMap<>();
+
+    private final Map<TaskOperationType, Long> operationTimeoutSeconds;
+
+    private final long gracePeriodSeconds;
+
+    private final TaskLogBus taskLogBus;
+
+    /**
+     * Constructor for the TaskExecutionRegistry bean.
+     *
+     * @param planTimeoutSeconds value of `terraform.task.timeout.plan.seconds` property
+     * @param applyTimeoutSeconds value of `terraform.task.timeout.apply.seconds` property
+     * @param destroyTimeoutSeconds value of `terraform.task.timeout.destroy.seconds` property
+     * @param gracePeriodSeconds value of `terraform.task.stop.grace.period.seconds` property
+     * @param taskLogBus bus of the output lines of the tasks
+     */
+    public TaskExecutionRegistry(
+            @Value("${terraform.task.timeout.plan.seconds:1800}") long planTimeoutSeconds,
+            @Value("${terraform.task.timeout.apply.seconds:7200}") long applyTimeoutSeconds,
+            @Value("${terraform.task.timeout.destroy.seconds:7200}") long destroyTimeoutSeconds,
+            @Value("${terraform.task.stop.grace.period.seconds:30}") long gracePeriodSeconds,
+            TaskLogBus taskLogBus) {
+        this.operationTimeoutSeconds =
+                Map.of(
+                        TaskOperationType.PLAN, planTimeoutSeconds,
+                        TaskOperationType.APPLY, applyTimeoutSeconds,
+                        TaskOperationType.DESTROY, destroyTimeoutSeconds);
+        this.gracePeriodSeconds = gracePeriodSeconds;
+        this.taskLogBus = taskLogBus;
+    }
+
+    /**
+     * Register an async task without deadline when it is queued. The log of the task is retained
+     * after it ends. The returned execution must be closed when the task ends.
+     *
+     * @param requestId id of the request.
+     * @return the execution of the task.
+     */
+    public TaskExecution register(String requestId) {
+        return register(requestId, true);
+    }
+
+    private TaskExecution register(String requestId, boolean retainLog) {
+        if (StringUtils.isBlank(requestId)) {
+            return new TaskExecution(null);
+        }
+        return executions.compute(
+                requestId,
+                (id, execution) -> {
+                    taskLogBus.open(id, retainLog);
+                    TaskExecution taskExecution =
+                            Objects.nonNull(execution) ? execution : new TaskExecution(id);
+                    taskExecution.references++;
+                    return taskExecution;
+                });
+    }
+
+    /**
+     * Register a task which starts running now. The deadline of the task is the timeout of the
+     * request, or the configured timeout of the operation. A timeout of 0 means no deadline. The
+     * log of a task which was not queued is only kept while it has subscribers. The returned
+     * execution must be closed when the task ends.
+     *
+     * @param requestId id of the request.
+     * @param operationType operation type of the task.
+     * @param timeoutSeconds timeout of the request, null to use the timeout of the operation.
+     * @return the execution of the task.
+     */
+    public TaskExecution register(
+            String requestId, TaskOperationType operationType, Integer timeoutSeconds) {
+        TaskExecution execution = register(requestId, false);
+        execution.start(
+                operationType,
+                Objects.nonNull(timeoutSeconds)
+                        ? timeoutSeconds
+                        : operationTimeoutSeconds.get(operationType));
+        return execution;
+    }
+
+    /**
+     * Get the execution of a registered task.
+     *
+     * @param requestId id of the request.
+     * @return the execution of the task, or null if the task is not registered.
+     */
+    public TaskExecution get(String requestId) {
+        return StringUtils.isBlank(requestId) ? null : executions.get(requestId);
+    }
+
+    /**
+     * Cancel a registered task. The running terraform process of the task is stopped, and the
+     * following commands of the task are not started.
+     *
+     * @param requestId id of the request.
+     * @return true if the task was registered.
+     */
+    public boolean cancel(String requestId) {
+        TaskExecution execution = get(requestId);
+        if (Objects.isNull(execution)) {
+            return false;
+        }
+        log.info("Cancel task {}.", requestId);
+        execution.stop("The task was cancelled.");
+        return true;
+    }
+
+    /**
+     * Stop a process and all its descendants. SIGINT is sent to the process first, the processes
+     * still alive after the grace period are killed.
+     *
+     * @param process process to stop.
+     * @param gracePeriodSeconds time to wait for the process to exit after SIGINT.
+     */
+    public static void terminateProcessTree(Process process, long gracePeriodSeconds) {
+        terminateProcessTree(process.toHandle(), gracePeriodSeconds);
+    }
+
+    /**
+     * Stop a process and all its descendants, the process need not be a child of this JVM. SIGINT
+     * is sent to the process first, the processes still alive after the grace period are killed.
+     *
+     * @param process handle of the process to stop.
+     * @param gracePeriodSeconds time to wait for the process to exit after SIGINT.
+     * @return future completed when the process has exited or was killed.
+     */
+    public static CompletableFuture<Void> terminateProcessTree(
+            ProcessHandle process, long gracePeriodSeconds) {
+        if (!process.isAlive()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<ProcessHandle> descendants = process.descendants().toList();
+        sendInterrupt(process);
+        return process.onExit()
+                .completeOnTimeout(process, gracePeriodSeconds, TimeUnit.SECONDS)
+                .thenRun(
+                        () -> {
+                            process.descendants().forEach(ProcessHandle::destroyForcibly);
+                            descendants.stream()
+                                    .filter(ProcessHandle::isAlive)
+                                    .forEach(ProcessHandle::destroyForcibly);
+                            if (process.isAlive()) {
+                                log.warn(
+                                        "Process {} did not exit after {} seconds, killed it.",
+                                        process.pid(),
+                                        gracePeriodSeconds);
+                                process.destroyForcibly();
+                            }
+                        });
+    }
+
+    /** Send SIGINT to the process, like a Ctrl+C. Falls back to SIGTERM if this fails. */
+    private static void sendInterrupt(ProcessHandle process) {
+        try {
+            Process kill =
+                    new ProcessBuilder("kill", "-INT", String.valueOf(process.pid())).start();
+            if (kill.waitFor(5, TimeUnit.SECONDS) && kill.exitValue() == 0) {
+                return;
+            }
+        } catch (IOException e) {
+            log.debug("Sending SIGINT to process {} failed.", process.pid());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        process.destroy();
+    }
+
+    /** Execution of a task, closing it removes the task from the registry. */
+    public final class TaskExecution implements AutoCloseable {
+
+        private final String requestId;
+        private final Instant registeredAt = Instant.now();
+        private final long registeredNanos = System.nanoTime();
+        private int references;
+        private volatile Instant startedAt;
+        private volatile TaskOperationType operationType;
+        private volatile String phase;
+        private volatile long deadlineNanos;
+        private volatile String stopReason;
+        private volatile BiConsumer<String, ProcessHandle> processListener;
+        private Process process;
+
+        private TaskExecution(String requestId) {
+            this.requestId = requestId;
+        }
+
+        private synchronized void start(TaskOperationType operationType, long timeoutSeconds) {
+            if (Objects.isNull(startedAt)) {
+                startedAt = Instant.now();
+                this.operationType = operationType;
+            }
+            if (deadlineNanos == 0 && timeoutSeconds > 0) {
+                deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            }
+        }
+
+        /**
+         * Get the time until the deadline of the task.
+         *
+         * @return remaining time in milliseconds, Long.MAX_VALUE if the task has no deadline.
+         */
+        public long getRemainingMillis() {
+            long deadline = deadlineNanos;
+            return deadline == 0
+                    ? Long.MAX_VALUE
+                    : Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        }
+
+        public Instant getRegisteredAt() {
+            return registeredAt;
+        }
+
+        public Instant getStartedAt() {
+            return startedAt;
+        }
+
+        public TaskOperationType getOperationType() {
+            return operationType;
+        }
+
+        public boolean isRunning() {
+            return Objects.nonNull(startedAt);
+        }
+
+        /**
+         * Get the time since the task was registered.
+         *
+         * @return elapsed time in milliseconds.
+         */
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - registeredNanos);
+        }
+
+        /**
+         * Get the phase of the running task.
+         *
+         * @return the command the task is running, e.g. init or apply, or null if none started.
+         */
+        public String getPhase() {
+            return phase;
+        }
+
+        public void setPhase(String phase) {
+            this.phase = phase;
+        }
+
+        /**
+         * Get the reason why the task was stopped.
+         *
+         * @return the reason, or null if the task is not stopped.
+         */
+        public String getStopReason() {
+            return stopReason;
+        }
+
+        public boolean isStopped() {
+            return Objects.nonNull(stopReason);
+        }
+
+        /**
+         * Set the listener of the processes started by the task, e.g. to record them in the task
+         * journal.
+         *
+         * @param processListener listener called with the workspace and the handle of each process.
+         */
+        public void setProcessListener(BiConsumer<String, ProcessHandle> processListener) {
+            this.processListener = processListener;
+        }
+
+        /**
+         * Attach the started process to the task. The process is stopped immediately if the task
+         * was stopped while it was starting.
+         *
+         * @param process the started process.
+         * @param workspace working directory of the process.
+         */
+        public void attach(Process process, String workspace) {
+            BiConsumer<String, ProcessHandle> listener = processListener;
+            if (Objects.nonNull(listener)) {
+                listener.accept(workspace, process.toHandle());
+            }
+            synchronized (this) {
+                this.process = process;
+                if (!isStopped()) {
+                    return;
+                }
+            }
+            terminateProcessTree(process, gracePeriodSeconds);
+        }
+
+        /** Detach the exited process from the task. */
+        public synchronized void detach() {
+            this.process = null;
+        }
+
+        /**
+         * Stop the task. The running process is stopped and no further commands are started.
+         *
+         * @param reason reason why the task is stopped.
+         */
+        public void stop(String reason) {
+            Process stoppedProcess;
+            synchronized (this) {
+                if (isStopped()) {
+                    return;
+                }
+                stopReason = reason;
+                stoppedProcess = process;
+            }
+            // sending the signal forks kill, which must not block attach and detach of the task.
+            if (Objects.nonNull(stoppedProcess)) {
+                terminateProcessTree(stoppedProcess, gracePeriodSeconds);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (Objects.isNull(requestId)) {
+                return;
+            }
+            TaskExecution remainingExecution =
+                    executions.computeIfPresent(
+                            requestId,
+                            (id, execution) -> --execution.references > 0 ? execution : null);
+            if (Objects.isNull(remainingExecution)) {
+                // the task has ended, the subscribers of its log are completed.
+                taskLogBus.complete(requestId);
+            }
+        }
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.utils;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Per-request bus of the output lines of the terraform commands. The log of a task is opened when
+ * the task is registered and completed when it ends. The lines are published by the output readers
+ * of the {@link SystemCmd} and kept in a history bounded by size, so subscribers can resume from an
+ * offset. The history of async tasks is retained until the retention time after they end. Other
+ * tasks only keep a history while they have subscribers, and their log is removed when they end.
+ * Every subscriber has a bounded buffer and its own delivery thread. Publishing never blocks: lines
+ * which do not fit into the full buffer of a slow subscriber are read from the history once the
+ * subscriber has drained its buffer.
+ */
+@Slf4j
+@Component
+public class TaskLogBus {
+
+    private static final String SUBSCRIBER_THREAD_NAME_PREFIX = "task-log-subscriber-";
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 15000;
+
+    private final Map<String, TaskLog> taskLogs = new ConcurrentHashMap<>();
+
+    private final ExecutorService subscriberExecutor;
+
+    private final long maxRetainedBytes;
+
+    private final int subscriberBufferSize;
+
+    private final long retentionMillis;
+
+    /**
+     * Constructor for the TaskLogBus bean.
+     *
+     * @param virtualThreadsEnabled value of `spring.threads.virtual.enabled` property
+     * @param maxRetainedBytes value of `terraform.task.logs.max.retained.bytes` property
+     * @param subscriberBufferSize value of `terraform.task.logs.subscriber.buffer.size` property
+     * @param retentionSeconds value of `terraform.task.logs.retention.seconds` property
+     */
+    public TaskLogBus(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreadsEnabled,
+            @Value("${terraform.task.logs.max.retained.bytes:4194304}") long maxRetainedBytes,
+            @Value("${terraform.task.logs.subscriber.buffer.size:1000}") int subscriberBufferSize,
+            @Value("${terraform.task.logs.retention.seconds:600}") long retentionSeconds) {
+        this.maxRetainedBytes = Math.max(1, maxRetainedBytes);
+        this.subscriberBufferSize = Math.max(1, subscriberBufferSize);
+        this.retentionMillis = TimeUnit.SECONDS.toMillis(retentionSeconds);
+        if (virtualThreadsEnabled) {
+            this.subscriberExecutor =
+                    Executors.newThreadPerTaskExecutor(
+                            Thread.ofVirtual().name(SUBSCRIBER_THREAD_NAME_PREFIX, 0).factory());
+        } else {
+            this.subscriberExecutor =
+                    Executors.newCachedThreadPool(
+                            Thread.ofPlatform()
+                                    .name(SUBSCRIBER_THREAD_NAME_PREFIX, 0)
+                                    .daemon()
+                                    .factory());
+        }
+    }
+
+    /** Stops the delivery threads of the subscribers when the application is shut down. */
+    @PreDestroy
+    public void shutdownSubscriberExecutor() {
+        subscriberExecutor.shutdownNow();
+    }
+
+    /**
+     * Open the log of a task, so it can be subscribed to before the task writes any output. Lines
+     * of tasks without an open log are not published.
+     *
+     * @param requestId id of the request, tasks without id have no log.
+     * @param retainHistory whether the history is retained without subscribers and after the task
+     *     ended, e.g. for async tasks whose log is read after the request returned.
+     */
+    public void open(String requestId, boolean retainHistory) {
+        if (Objects.isNull(requestId)) {
+            return;
+        }
+        TaskLog taskLog = taskLogs.computeIfAbsent(requestId, id -> new TaskLog());
+        if (retainHistory) {
+            taskLog.retainHistory = true;
+        }
+    }
+
+    /**
+     * Publish an output line of a task. This method never blocks on the subscribers.
+     *
+     * @param requestId id of the request which runs the command, lines of tasks without log are
+     *     ignored.
+     * @param stream name of the output stream, e.g. stdout or stderr.
+     * @param line output line without line terminator.
+     */
+    public void publish(String requestId, String stream, String line) {
+        if (Objects.isNull(requestId)) {
+            return;
+        }
+        TaskLog taskLog = taskLogs.get(requestId);
+        if (Objects.nonNull(taskLog)) {
+            taskLog.append(stream, line);
+        }
+    }
+
+    /**
+     * Mark the log of a task as completed. The subscribers are completed once they have received
+     * all lines. A retained history is kept for the configured retention time, other logs are
+     * removed.
+     *
+     * @param requestId id of the request.
+     */
+    public void complete(String requestId) {
+        if (Objects.isNull(requestId)) {
+            return;
+        }
+        TaskLog taskLog = taskLogs.get(requestId);
+        if (Objects.nonNull(taskLog)) {
+            taskLog.complete();
+            if (!taskLog.retainHistory) {
+                taskLogs.remove(requestId, taskLog);
+            }
+        }
+    }
+
+    /**
+     * Subscribe to the log of a task. The lines are delivered to the listener on a dedicated
+     * thread, starting with the retained lines from the given offset.
+     *
+     * @param requestId id of the request.
+     * @param fromOffset offset of the first line to deliver.
+     * @param listener listener of the log.
+     * @return subscription to cancel, or null if there is no log of the task.
+     */
+    public TaskLogSubscription subscribe(
+            String requestId, long fromOffset, TaskLogListener listener) {
+        TaskLog taskLog = taskLogs.get(requestId);
+        if (Objects.isNull(taskLog)) {
+            return null;
+        }
+        Subscriber subscriber = new Subscriber(taskLog, Math.max(0, fromOffset), listener);
+        taskLog.subscribers.add(subscriber);
+        subscriberExecutor.execute(subscriber::deliver);
+        return subscriber;
+    }
+
+    /**
+     * Remove the logs which were completed, or did not receive any line, longer than the retention
+     * time ago. Subscribers of removed logs are completed. This method is scheduled to run every
+     * one minute.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredTaskLogs() {
+        long expiredBefore = System.currentTimeMillis() - retentionMillis;
+        taskLogs.entrySet()
+                .removeIf(
+                        entry -> {
+                            TaskLog taskLog = entry.getValue();
+                            if (taskLog.getLastModifiedMillis() >= expiredBefore) {
+                                return false;
+                            }
+                            taskLog.complete();
+                            log.debug("Evicted log of task {}.", entry.getKey());
+                            return true;
+                        });
+    }
+
+    /** Line of the output of a task. */
+    public record TaskLogLine(long offset, String stream, String line) {}
+
+    /** Listener of the log of a task. */
+    public interface TaskLogListener {
+
+        /**
+         * Receive a line of the log.
+         *
+         * @param line line of the log.
+         * @throws IOException if the line could not be delivered.
+         */
+        void onLine(TaskLogLine line) throws IOException;
+
+        /**
+         * Receive the number of lines which are no longer retained and are skipped.
+         *
+         * @param nextOffset offset of the next line delivered.
+         * @param skippedLines number of skipped lines.
+         * @throws IOException if the notification could not be delivered.
+         */
+        void onLinesSkipped(long nextOffset, long skippedLines) throws IOException;
+
+        /**
+         * Receive a heartbeat while no lines are published.
+         *
+         * @throws IOException if the heartbeat could not be delivered.
+         */
+        void onHeartbeat() throws IOException;
+
+        /** Receive the completion of the log after all lines were delivered. */
+        void onCompleted();
+    }
+
+    /** Subscription to the log of a task. */
+    public interface TaskLogSubscription {
+
+        /** Stop the delivery of the log. */
+        void cancel();
+    }
+
+    /** Bounded history and subscribers of the log of one task. */
+    private class TaskLog {
+
+        private final ArrayDeque<TaskLogLine> history = new ArrayDeque<>();
+        private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+        private long nextOffset;
+        private long retainedBytes;
+        private volatile boolean retainHistory;
+        private volatile boolean completed;
+        private volatile long lastModifiedMillis = System.currentTimeMillis();
+
+        void append(String stream, String line) {
+            TaskLogLine taskLogLine;
+            synchronized (this) {
+                taskLogLine = new TaskLogLine(nextOffset++, stream, line);
+                if (retainHistory || !subscribers.isEmpty()) {
+                    history.addLast(taskLogLine);
+                    retainedBytes += getSizeInBytes(taskLogLine);
+                    // the latest line is retained even if it exceeds the maximum size alone.
+                    while (retainedBytes > maxRetainedBytes && history.size() > 1) {
+                        retainedBytes -= getSizeInBytes(history.removeFirst());
+                    }
+                }
+            }
+            lastModifiedMillis = System.currentTimeMillis();
+            subscribers.forEach(subscriber -> subscriber.offer(taskLogLine));
+        }
+
+        void removeSubscriber(Subscriber subscriber) {
+            subscribers.remove(subscriber);
+            if (!retainHistory && subscribers.isEmpty()) {
+                synchronized (this) {
+                    history.clear();
+                    retainedBytes = 0;
+                }
+            }
+        }
+
+        void complete() {
+            completed = true;
+            lastModifiedMillis = System.currentTimeMillis();
+            subscribers.forEach(Subscriber::wakeUp);
+        }
+
+        synchronized long getNextOffset() {
+            return nextOffset;
+        }
+
+        synchronized long getFirstRetainedOffset() {
+            return history.isEmpty() ? nextOffset : history.getFirst().offset();
+        }
+
+        synchronized List<TaskLogLine> readHistory(long fromOffset, int maxLines) {
+            long firstRetainedOffset = getFirstRetainedOffset();
+            List<TaskLogLine> lines = new ArrayList<>();
+            history.stream()
+                    .skip(Math.max(0, fromOffset - firstRetainedOffset))
+                    .limit(maxLines)
+                    .forEach(lines::add);
+            return lines;
+        }
+
+        long getLastModifiedMillis() {
+            return lastModifiedMillis;
+        }
+
+        /** Size of the line, the output of terraform is mostly ASCII with one byte per char. */
+        private static long getSizeInBytes(TaskLogLine taskLogLine) {
+            return taskLogLine.line().length();
+        }
+    }
+
+    /** Subscriber with a bounded buffer, delivering the lines on its own thread. */
+    private class Subscriber implements TaskLogSubscription {
+
+        private static final TaskLogLine WAKE_UP = new TaskLogLine(-1, null, null);
+
+        private final TaskLog taskLog;
+        private final TaskLogListener listener;
+        private final BlockingQueue<TaskLogLine> buffer;
+        private volatile boolean cancelled;
+        private long nextOffset;
+
+        Subscriber(TaskLog taskLog, long fromOffset, TaskLogListener listener) {
+            this.taskLog = taskLog;
+            this.listener = listener;
+            this.nextOffset = fromOffset;
+            this.buffer = new ArrayBlockingQueue<>(subscriberBufferSize);
+        }
+
+        void offer(TaskLogLine line) {
+            // a full buffer drops the line, it is read from the history when catching up.
+            buffer.offer(line);
+        }
+
+        void wakeUp() {
+            buffer.offer(WAKE_UP);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            taskLog.removeSubscriber(this);
+            wakeUp();
+        }
+
+        void deliver() {
+            try {
+                while (!cancelled) {
+                    if (buffer.isEmpty()) {
+                        // lines dropped from the full buffer are delivered from the history.
+                        catchUpFromHistory(taskLog.getNextOffset());
+                        if (taskLog.completed && nextOffset >= taskLog.getNextOffset()) {
+                            listener.onCompleted();
+                            break;
+                        }
+                    }
+                    TaskLogLine line =
+                            buffer.poll(HEARTBEAT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (Objects.isNull(line)) {
+                        listener.onHeartbeat();
+                    } else if (line != WAKE_UP && line.offset() >= nextOffset) {
+                        catchUpFromHistory(line.offset());
+                        deliverLine(line);
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Delivering task log failed, the subscriber is removed.", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                taskLog.removeSubscriber(this);
+            }
+        }
+
+        private void catchUpFromHistory(long untilOffset) throws IOException {
+            while (!cancelled && nextOffset < untilOffset) {
+                long firstRetainedOffset = taskLog.getFirstRetainedOffset();
+                if (nextOffset < firstRetainedOffset) {
+                    long skippedLines = firstRetainedOffset - nextOffset;
+                    nextOffset = firstRetainedOffset;
+                    listener.onLinesSkipped(nextOffset, skippedLines);
+                }
+                List<TaskLogLine> lines =
+                        taskLog.readHistory(
+                                nextOffset,
+                                (int) Math.min(untilOffset - nextOffset, subscriberBufferSize));
+                if (lines.isEmpty()) {
+                    return;
+                }
+                for (TaskLogLine line : lines) {
+                    deliverLine(line);
+                }
+            }
+        }
+
+        private void deliverLine(TaskLogLine line) throws IOException {
+            if (line.offset() >= nextOffset) {
+                listener.onLine(line);
+                nextOffset = line.offset() + 1;
+            }
+        }
+    }
+}
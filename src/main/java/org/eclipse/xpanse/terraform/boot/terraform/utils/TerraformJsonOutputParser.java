@@ -0,0 +1,186 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ * SPDX-FileCopyrightText: Huawei Inc.
+ */
+
+package org.eclipse.xpanse.terraform.boot.terraform.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformChangeSummary;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformDiagnostic;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformProgressEvent;
+
+/**
+ * Parser of the machine-readable UI output that terraform writes with the `-json` option, one JSON
+ * message per line. The lines are parsed incrementally as they are read from the running command.
+ * Progress events are passed to the listener, diagnostics, the change summary and the durations of
+ * the resource actions are collected for the result. One parser is used for all commands of an
+ * operation, e.g. plan and apply, and is fed by one output reader at a time.
+ */
+@Slf4j
+public class TerraformJsonOutputParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String APPLY_START = "apply_start";
+    private static final String APPLY_COMPLETE = "apply_complete";
+    private static final String APPLY_ERRORED = "apply_errored";
+    private static final String CHANGE_SUMMARY = "change_summary";
+    private static final String DIAGNOSTIC = "diagnostic";
+    private static final Set<String> PROGRESS_EVENT_TYPES =
+            Set.of(APPLY_START, APPLY_COMPLETE, APPLY_ERRORED, CHANGE_SUMMARY, DIAGNOSTIC);
+
+    /** Nested objects which are not needed and can be large, like the source code snippets. */
+    private static final Set<String> SKIPPED_FIELDS = Set.of("diagnostic.snippet");
+
+    private final Consumer<TerraformProgressEvent> progressListener;
+
+    private final List<TerraformDiagnostic> diagnostics = new ArrayList<>();
+
+    private final Map<String, Long> resourceDurationsInSeconds = new LinkedHashMap<>();
+
+    private TerraformChangeSummary changeSummary;
+
+    public TerraformJsonOutputParser(Consumer<TerraformProgressEvent> progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Parse a line of the output. Lines which are not JSON messages of terraform are ignored.
+     *
+     * @param line line of the stdout of the command.
+     */
+    public void parseLine(String line) {
+        if (StringUtils.isBlank(line) || !line.startsWith("{")) {
+            return;
+        }
+        Map<String, String> fields = new HashMap<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(line)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                readFields(parser, "", fields);
+            }
+        } catch (IOException e) {
+            log.debug("Ignored terraform output line which is not valid JSON: {}", line);
+            return;
+        }
+        String type = fields.get("type");
+        if (Objects.isNull(type) || !PROGRESS_EVENT_TYPES.contains(type)) {
+            return;
+        }
+        TerraformProgressEvent event =
+                TerraformProgressEvent.builder()
+                        .type(type)
+                        .resourceAddress(fields.get("hook.resource.addr"))
+                        .action(fields.get("hook.action"))
+                        .elapsedSeconds(toLong(fields.get("hook.elapsed_seconds")))
+                        .message(fields.get("@message"))
+                        .timestamp(fields.get("@timestamp"))
+                        .build();
+        switch (type) {
+            case APPLY_COMPLETE, APPLY_ERRORED -> {
+                if (Objects.nonNull(event.getResourceAddress())
+                        && Objects.nonNull(event.getElapsedSeconds())) {
+                    resourceDurationsInSeconds.put(
+                            event.getResourceAddress(), event.getElapsedSeconds());
+                }
+            }
+            case CHANGE_SUMMARY ->
+                    changeSummary =
+                            TerraformChangeSummary.builder()
+                                    .operation(fields.get("changes.operation"))
+                                    .add(NumberUtils.toInt(fields.get("changes.add")))
+                                    .change(NumberUtils.toInt(fields.get("changes.change")))
+                                    .remove(NumberUtils.toInt(fields.get("changes.remove")))
+                                    .build();
+            case DIAGNOSTIC -> {
+                TerraformDiagnostic diagnostic =
+                        TerraformDiagnostic.builder()
+                                .severity(fields.get("diagnostic.severity"))
+                                .summary(fields.get("diagnostic.summary"))
+                                .detail(fields.get("diagnostic.detail"))
+                                .address(fields.get("diagnostic.address"))
+                                .filename(fields.get("diagnostic.range.filename"))
+                                .line(toInteger(fields.get("diagnostic.range.start.line")))
+                                .build();
+                diagnostics.add(diagnostic);
+                event.setResourceAddress(diagnostic.getAddress());
+            }
+            default -> {
+                // apply_start only reports progress.
+            }
+        }
+        try {
+            progressListener.accept(event);
+        } catch (RuntimeException e) {
+            log.warn("Publishing terraform progress event failed.", e);
+        }
+    }
+
+    /** Store the collected diagnostics, change summary and resource durations in the result. */
+    public void collect(SystemCmdResult systemCmdResult) {
+        systemCmdResult.setDiagnostics(List.copyOf(diagnostics));
+        systemCmdResult.setChangeSummary(changeSummary);
+        systemCmdResult.setResourceDurationsInSeconds(
+                new LinkedHashMap<>(resourceDurationsInSeconds));
+    }
+
+    /**
+     * Get the error diagnostics as text, terraform reports errors on stdout with the `-json`
+     * option.
+     *
+     * @return the summaries and details of the errors, or null if no error was reported.
+     */
+    public String getErrors() {
+        String errors =
+                diagnostics.stream()
+                        .filter(diagnostic -> "error".equals(diagnostic.getSeverity()))
+                        .map(
+                                diagnostic ->
+                                        StringUtils.isBlank(diagnostic.getDetail())
+                                                ? diagnostic.getSummary()
+                                                : diagnostic.getSummary()
+                                                        + ": "
+                                                        + diagnostic.getDetail())
+                        .collect(Collectors.joining(System.lineSeparator()));
+        return errors.isEmpty() ? null : errors;
+    }
+
+    /** Read the scalar fields of an object into the map, keyed by their dotted paths. */
+    private void readFields(JsonParser parser, String prefix, Map<String, String> fields)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String path = prefix + parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT && !SKIPPED_FIELDS.contains(path)) {
+                readFields(parser, path + ".", fields);
+            } else if (token.isStructStart()) {
+                parser.skipChildren();
+            } else if (token != JsonToken.VALUE_NULL) {
+                fields.put(path, parser.getText());
+            }
+        }
+    }
+
+    private static Long toLong(String value) {
+        return NumberUtils.isDigits(value) ? NumberUtils.createLong(value) : null;
+    }
+
+    private static Integer toInteger(String value) {
+        return NumberUtils.isDigits(value) ? NumberUtils.createInteger(value) : null;
+    }
+}
@@ -5,15 +5,91 @@
 
 package org.eclipse.xpanse.terraform.boot.utils;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.Getter;
 import org.eclipse.serializer.Serializer;
 import org.eclipse.serializer.SerializerFoundation;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformChangeSummary;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformDiagnostic;
 import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-/** class to manage TerraformResult serialization and deserialization using eclipse-serializer. */
+/**
+ * class to manage TerraformResult serialization and deserialization. The serialized data starts
+ * with a header holding the version of the framing, the format of the body and whether the body is
+ * gzip compressed, so results written with another configuration can still be read. Data without
+ * the header was written by earlier versions with eclipse-serializer.
+ */
 @Component
 public class TerraformResultSerializer {
 
+    private static final byte[] MAGIC = {'T', 'F', 'R', 'S'};
+    private static final byte FRAMING_VERSION = 1;
+    private static final byte GZIP_FLAG = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 3;
+
+    /** Formats of the serialized result. */
+    @Getter
+    public enum Format {
+        ECLIPSE_SERIALIZER((byte) 1),
+        SMILE((byte) 2),
+        CBOR((byte) 3);
+
+        private final byte id;
+
+        Format(byte id) {
+            this.id = id;
+        }
+
+        static Format of(byte id) {
+            return Arrays.stream(values())
+                    .filter(format -> format.id == id)
+                    .findFirst()
+                    .orElseThrow(
+                            () ->
+                                    new IllegalArgumentException(
+                                            "Unknown format of serialized result: " + id));
+        }
+    }
+
+    private final Format format;
+    private final boolean compressionEnabled;
+    private final ObjectMapper smileMapper = createMapper(new ObjectMapper(new SmileFactory()));
+    private final ObjectMapper cborMapper = createMapper(new ObjectMapper(new CBORFactory()));
+    // the type analysis of a serializer is expensive, and a serializer is used by one thread at a
+    // time, hence the serializers are pooled.
+    private final Queue<Serializer<byte[]>> eclipseSerializerPool = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Constructor for the TerraformResultSerializer bean.
+     *
+     * @param format value of `terraform.result.store.format` property
+     * @param compressionEnabled value of `terraform.result.store.compression.enabled` property
+     */
+    public TerraformResultSerializer(
+            @Value("${terraform.result.store.format:ECLIPSE_SERIALIZER}") Format format,
+            @Value("${terraform.result.store.compression.enabled:false}")
+                    boolean compressionEnabled) {
+        this.format = format;
+        this.compressionEnabled = compressionEnabled;
+    }
+
     /**
      * serialize TerraformResult object.
      *
@@ -21,10 +97,22 @@ public class TerraformResultSerializer {
      * @return byte[].
      */
     public byte[] serialize(TerraformResult result) {
-        final SerializerFoundation<?> foundation =
-                SerializerFoundation.New().registerEntityTypes(TerraformResult.class);
-        Serializer<byte[]> serializer = Serializer.Bytes(foundation);
-        return serializer.serialize(result);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        outputStream.writeBytes(MAGIC);
+        outputStream.write(FRAMING_VERSION);
+        outputStream.write(format.getId());
+        outputStream.write(compressionEnabled ? GZIP_FLAG : 0);
+        try (OutputStream bodyStream =
+                compressionEnabled ? new GZIPOutputStream(outputStream) : outputStream) {
+            switch (format) {
+                case SMILE -> smileMapper.writeValue(bodyStream, result);
+                case CBOR -> cborMapper.writeValue(bodyStream, result);
+                default -> bodyStream.write(serializeWithEclipseSerializer(result));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return outputStream.toByteArray();
     }
 
     /**
@@ -34,9 +122,68 @@ public class TerraformResultSerializer {
      * @return TerraformResult.
      */
     public TerraformResult deserialize(byte[] data) {
-        final SerializerFoundation<?> foundation =
-                SerializerFoundation.New().registerEntityTypes(TerraformResult.class);
-        Serializer<byte[]> serializer = Serializer.Bytes(foundation);
-        return serializer.deserialize(data);
+        if (!hasHeader(data)) {
+            return deserializeWithEclipseSerializer(data);
+        }
+        if (data[MAGIC.length] > FRAMING_VERSION) {
+            throw new IllegalArgumentException(
+                    "Unsupported version of serialized result: " + data[MAGIC.length]);
+        }
+        Format dataFormat = Format.of(data[MAGIC.length + 1]);
+        boolean compressed = (data[MAGIC.length + 2] & GZIP_FLAG) != 0;
+        try (InputStream bodyStream =
+                openBody(
+                        new ByteArrayInputStream(data, HEADER_LENGTH, data.length - HEADER_LENGTH),
+                        compressed)) {
+            return switch (dataFormat) {
+                case SMILE -> smileMapper.readValue(bodyStream, TerraformResult.class);
+                case CBOR -> cborMapper.readValue(bodyStream, TerraformResult.class);
+                default -> deserializeWithEclipseSerializer(bodyStream.readAllBytes());
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private InputStream openBody(InputStream inputStream, boolean compressed) throws IOException {
+        return compressed ? new GZIPInputStream(inputStream) : inputStream;
+    }
+
+    private boolean hasHeader(byte[] data) {
+        return data.length >= HEADER_LENGTH
+                && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    private byte[] serializeWithEclipseSerializer(TerraformResult result) {
+        Serializer<byte[]> serializer = borrowEclipseSerializer();
+        byte[] data = serializer.serialize(result);
+        // a serializer failed with an exception is not returned to the pool.
+        eclipseSerializerPool.offer(serializer);
+        return data;
+    }
+
+    private TerraformResult deserializeWithEclipseSerializer(byte[] data) {
+        Serializer<byte[]> serializer = borrowEclipseSerializer();
+        TerraformResult result = serializer.deserialize(data);
+        eclipseSerializerPool.offer(serializer);
+        return result;
+    }
+
+    private Serializer<byte[]> borrowEclipseSerializer() {
+        return Objects.requireNonNullElseGet(
+                eclipseSerializerPool.poll(),
+                () -> {
+                    final SerializerFoundation<?> foundation =
+                            SerializerFoundation.New()
+                                    .registerEntityTypes(
+                                            TerraformResult.class,
+                                            TerraformDiagnostic.class,
+                                            TerraformChangeSummary.class);
+                    return Serializer.Bytes(foundation);
+                });
+    }
+
+    private static ObjectMapper createMapper(ObjectMapper objectMapper) {
+        return objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     }
 }
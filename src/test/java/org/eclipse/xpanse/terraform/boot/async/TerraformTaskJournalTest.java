@@ -0,0 +1,186 @@
+package org.eclipse.xpanse.terraform.boot.async;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
+import org.eclipse.xpanse.terraform.boot.models.exceptions.TaskJournalException;
+import org.eclipse.xpanse.terraform.boot.models.request.scripts.TerraformAsyncDeployFromScriptsRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@Slf4j
+class TerraformTaskJournalTest {
+
+    @TempDir private Path journalDir;
+
+    @Test
+    void testRecoverUnfinishedTasksAfterReopen() {
+        UUID queuedId = UUID.randomUUID();
+        UUID runningId = UUID.randomUUID();
+        UUID completedId = UUID.randomUUID();
+        TerraformTaskJournal journal = openJournal(16);
+        journal.recordAccepted(newTask(queuedId));
+        journal.recordAccepted(newTask(runningId));
+        journal.recordAccepted(newTask(completedId));
+        journal.recordRunning(runningId);
+        journal.recordProcessStarted(runningId, "/tmp/" + runningId, ProcessHandle.current());
+        journal.recordRunning(completedId);
+        journal.recordCompleted(completedId);
+        journal.close();
+
+        TerraformTaskJournal reopenedJournal = openJournal(16);
+        List<JournaledTask> recoveredTasks = reopenedJournal.getRecoveredTasks();
+        reopenedJournal.close();
+
+        assertEquals(2, recoveredTasks.size());
+        JournaledTask queuedTask = recoveredTasks.getFirst();
+        assertEquals(queuedId, queuedTask.getRequestId());
+        assertEquals(JournaledTask.TaskPhase.QUEUED, queuedTask.getPhase());
+        assertEquals(
+                Map.of("key", "value"),
+                queuedTask
+                        .getRequestAs(TerraformAsyncDeployFromScriptsRequest.class)
+                        .getVariables());
+        JournaledTask runningTask = recoveredTasks.get(1);
+        assertEquals(runningId, runningTask.getRequestId());
+        assertEquals(JournaledTask.TaskPhase.RUNNING, runningTask.getPhase());
+        assertEquals("/tmp/" + runningId, runningTask.getWorkspace());
+        assertEquals(ProcessHandle.current().pid(), runningTask.getPid());
+        assertEquals(
+                ProcessHandle.current().info().startInstant().orElseThrow().toEpochMilli(),
+                runningTask.getProcessStartTime());
+    }
+
+    @Test
+    void testCompactJournal() throws Exception {
+        TerraformTaskJournal journal = openJournal(0);
+        UUID unfinishedId = UUID.randomUUID();
+        journal.recordAccepted(newTask(unfinishedId));
+        for (int i = 0; i < 10; i++) {
+            UUID requestId = UUID.randomUUID();
+            journal.recordAccepted(newTask(requestId));
+            journal.recordCompleted(requestId);
+        }
+        // accepting a task waits for the previous records to be written.
+        journal.recordAccepted(newTask(unfinishedId));
+        journal.close();
+
+        assertEquals(1, Files.readAllLines(journalDir.resolve("task-journal.log")).size());
+        TerraformTaskJournal reopenedJournal = openJournal(0);
+        assertEquals(1, reopenedJournal.getRecoveredTasks().size());
+        reopenedJournal.close();
+    }
+
+    @Test
+    void testRejectTaskWhichIsNotWritten() throws Exception {
+        TerraformTaskJournal journal = openJournal(16);
+        FileChannel journalChannel =
+                (FileChannel) ReflectionTestUtils.getField(journal, "journalChannel");
+        assertNotNull(journalChannel);
+        journalChannel.close();
+
+        assertThrows(
+                TaskJournalException.class,
+                () -> journal.recordAccepted(newTask(UUID.randomUUID())));
+        journal.close();
+
+        TerraformTaskJournal reopenedJournal = openJournal(16);
+        assertTrue(reopenedJournal.getRecoveredTasks().isEmpty());
+        reopenedJournal.close();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testRestrictExistingJournalDirectoryToOwner() throws Exception {
+        Files.setPosixFilePermissions(journalDir, PosixFilePermissions.fromString("rwxr-xr-x"));
+
+        TerraformTaskJournal journal = openJournal(16);
+        journal.recordAccepted(newTask(UUID.randomUUID()));
+        journal.close();
+
+        assertEquals(
+                PosixFilePermissions.fromString("rwx------"),
+                Files.getPosixFilePermissions(journalDir));
+        assertEquals(
+                PosixFilePermissions.fromString("rw-------"),
+                Files.getPosixFilePermissions(journalDir.resolve("task-journal.log")));
+    }
+
+    @Test
+    void testGroupCommitThroughput() throws Exception {
+        TerraformTaskJournal journal = openJournal(16);
+        int threads = 32;
+        int tasksPerThread = 100;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long startTime = System.nanoTime();
+        List<Future<?>> futures =
+                IntStream.range(0, threads)
+                        .<Future<?>>mapToObj(
+                                i ->
+                                        executor.submit(
+                                                () -> {
+                                                    for (int j = 0; j < tasksPerThread; j++) {
+                                                        journal.recordAccepted(
+                                                                newTask(UUID.randomUUID()));
+                                                    }
+                                                }))
+                        .toList();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - startTime;
+        executor.shutdown();
+        journal.close();
+
+        log.info(
+                "Journaled {} accepted tasks from {} threads, {} submissions per second.",
+                threads * tasksPerThread,
+                threads,
+                threads * tasksPerThread * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        TerraformTaskJournal reopenedJournal = openJournal(16);
+        assertEquals(threads * tasksPerThread, reopenedJournal.getRecoveredTasks().size());
+        assertTrue(Files.size(journalDir.resolve("task-journal.log")) > 0);
+        reopenedJournal.close();
+    }
+
+    private TerraformTaskJournal openJournal(long compactionThresholdMb) {
+        TerraformTaskJournal journal =
+                new TerraformTaskJournal(true, journalDir.toString(), compactionThresholdMb);
+        journal.open();
+        return journal;
+    }
+
+    private JournaledTask newTask(UUID requestId) {
+        TerraformAsyncDeployFromScriptsRequest request =
+                new TerraformAsyncDeployFromScriptsRequest();
+        request.setRequestId(requestId);
+        request.setIsPlanOnly(false);
+        request.setVariables(Map.of("key", "value"));
+        return JournaledTask.queued(
+                requestId,
+                JournaledTask.TaskSource.SCRIPTS,
+                JournaledTask.TaskAction.DEPLOY,
+                TaskOperationType.APPLY,
+                request,
+                null);
+    }
+}
@@ -0,0 +1,100 @@
+package org.eclipse.xpanse.terraform.boot.async;
+
+import static org.eclipse.xpanse.terraform.boot.logging.CustomRequestIdGenerator.REQUEST_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
+import org.eclipse.xpanse.terraform.boot.models.exceptions.TaskQueueFullException;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskExecutionRegistry;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskLogBus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+class TerraformTaskSchedulerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TerraformTaskScheduler taskScheduler;
+
+    @BeforeEach
+    void setUp() {
+        taskScheduler =
+                new TerraformTaskScheduler(
+                        false,
+                        1,
+                        1,
+                        1,
+                        1,
+                        meterRegistry,
+                        new TerraformTaskJournal(false, null, 16),
+                        new TaskExecutionRegistry(0, 0, 0, 1, new TaskLogBus(false, 1024, 1, 600)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        taskScheduler.shutdown();
+        MDC.clear();
+    }
+
+    @Test
+    void testRejectTasksWhenQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> queuedTaskDone = new CompletableFuture<>();
+        taskScheduler.submit(TaskOperationType.APPLY, () -> awaitRelease(running, release));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        taskScheduler.submit(TaskOperationType.APPLY, () -> queuedTaskDone.complete(null));
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("terraform.task.queue.depth")
+                        .tag("operation", "APPLY")
+                        .gauge()
+                        .value());
+
+        TaskQueueFullException exception =
+                assertThrows(
+                        TaskQueueFullException.class,
+                        () -> taskScheduler.submit(TaskOperationType.APPLY, () -> {}));
+        assertEquals(30, exception.getRetryAfterSeconds());
+        assertEquals(
+                1,
+                meterRegistry
+                        .get("terraform.task.rejected")
+                        .tag("operation", "APPLY")
+                        .counter()
+                        .count());
+
+        // other operation types have their own queue.
+        CompletableFuture<Void> destroyTaskDone = new CompletableFuture<>();
+        taskScheduler.submit(TaskOperationType.DESTROY, () -> destroyTaskDone.complete(null));
+        destroyTaskDone.get(10, TimeUnit.SECONDS);
+
+        release.countDown();
+        queuedTaskDone.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testCopyMdcToTask() throws Exception {
+        MDC.put(REQUEST_ID, "request-id");
+        CompletableFuture<String> requestId = new CompletableFuture<>();
+        taskScheduler.submit(TaskOperationType.PLAN, () -> requestId.complete(MDC.get(REQUEST_ID)));
+        assertEquals("request-id", requestId.get(10, TimeUnit.SECONDS));
+    }
+
+    private void awaitRelease(CountDownLatch running, CountDownLatch release) {
+        running.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.eclipse.xpanse.terraform.boot.security.hmac;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of the webhook signing for payloads of 1 KB, 1 MB and 50 MB. Run it with the main
+ * method after `mvn test-compile`, it is not part of the unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HmacSignatureHeaderManageBenchmark {
+
+    private static final String WEBHOOK_URL = "http://localhost:8080/webhook/order/callback";
+
+    @Param({"1024", "1048576", "52428800"})
+    private int payloadSize;
+
+    private HmacSignatureHeaderManage hmacSignatureHeaderManage;
+    private byte[] payload;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+                        new OptionsBuilder()
+                                .include(HmacSignatureHeaderManageBenchmark.class.getSimpleName())
+                                .build())
+                .run();
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        hmacSignatureHeaderManage =
+                new HmacSignatureHeaderManage(
+                        "1c30e4b1fad574f88572e25d0da03f34365f4ae92eda22bfd3a8c53cb5102f27",
+                        "HmacSHA256");
+        payload = new byte[payloadSize];
+        new Random(42).nextBytes(payload);
+    }
+
+    @Benchmark
+    public Map<String, String> signBytes() {
+        return hmacSignatureHeaderManage.createHmacSignatureHeader(WEBHOOK_URL, payload);
+    }
+
+    @Benchmark
+    public Map<String, String> signStream() throws IOException {
+        return hmacSignatureHeaderManage.createHmacSignatureHeader(
+                WEBHOOK_URL, new ByteArrayInputStream(payload));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Map<String, String> signBytesConcurrently() {
+        return hmacSignatureHeaderManage.createHmacSignatureHeader(WEBHOOK_URL, payload);
+    }
+}
@@ -0,0 +1,179 @@
+package org.eclipse.xpanse.terraform.boot.terraform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformPluginCacheManager;
+import org.eclipse.xpanse.terraform.boot.terraform.tool.TerraformWorkspaceTemplateManage;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.CommandOutputCapture;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.SystemCmd;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.SystemCmdResult;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskLogBus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TerraformExecutorTest {
+
+    private static final String EXECUTOR_PATH = "terraform";
+    private static final String CHANGE_SUMMARY_LINE =
+            """
+            {"@level":"info","@message":"Apply complete! Resources: 1 added, 0 changed,\
+             0 destroyed.","changes":{"add":1,"change":0,"import":0,"remove":0,\
+            "operation":"apply"},"type":"change_summary"}""";
+
+    @TempDir private Path workspace;
+
+    private final List<String> executedCommands = new ArrayList<>();
+
+    private TerraformExecutor executor;
+
+    @BeforeEach
+    void createExecutor() throws IOException {
+        Files.writeString(
+                workspace.resolve("main.tf"), "module \"vpc\" { source = \"./modules/vpc\" }");
+        Files.createDirectories(workspace.resolve("modules/vpc"));
+        Files.writeString(workspace.resolve("modules/vpc/main.tf"), "resource \"null\" \"a\" {}");
+        executor = newExecutor(false);
+    }
+
+    private TerraformExecutor newExecutor(boolean isJsonOutputEnabled) {
+        TerraformPluginCacheManager pluginCacheManager =
+                new TerraformPluginCacheManager(false, "", 0, new SimpleMeterRegistry());
+        return new TerraformExecutor(
+                new FakeTerraform(),
+                false,
+                "",
+                "INFO",
+                2,
+                pluginCacheManager,
+                new TerraformWorkspaceTemplateManage(false, "", 0, pluginCacheManager),
+                isJsonOutputEnabled,
+                new TaskLogBus(false, 4096, 10, 60));
+    }
+
+    @Test
+    void testApplySavedPlan() {
+        SystemCmdResult result =
+                executor.tfApply(EXECUTOR_PATH, Map.of(), new HashMap<>(), workspace.toString());
+
+        assertTrue(result.isCommandSuccessful());
+        assertEquals(List.of("init", "plan", "apply"), getSubcommands());
+        assertTrue(executedCommands.get(1).contains("-out=tfplan.binary"));
+        assertTrue(executedCommands.get(2).endsWith("tfplan.binary"));
+        assertFalse(Files.exists(workspace.resolve("tfplan.binary")));
+        assertEquals(
+                List.of("init", "plan", "apply"),
+                List.copyOf(result.getPhaseDurationsInMillis().keySet()));
+    }
+
+    @Test
+    void testReturnChangeSummaryInsteadOfJsonOutput() {
+        executor = newExecutor(true);
+
+        SystemCmdResult result =
+                executor.tfApply(EXECUTOR_PATH, Map.of(), new HashMap<>(), workspace.toString());
+
+        assertTrue(executedCommands.get(2).contains(" -json "));
+        assertEquals(1, result.getChangeSummary().getAdd());
+        assertNull(result.getCommandStdOutput());
+    }
+
+    @Test
+    void testDestroySavedPlan() {
+        executor.tfDestroy(EXECUTOR_PATH, Map.of(), new HashMap<>(), workspace.toString());
+
+        assertEquals(List.of("init", "plan", "apply"), getSubcommands());
+        assertTrue(executedCommands.get(1).contains("-destroy"));
+        assertTrue(executedCommands.get(2).endsWith("tfplan.binary"));
+    }
+
+    @Test
+    void testSkipInitOnlyWhenScriptsAreUnchanged() throws IOException {
+        executor.tfPlan(EXECUTOR_PATH, Map.of(), new HashMap<>(), workspace.toString());
+        executor.tfPlan(EXECUTOR_PATH, Map.of(), new HashMap<>(), workspace.toString());
+        assertEquals(List.of("init", "plan", "plan"), getSubcommands());
+
+        Files.writeString(
+                workspace.resolve("modules/vpc/main.tf"),
+                "module \"subnet\" { source = \"../subnet\" }");
+        executor.tfPlan(EXECUTOR_PATH, Map.of(), new HashMap<>(), workspace.toString());
+        assertEquals(List.of("init", "plan", "plan", "init", "plan"), getSubcommands());
+
+        Files.writeString(workspace.resolve("override.tf.json"), "{}");
+        executor.tfPlan(EXECUTOR_PATH, Map.of(), new HashMap<>(), workspace.toString());
+        assertEquals(
+                List.of("init", "plan", "plan", "init", "plan", "init", "plan"), getSubcommands());
+    }
+
+    private List<String> getSubcommands() {
+        return executedCommands.stream().map(command -> command.split(" +")[1]).toList();
+    }
+
+    /** Fake of the terraform binary which creates the files of init and plan. */
+    private class FakeTerraform extends SystemCmd {
+
+        FakeTerraform() {
+            super(
+                    false,
+                    1024,
+                    1024,
+                    CommandOutputCapture.TruncationPolicy.NONE,
+                    CommandOutputCapture.TruncationPolicy.TAIL,
+                    null,
+                    null,
+                    1);
+        }
+
+        @Override
+        public SystemCmdResult execute(
+                String cmd,
+                int waitSecond,
+                String workspace,
+                boolean isCommandOutputToBeLogged,
+                Map<String, String> envVariables,
+                Consumer<String> stdoutLineConsumer) {
+            executedCommands.add(cmd);
+            String stdOutput = "";
+            if (cmd.contains(" apply ") && cmd.contains(" -json ")) {
+                stdOutput = CHANGE_SUMMARY_LINE;
+                stdoutLineConsumer.accept(CHANGE_SUMMARY_LINE);
+            }
+            Path workspacePath = Path.of(workspace);
+            try {
+                if (cmd.contains(" init ")) {
+                    Files.createDirectories(workspacePath.resolve(".terraform/modules"));
+                    Files.writeString(workspacePath.resolve(".terraform.lock.hcl"), "lock");
+                    Files.writeString(
+                            workspacePath.resolve(".terraform/modules/modules.json"),
+                            "{\"Modules\":[]}");
+                } else if (cmd.contains("-out=tfplan.binary")) {
+                    Files.writeString(workspacePath.resolve("tfplan.binary"), "plan");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            boolean successful =
+                    !cmd.contains(" apply ")
+                            || Files.exists(workspacePath.resolve("tfplan.binary"));
+            SystemCmdResult result = new SystemCmdResult();
+            result.setCommandExecuted(cmd);
+            result.setCommandSuccessful(successful);
+            result.setCommandStdOutput(stdOutput);
+            result.setCommandStdError(successful ? "" : "saved plan not found");
+            return result;
+        }
+    }
+}
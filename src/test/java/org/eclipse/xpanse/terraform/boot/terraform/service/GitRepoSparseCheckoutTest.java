@@ -0,0 +1,92 @@
+package org.eclipse.xpanse.terraform.boot.terraform.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GitRepoSparseCheckoutTest {
+
+    @TempDir private Path tempDir;
+
+    private final GitRepoSparseCheckout sparseCheckout = new GitRepoSparseCheckout();
+    private Git repo;
+    private ObjectId commitId;
+
+    @BeforeEach
+    void createRepo() throws Exception {
+        repo = Git.init().setDirectory(tempDir.resolve("repo").toFile()).call();
+        writeFile(
+                "envs/prod/main.tf",
+                """
+                module "vpc" {
+                  source = "../../modules/vpc"
+                }
+                module "remote" {
+                  source = "git::https://example.com/modules.git//dns"
+                }
+                module "outside" {
+                  source = "../../../outside"
+                }
+                """);
+        writeFile("envs/prod/templates/user_data.tpl", "#!/bin/bash");
+        writeFile("envs/dev/main.tf", "module \"vpc\" { source = \"../../modules/vpc\" }");
+        writeFile("modules/vpc/main.tf", "module \"subnet\" {\n  source=\"./../subnet\"\n}");
+        writeFile("modules/subnet/main.tf", "resource \"null_resource\" \"subnet\" {}");
+        writeFile("modules/unused/main.tf", "resource \"null_resource\" \"unused\" {}");
+        writeFile("docs/README.md", "docs");
+        repo.add().addFilepattern(".").call();
+        commitId =
+                repo.commit()
+                        .setMessage("Add scripts")
+                        .setAuthor("test", "test@example.com")
+                        .setCommitter("test", "test@example.com")
+                        .setSign(false)
+                        .call();
+    }
+
+    @AfterEach
+    void closeRepo() {
+        repo.close();
+    }
+
+    @Test
+    void testCheckoutScriptPathWithReferencedModules() throws Exception {
+        Path workspace = tempDir.resolve("workspace");
+
+        sparseCheckout.checkout(repo.getRepository(), commitId, "envs/prod", workspace);
+
+        assertTrue(Files.exists(workspace.resolve("envs/prod/main.tf")));
+        assertTrue(Files.exists(workspace.resolve("envs/prod/templates/user_data.tpl")));
+        assertTrue(Files.exists(workspace.resolve("modules/vpc/main.tf")));
+        assertTrue(Files.exists(workspace.resolve("modules/subnet/main.tf")));
+        assertFalse(Files.exists(workspace.resolve("envs/dev")));
+        assertFalse(Files.exists(workspace.resolve("modules/unused")));
+        assertFalse(Files.exists(workspace.resolve("docs")));
+        assertFalse(Files.exists(tempDir.resolve("outside")));
+    }
+
+    @Test
+    void testCheckoutWholeRepoWithoutScriptPath() throws Exception {
+        Path workspace = tempDir.resolve("workspace");
+
+        sparseCheckout.checkout(repo.getRepository(), commitId, null, workspace);
+
+        assertTrue(Files.exists(workspace.resolve("envs/dev/main.tf")));
+        assertTrue(Files.exists(workspace.resolve("modules/unused/main.tf")));
+        assertTrue(Files.exists(workspace.resolve("docs/README.md")));
+    }
+
+    private void writeFile(String path, String content) throws Exception {
+        Path file = repo.getRepository().getWorkTree().toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
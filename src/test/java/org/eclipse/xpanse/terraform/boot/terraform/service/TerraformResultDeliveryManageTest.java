@@ -0,0 +1,262 @@
+package org.eclipse.xpanse.terraform.boot.terraform.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Hex;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
+import org.eclipse.xpanse.terraform.boot.security.hmac.HmacSignatureHeaderManage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+class TerraformResultDeliveryManageTest {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final String HMAC_KEY =
+            "1c30e4b1fad574f88572e25d0da03f34365f4ae92eda22bfd3a8c53cb5102f27";
+
+    private final List<TerraformResult> persistedResults = new CopyOnWriteArrayList<>();
+    private final List<String> receivedBodies = new CopyOnWriteArrayList<>();
+    private final List<String> receivedEncodings = new CopyOnWriteArrayList<>();
+    private final List<Headers> receivedHeaders = new CopyOnWriteArrayList<>();
+    private final List<byte[]> receivedRawBodies = new CopyOnWriteArrayList<>();
+    private final AtomicInteger requestCount = new AtomicInteger();
+
+    @TempDir private Path outboxDir;
+
+    private HttpServer server;
+    private volatile int failuresBeforeSuccess;
+    private volatile int failureStatus;
+    private volatile boolean rejectGzip;
+    private TerraformResultDeliveryManage deliveryManage;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(
+                "/webhook",
+                exchange -> {
+                    String encoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                    receivedEncodings.add(String.valueOf(encoding));
+                    receivedHeaders.add(exchange.getRequestHeaders());
+                    byte[] rawBody = exchange.getRequestBody().readAllBytes();
+                    receivedRawBodies.add(rawBody);
+                    InputStream body = new ByteArrayInputStream(rawBody);
+                    if ("gzip".equals(encoding)) {
+                        if (rejectGzip) {
+                            send(exchange, 415);
+                            return;
+                        }
+                        body = new GZIPInputStream(body);
+                    }
+                    receivedBodies.add(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+                    int count = requestCount.incrementAndGet();
+                    send(exchange, count > failuresBeforeSuccess ? 200 : failureStatus);
+                });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (deliveryManage != null) {
+            deliveryManage.shutdown();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    void testDeliverWithRetries() throws Exception {
+        failuresBeforeSuccess = 2;
+        failureStatus = 503;
+        deliveryManage = newDeliveryManage();
+        TerraformResult result = newResult();
+
+        deliveryManage.deliver(getWebhookUrl(), result);
+
+        assertTrue(deliveryManage.isDeliveryPending(result.getRequestId()));
+        waitUntilDelivered(deliveryManage, result.getRequestId());
+        assertEquals(3, requestCount.get());
+        assertTrue(receivedBodies.getLast().contains(result.getRequestId().toString()));
+        assertTrue(persistedResults.isEmpty());
+        assertFalse(Files.exists(outboxDir.resolve(result.getRequestId() + ".outbox")));
+    }
+
+    @Test
+    void testPersistResultRejectedByWebhook() throws Exception {
+        failuresBeforeSuccess = Integer.MAX_VALUE;
+        failureStatus = 400;
+        deliveryManage = newDeliveryManage();
+        TerraformResult result = newResult();
+
+        deliveryManage.deliver(getWebhookUrl(), result);
+
+        waitUntilDelivered(deliveryManage, result.getRequestId());
+        assertEquals(1, requestCount.get());
+        assertEquals(1, persistedResults.size());
+        assertEquals(result.getRequestId(), persistedResults.getFirst().getRequestId());
+        assertEquals(
+                result.getCommandStdOutput(), persistedResults.getFirst().getCommandStdOutput());
+    }
+
+    @Test
+    void testDrainOutboxAfterRestart() throws Exception {
+        TerraformResult result = newResult();
+        // the first instance can not reach the webhook and keeps the result in its outbox.
+        TerraformResultDeliveryManage stoppedDeliveryManage = newDeliveryManage();
+        stoppedDeliveryManage.shutdown();
+        stoppedDeliveryManage.deliver(getWebhookUrl(), result);
+        assertTrue(Files.exists(outboxDir.resolve(result.getRequestId() + ".outbox")));
+
+        deliveryManage = newDeliveryManage();
+        deliveryManage.drainOutbox();
+
+        assertTrue(deliveryManage.isDeliveryPending(result.getRequestId()));
+        waitUntilDelivered(deliveryManage, result.getRequestId());
+        assertEquals(1, requestCount.get());
+        assertTrue(persistedResults.isEmpty());
+    }
+
+    @Test
+    void testDeliverCompressed() throws Exception {
+        deliveryManage = newDeliveryManage(true);
+        TerraformResult result = newResult();
+
+        deliveryManage.deliver(getWebhookUrl(), result);
+
+        waitUntilDelivered(deliveryManage, result.getRequestId());
+        assertEquals(List.of("gzip"), receivedEncodings);
+        assertTrue(receivedBodies.getFirst().contains(result.getCommandStdOutput()));
+    }
+
+    @Test
+    void testFallBackToPlainBodyIfGzipIsRejected() throws Exception {
+        rejectGzip = true;
+        deliveryManage = newDeliveryManage(true);
+        TerraformResult firstResult = newResult();
+        TerraformResult secondResult = newResult();
+
+        deliveryManage.deliver(getWebhookUrl(), firstResult);
+        waitUntilDelivered(deliveryManage, firstResult.getRequestId());
+        deliveryManage.deliver(getWebhookUrl(), secondResult);
+        waitUntilDelivered(deliveryManage, secondResult.getRequestId());
+
+        assertEquals(List.of("gzip", "null", "null"), receivedEncodings);
+        assertEquals(2, requestCount.get());
+        assertTrue(persistedResults.isEmpty());
+    }
+
+    @Test
+    void testSignStreamedBody() throws Exception {
+        deliveryManage =
+                newDeliveryManage(true, new HmacSignatureHeaderManage(HMAC_KEY, HMAC_ALGORITHM));
+        TerraformResult result = newResult();
+        result.setTerraformState("{\"resources\": \"" + "x".repeat(1024 * 1024) + "\"}");
+
+        deliveryManage.deliver(getWebhookUrl(), result);
+
+        waitUntilDelivered(deliveryManage, result.getRequestId());
+        Headers headers = receivedHeaders.getFirst();
+        Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+        mac.init(new SecretKeySpec(HMAC_KEY.getBytes(), HMAC_ALGORITHM));
+        mac.update(
+                (headers.getFirst("x-nonce-signature")
+                                + "\n"
+                                + headers.getFirst("x-timestamp-signature")
+                                + "\n"
+                                + getWebhookUrl()
+                                + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+        String expectedSignature = Hex.encodeHexString(mac.doFinal(receivedRawBodies.getFirst()));
+        assertTrue(headers.getFirst("x-signature").endsWith("signature=" + expectedSignature));
+        assertTrue(receivedRawBodies.getFirst().length < 1024 * 1024);
+        assertEquals(
+                result.getTerraformState(),
+                new ObjectMapper()
+                        .readValue(receivedBodies.getFirst(), TerraformResult.class)
+                        .getTerraformState());
+    }
+
+    private TerraformResultDeliveryManage newDeliveryManage() {
+        return newDeliveryManage(false);
+    }
+
+    private TerraformResultDeliveryManage newDeliveryManage(boolean compressionEnabled) {
+        return newDeliveryManage(compressionEnabled, null);
+    }
+
+    private TerraformResultDeliveryManage newDeliveryManage(
+            boolean compressionEnabled, HmacSignatureHeaderManage hmacSignatureHeaderManage) {
+        TerraformResultPersistenceManage persistenceManage =
+                new TerraformResultPersistenceManage() {
+                    @Override
+                    public boolean persistTerraformResult(TerraformResult result) {
+                        return persistedResults.add(result);
+                    }
+                };
+        return new TerraformResultDeliveryManage(
+                new JdkClientHttpRequestFactory(),
+                hmacSignatureHeaderManage,
+                persistenceManage,
+                new SimpleMeterRegistry(),
+                false,
+                outboxDir.toString(),
+                2,
+                5,
+                10,
+                50,
+                compressionEnabled);
+    }
+
+    private TerraformResult newResult() {
+        return TerraformResult.builder()
+                .requestId(UUID.randomUUID())
+                .isCommandSuccessful(true)
+                .commandStdOutput("Apply complete!")
+                .terraformState("{\"version\": 4}")
+                .generatedFileContentMap(new HashMap<>())
+                .build();
+    }
+
+    private String getWebhookUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/webhook";
+    }
+
+    private void waitUntilDelivered(TerraformResultDeliveryManage manage, UUID requestId)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (manage.isDeliveryPending(requestId) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertFalse(manage.isDeliveryPending(requestId));
+    }
+
+    private void send(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+}
@@ -0,0 +1,125 @@
+package org.eclipse.xpanse.terraform.boot.terraform.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TerraformResultStoreTest {
+
+    @TempDir private Path storeLocation;
+
+    private TerraformResultStore store;
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+    }
+
+    @Test
+    void testTakeResultOnlyOnce() {
+        store = openStore();
+        UUID requestId = UUID.randomUUID();
+        byte[] data = "result".getBytes(StandardCharsets.UTF_8);
+
+        store.put(requestId, data);
+
+        assertTrue(store.contains(requestId));
+        assertArrayEquals(data, store.take(requestId, Function.identity()));
+        assertFalse(store.contains(requestId));
+        assertNull(store.take(requestId, Function.identity()));
+    }
+
+    @Test
+    void testRebuildIndexAfterRestart() {
+        store = openStore();
+        UUID takenRequestId = UUID.randomUUID();
+        UUID storedRequestId = UUID.randomUUID();
+        store.put(takenRequestId, "taken".getBytes(StandardCharsets.UTF_8));
+        store.put(storedRequestId, "first".getBytes(StandardCharsets.UTF_8));
+        store.put(storedRequestId, "second".getBytes(StandardCharsets.UTF_8));
+        store.take(takenRequestId, Function.identity());
+        store.close();
+
+        store = openStore();
+
+        assertFalse(store.contains(takenRequestId));
+        assertEquals(
+                "second",
+                store.take(storedRequestId, data -> new String(data, StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testRecoverFromPartiallyWrittenRecord() throws IOException {
+        store = openStore();
+        UUID requestId = UUID.randomUUID();
+        store.put(requestId, "result".getBytes(StandardCharsets.UTF_8));
+        store.close();
+        Path segmentFile = listSegmentFiles().getFirst();
+        long segmentSize = Files.size(segmentFile);
+        Files.write(segmentFile, new byte[] {0x54, 0x46, 0x52}, StandardOpenOption.APPEND);
+
+        store = openStore();
+        UUID nextRequestId = UUID.randomUUID();
+        store.put(nextRequestId, "next".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(
+                "result", store.take(requestId, data -> new String(data, StandardCharsets.UTF_8)));
+        assertEquals(
+                "next",
+                store.take(nextRequestId, data -> new String(data, StandardCharsets.UTF_8)));
+        assertTrue(Files.size(segmentFile) > segmentSize);
+    }
+
+    @Test
+    void testCompactSegmentsOfTakenResults() throws IOException {
+        store = openStore();
+        byte[] data = new byte[600 * 1024];
+        new Random(42).nextBytes(data);
+        UUID firstRequestId = UUID.randomUUID();
+        UUID secondRequestId = UUID.randomUUID();
+        UUID thirdRequestId = UUID.randomUUID();
+        store.put(firstRequestId, data);
+        store.put(secondRequestId, data);
+        store.put(thirdRequestId, data);
+        assertEquals(2, listSegmentFiles().size());
+
+        store.take(firstRequestId, Function.identity());
+        store.take(secondRequestId, Function.identity());
+        store.runCompaction();
+
+        assertEquals(1, listSegmentFiles().size());
+        store.close();
+        store = openStore();
+        assertFalse(store.contains(firstRequestId));
+        assertFalse(store.contains(secondRequestId));
+        assertArrayEquals(data, store.take(thirdRequestId, Function.identity()));
+    }
+
+    private TerraformResultStore openStore() {
+        TerraformResultStore resultStore = new TerraformResultStore(storeLocation.toString(), 1, 1);
+        resultStore.open();
+        return resultStore;
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(storeLocation.resolve("terraform-result-store"))) {
+            return files.sorted().toList();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package org.eclipse.xpanse.terraform.boot.terraform.tool;
 
+import java.io.ByteArrayInputStream;
 import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.codec.binary.Hex;
 import org.assertj.core.api.Assertions;
 import org.eclipse.xpanse.terraform.boot.security.hmac.HmacSignatureHeaderManage;
 import org.junit.jupiter.api.Test;
@@ -19,6 +23,9 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 @ContextConfiguration(classes = {HmacSignatureHeaderManage.class})
 public class HmacSignatureHeaderTest {
 
+    private static final String HMAC_KEY =
+            "1c30e4b1fad574f88572e25d0da03f34365f4ae92eda22bfd3a8c53cb5102f27";
+
     @Autowired HmacSignatureHeaderManage hmacSignatureHeaderManage;
 
     @Test
@@ -30,4 +37,34 @@ public class HmacSignatureHeaderTest {
         Assertions.assertThat(signatureHeaders)
                 .containsKeys("x-signature", "x-nonce-signature", "x-timestamp-signature");
     }
+
+    @Test
+    public void testSignatureOfStreamedPayload() throws Exception {
+        String webhookUrl = "http://localhost/orderId";
+        byte[] payload = "{\"requestId\": \"orderId\"}".repeat(1000).getBytes();
+        Map<String, String> signatureHeaders =
+                this.hmacSignatureHeaderManage.createHmacSignatureHeader(
+                        webhookUrl, new ByteArrayInputStream(payload));
+
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(HMAC_KEY.getBytes(), "HmacSHA256"));
+        String signedContent =
+                signatureHeaders.get("x-nonce-signature")
+                        + "\n"
+                        + signatureHeaders.get("x-timestamp-signature")
+                        + "\n"
+                        + webhookUrl
+                        + "\n"
+                        + new String(payload);
+        Assertions.assertThat(signatureHeaders.get("x-signature"))
+                .isEqualTo(
+                        "algorithm=HmacSHA256;headers=x-nonce-signature x-timestamp-signature;"
+                                + "signature="
+                                + Hex.encodeHexString(mac.doFinal(signedContent.getBytes())));
+        Assertions.assertThat(
+                        this.hmacSignatureHeaderManage
+                                .createHmacSignatureHeader(webhookUrl, payload)
+                                .get("x-nonce-signature"))
+                .isNotEqualTo(signatureHeaders.get("x-nonce-signature"));
+    }
 }
@@ -0,0 +1,201 @@
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.Resource;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@Slf4j
+@SpringBootTest(
+        classes = {TerraformBinaryDownloader.class},
+        properties = {
+            "terraform.download.chunk.size.bytes=16384",
+            "terraform.download.timeout.millis=5000",
+            "terraform.download.max.resume.attempts=2"
+        })
+class TerraformBinaryDownloaderTest {
+
+    private static final String VERSION = "1.9.0";
+    private static final String ZIP_FILE_NAME = "terraform_1.9.0_linux_amd64.zip";
+
+    private final List<String> rangeHeaders = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean failFirstDownload = new AtomicBoolean(false);
+
+    @TempDir private Path downloadDir;
+
+    @Resource private TerraformBinaryDownloader binaryDownloader;
+
+    private HttpServer server;
+    private byte[] executorContent;
+    private byte[] zipContent;
+    private String checksums;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/" + VERSION + "/" + ZIP_FILE_NAME, this::serveZip);
+        server.createContext(
+                "/" + VERSION + "/terraform_" + VERSION + "_SHA256SUMS",
+                exchange -> send(exchange, 200, checksums.getBytes(StandardCharsets.UTF_8)));
+        server.start();
+        useExecutorContent(randomBytes(1024 * 1024));
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void testDownloadAndExtractExecutorWithVerifiedChecksum() throws IOException {
+        File executorFile = downloadDir.resolve("terraform-" + VERSION).toFile();
+        binaryDownloader.downloadAndExtractExecutor(
+                getDownloadUrl(), VERSION, downloadDir.toFile(), executorFile);
+        assertArrayEquals(executorContent, Files.readAllBytes(executorFile.toPath()));
+        assertFalse(downloadDir.resolve(ZIP_FILE_NAME).toFile().exists());
+    }
+
+    @Test
+    void testResumeDownloadWithRangeAfterConnectionFailure() throws IOException {
+        failFirstDownload.set(true);
+        File executorFile = downloadDir.resolve("terraform-" + VERSION).toFile();
+        binaryDownloader.downloadAndExtractExecutor(
+                getDownloadUrl(), VERSION, downloadDir.toFile(), executorFile);
+        assertArrayEquals(executorContent, Files.readAllBytes(executorFile.toPath()));
+        assertEquals(2, rangeHeaders.size());
+        assertEquals("bytes=" + zipContent.length / 2 + "-", rangeHeaders.get(1));
+    }
+
+    @Test
+    void testDownloadFailsWithWrongChecksum() {
+        checksums = DigestUtils.sha256Hex("other") + "  " + ZIP_FILE_NAME + "\n";
+        File executorFile = downloadDir.resolve("terraform-" + VERSION).toFile();
+        IOException exception =
+                assertThrows(
+                        IOException.class,
+                        () ->
+                                binaryDownloader.downloadAndExtractExecutor(
+                                        getDownloadUrl(),
+                                        VERSION,
+                                        downloadDir.toFile(),
+                                        executorFile));
+        assertEquals(
+                String.format(
+                        "Checksum of %s is %s, but %s is expected.",
+                        getDownloadUrl(),
+                        DigestUtils.sha256Hex(zipContent),
+                        DigestUtils.sha256Hex("other")),
+                exception.getMessage());
+    }
+
+    /** Benchmarks the installation time of an executor with a size similar to terraform. */
+    @Test
+    void testInstallTimeOfLargeExecutor() throws IOException {
+        useExecutorContent(randomBytes(64 * 1024 * 1024));
+        File executorFile = downloadDir.resolve("terraform-" + VERSION).toFile();
+        long startTime = System.nanoTime();
+        binaryDownloader.downloadAndExtractExecutor(
+                getDownloadUrl(), VERSION, downloadDir.toFile(), executorFile);
+        long durationInMillis = (System.nanoTime() - startTime) / 1_000_000;
+        log.info(
+                "Installed executor of {} MB in {} ms.",
+                executorContent.length / 1024 / 1024,
+                durationInMillis);
+        assertEquals(executorContent.length, executorFile.length());
+    }
+
+    private void serveZip(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        rangeHeaders.add(String.valueOf(range));
+        if (range != null) {
+            int start = Integer.parseInt(range.replace("bytes=", "").replace("-", ""));
+            exchange.getResponseHeaders()
+                    .add(
+                            "Content-Range",
+                            "bytes "
+                                    + start
+                                    + "-"
+                                    + (zipContent.length - 1)
+                                    + "/"
+                                    + zipContent.length);
+            byte[] rest = new byte[zipContent.length - start];
+            System.arraycopy(zipContent, start, rest, 0, rest.length);
+            send(exchange, 206, rest);
+        } else if (failFirstDownload.getAndSet(false)) {
+            // announce the whole file but break the connection after half of it.
+            exchange.sendResponseHeaders(200, zipContent.length);
+            OutputStream body = exchange.getResponseBody();
+            body.write(zipContent, 0, zipContent.length / 2);
+            body.flush();
+            exchange.close();
+        } else {
+            send(exchange, 200, zipContent);
+        }
+    }
+
+    private void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private void useExecutorContent(byte[] content) throws IOException {
+        executorContent = content;
+        ByteArrayOutputStream zipOutput = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zipOutput)) {
+            zos.putNextEntry(new ZipEntry("LICENSE.txt"));
+            zos.write("license".getBytes(StandardCharsets.UTF_8));
+            zos.putNextEntry(new ZipEntry("terraform"));
+            zos.write(content);
+        }
+        zipContent = zipOutput.toByteArray();
+        checksums =
+                DigestUtils.sha256Hex("other")
+                        + "  terraform_1.9.0_darwin_arm64.zip\n"
+                        + DigestUtils.sha256Hex(zipContent)
+                        + "  "
+                        + ZIP_FILE_NAME
+                        + "\n";
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private String getDownloadUrl() {
+        return "http://127.0.0.1:"
+                + server.getAddress().getPort()
+                + "/"
+                + VERSION
+                + "/"
+                + ZIP_FILE_NAME;
+    }
+}
@@ -6,12 +6,25 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import jakarta.annotation.Resource;
 import java.io.File;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.eclipse.xpanse.terraform.boot.models.exceptions.InvalidTerraformToolException;
 import org.eclipse.xpanse.terraform.boot.terraform.utils.SystemCmd;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskExecutionRegistry;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskLogBus;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
 
 @SpringBootTest(
         classes = {
@@ -19,7 +32,10 @@ import org.springframework.boot.test.context.SpringBootTest;
             TerraformVersionsHelper.class,
             TerraformVersionsCache.class,
             TerraformVersionsFetcher.class,
-            SystemCmd.class
+            SystemCmd.class,
+            TaskLogBus.class,
+            TaskExecutionRegistry.class,
+            TerraformBinaryDownloader.class
         },
         properties = {"support.default.terraform.versions.only=false"})
 class TerraformInstallerTest {
@@ -74,4 +90,68 @@ class TerraformInstallerTest {
                 InvalidTerraformToolException.class,
                 () -> installer.getExecutorPathThatMatchesRequiredVersion(requiredVersion4));
     }
+
+    @Test
+    void testConcurrentCallersShareOneInstallation(@TempDir Path installDir) throws Exception {
+        int callers = 8;
+        File installedExecutor = installDir.resolve("terraform-1.7.0").toFile();
+        AtomicInteger downloads = new AtomicInteger();
+        // the download waits until every caller has looked for an installed executor.
+        CountDownLatch lookups = new CountDownLatch(callers + 1);
+        TerraformVersionsHelper fakeVersionHelper =
+                new TerraformVersionsHelper() {
+                    @Override
+                    public String getExecutorPathMatchedRequiredVersion(
+                            String installationDir,
+                            String requiredOperator,
+                            String requiredNumber) {
+                        lookups.countDown();
+                        return downloads.get() > 0 ? installedExecutor.getAbsolutePath() : null;
+                    }
+
+                    @Override
+                    public File installTerraformWithVersion(
+                            String versionNumber, String downloadBaseUrl, String installDir) {
+                        try {
+                            assertTrue(lookups.await(10, TimeUnit.SECONDS));
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        downloads.incrementAndGet();
+                        return installedExecutor;
+                    }
+
+                    @Override
+                    public boolean checkIfExecutorCanBeExecuted(File executorFile) {
+                        return true;
+                    }
+                };
+        TerraformVersionsCache fakeVersionsCache =
+                new TerraformVersionsCache() {
+                    @Override
+                    public Set<String> getAvailableVersions() {
+                        return Set.of("1.6.0", "1.7.0");
+                    }
+                };
+        TerraformInstaller concurrentInstaller = new TerraformInstaller();
+        ReflectionTestUtils.setField(
+                concurrentInstaller, "terraformInstallDir", installDir.toString());
+        ReflectionTestUtils.setField(concurrentInstaller, "versionHelper", fakeVersionHelper);
+        ReflectionTestUtils.setField(concurrentInstaller, "versionsCache", fakeVersionsCache);
+
+        try (ExecutorService executorService = Executors.newFixedThreadPool(callers)) {
+            List<Future<String>> results =
+                    executorService.invokeAll(
+                            Collections.nCopies(
+                                    callers,
+                                    () ->
+                                            concurrentInstaller
+                                                    .getExecutorPathThatMatchesRequiredVersion(
+                                                            ">= 1.7.0")));
+            for (Future<String> result : results) {
+                assertEquals(installedExecutor.getAbsolutePath(), result.get());
+            }
+        }
+        assertEquals(1, downloads.get());
+    }
 }
@@ -0,0 +1,156 @@
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.FileSystemUtils;
+
+class TerraformPluginCacheManagerTest {
+
+    private static final String PLATFORM = "linux_amd64";
+    private static final int PROVIDER_SIZE = 700 * 1024;
+
+    @TempDir private Path tempDir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TerraformPluginCacheManager pluginCacheManager;
+    private Path cacheDir;
+
+    @BeforeEach
+    void createPluginCacheManager() {
+        meterRegistry = new SimpleMeterRegistry();
+        cacheDir = tempDir.resolve("cache");
+        pluginCacheManager =
+                new TerraformPluginCacheManager(true, cacheDir.toString(), 1, meterRegistry);
+    }
+
+    @Test
+    void testCountCacheHitsOfCachedProviders() throws IOException {
+        init(createWorkspace("first"), "hashicorp/null/3.2.1");
+        init(createWorkspace("second"), "hashicorp/null/3.2.1");
+
+        assertEquals(1, meterRegistry.counter("terraform.plugin.cache.misses").count());
+        assertEquals(1, meterRegistry.counter("terraform.plugin.cache.hits").count());
+        assertEquals(
+                PROVIDER_SIZE, meterRegistry.counter("terraform.plugin.cache.bytes.saved").count());
+    }
+
+    @Test
+    void testEvictLeastRecentlyUsedProviderWithoutLease() throws IOException {
+        Path firstWorkspace = createWorkspace("first");
+        init(firstWorkspace, "hashicorp/null/3.2.1");
+        pluginCacheManager.releaseProviders(firstWorkspace.toString());
+        FileSystemUtils.deleteRecursively(firstWorkspace);
+
+        init(createWorkspace("second"), "hashicorp/random/3.6.0");
+
+        assertFalse(Files.exists(getCachedVersionDir("hashicorp/null/3.2.1")));
+        assertTrue(Files.exists(getCachedVersionDir("hashicorp/random/3.6.0")));
+    }
+
+    @Test
+    void testKeepProvidersLinkedIntoLeasedWorkspaces() throws IOException {
+        Path firstWorkspace = createWorkspace("first");
+        init(firstWorkspace, "hashicorp/null/3.2.1");
+
+        init(createWorkspace("second"), "hashicorp/random/3.6.0");
+
+        assertTrue(Files.exists(getCachedVersionDir("hashicorp/null/3.2.1")));
+        assertTrue(Files.exists(getCachedVersionDir("hashicorp/random/3.6.0")));
+    }
+
+    @Test
+    void testInitWorkspacesWithoutLockFilesConcurrently() throws Exception {
+        Path firstWorkspace = createWorkspace("first");
+        Path secondWorkspace = createWorkspace("second");
+        // each init waits until the other one has started as well.
+        CountDownLatch initsStarted = new CountDownLatch(2);
+
+        CompletableFuture<Boolean> firstInit =
+                CompletableFuture.supplyAsync(
+                        () -> init(firstWorkspace, "hashicorp/null/3.2.1", initsStarted));
+        CompletableFuture<Boolean> secondInit =
+                CompletableFuture.supplyAsync(
+                        () -> init(secondWorkspace, "hashicorp/random/3.6.0", initsStarted));
+
+        assertTrue(firstInit.get(30, TimeUnit.SECONDS));
+        assertTrue(secondInit.get(30, TimeUnit.SECONDS));
+        Path linkedPlatformDir =
+                firstWorkspace.resolve(
+                        ".terraform/providers/registry.terraform.io/hashicorp/null/3.2.1/"
+                                + PLATFORM);
+        assertEquals(
+                getCachedVersionDir("hashicorp/null/3.2.1").resolve(PLATFORM),
+                Files.readSymbolicLink(linkedPlatformDir));
+        assertTrue(Files.exists(linkedPlatformDir.resolve("terraform-provider")));
+    }
+
+    private Path createWorkspace(String name) throws IOException {
+        Path workspace = Files.createDirectories(tempDir.resolve(name));
+        pluginCacheManager.leaseProviders(workspace.toString());
+        return workspace;
+    }
+
+    /** Simulates terraform init, which installs the provider into the cache and links it. */
+    private void init(Path workspace, String provider) {
+        init(workspace, provider, new CountDownLatch(0));
+    }
+
+    /**
+     * Simulates terraform init, which waits for the latch after the provider is installed.
+     *
+     * @return false if the latch was not released in time.
+     */
+    private boolean init(Path workspace, String provider, CountDownLatch initsStarted) {
+        Map<String, String> envVariables = new HashMap<>();
+        return pluginCacheManager.initWithPluginCache(
+                workspace.toString(),
+                envVariables,
+                () -> {
+                    Path cacheDir = Path.of(envVariables.get("TF_PLUGIN_CACHE_DIR"));
+                    Path cachedPlatformDir =
+                            cacheDir.resolve("registry.terraform.io/" + provider + "/" + PLATFORM);
+                    Path linkedPlatformDir =
+                            workspace.resolve(
+                                    ".terraform/providers/registry.terraform.io/"
+                                            + provider
+                                            + "/"
+                                            + PLATFORM);
+                    try {
+                        if (!Files.exists(cachedPlatformDir)) {
+                            Files.createDirectories(cachedPlatformDir);
+                            Files.write(
+                                    cachedPlatformDir.resolve("terraform-provider"),
+                                    new byte[PROVIDER_SIZE]);
+                        }
+                        Files.createDirectories(linkedPlatformDir.getParent());
+                        Files.createSymbolicLink(linkedPlatformDir, cachedPlatformDir);
+                        initsStarted.countDown();
+                        return initsStarted.await(10, TimeUnit.SECONDS);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                });
+    }
+
+    private Path getCachedVersionDir(String provider) {
+        return cacheDir.resolve("registry.terraform.io/" + provider);
+    }
+}
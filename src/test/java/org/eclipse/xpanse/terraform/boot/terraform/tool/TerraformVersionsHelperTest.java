@@ -0,0 +1,85 @@
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import jakarta.annotation.Resource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.SystemCmd;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskExecutionRegistry;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskLogBus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@DisabledOnOs(OS.WINDOWS)
+@SpringBootTest(
+        classes = {
+            TerraformVersionsHelper.class,
+            SystemCmd.class,
+            TaskLogBus.class,
+            TaskExecutionRegistry.class,
+            TerraformBinaryDownloader.class
+        })
+class TerraformVersionsHelperTest {
+
+    @TempDir private Path installDir;
+
+    @Resource private TerraformVersionsHelper versionHelper;
+
+    @Test
+    void testExecutorsAreProbedOnceAndIndexFollowsInstallDir() throws IOException {
+        Path probeLog = installDir.resolve("probes.log");
+        File executor160 = createFakeExecutor("1.6.0", probeLog);
+        File executor180 = createFakeExecutor("1.8.0", probeLog);
+        String dir = installDir.toString();
+
+        assertEquals(
+                executor160.getAbsolutePath(),
+                versionHelper.getExecutorPathMatchedRequiredVersion(dir, ">=", "1.5.0"));
+        assertEquals(
+                executor180.getAbsolutePath(),
+                versionHelper.getExecutorPathMatchedRequiredVersion(dir, "<=", "1.9.0"));
+        assertEquals(
+                executor160.getAbsolutePath(),
+                versionHelper.getExecutorPathMatchedRequiredVersion(dir, "=", "1.6.0"));
+        assertNull(versionHelper.getExecutorPathMatchedRequiredVersion(dir, "=", "1.7.0"));
+        assertEquals("1.6.0", versionHelper.getExactVersionOfExecutor(executor160.getPath()));
+        assertEquals(2, Files.readAllLines(probeLog).size());
+
+        File executor170 = createFakeExecutor("1.7.0", probeLog);
+        String foundPath = null;
+        // the index is refreshed asynchronously when the watcher reports the new executor.
+        for (int i = 0; i < 300 && Objects.isNull(foundPath); i++) {
+            foundPath = versionHelper.getExecutorPathMatchedRequiredVersion(dir, "=", "1.7.0");
+            sleep();
+        }
+        assertEquals(executor170.getAbsolutePath(), foundPath);
+        assertEquals(3, Files.readAllLines(probeLog).size());
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private File createFakeExecutor(String version, Path probeLog) throws IOException {
+        File executor = installDir.resolve("terraform-" + version).toFile();
+        Files.writeString(
+                executor.toPath(),
+                String.format(
+                        "#!/bin/sh%necho probe >> %s%necho \"Terraform v%s\"%n",
+                        probeLog, version));
+        executor.setExecutable(true);
+        return executor;
+    }
+}
@@ -0,0 +1,81 @@
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.eclipse.xpanse.terraform.boot.models.exceptions.InvalidTerraformToolException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class TerraformVersionsPreInstallerTest {
+
+    private final Set<String> preInstalledVersions = ConcurrentHashMap.newKeySet();
+
+    private TerraformVersionsPreInstaller preInstaller;
+    private TerraformVersionsHealthIndicator healthIndicator;
+
+    @BeforeEach
+    void createPreInstaller() {
+        TerraformInstaller fakeInstaller =
+                new TerraformInstaller() {
+                    @Override
+                    public String preInstallExecutorMatchesRequiredVersion(String requiredVersion) {
+                        if ("=1.7.0".equals(requiredVersion)) {
+                            throw new InvalidTerraformToolException("download failed");
+                        }
+                        preInstalledVersions.add(requiredVersion);
+                        return "/opt/terraform/terraform-" + requiredVersion;
+                    }
+
+                    @Override
+                    public List<String> getMostRequestedVersions(int limit) {
+                        return List.of(">=1.8.0", "=1.6.0");
+                    }
+                };
+        preInstaller = new TerraformVersionsPreInstaller();
+        ReflectionTestUtils.setField(preInstaller, "preInstallEnabled", true);
+        ReflectionTestUtils.setField(preInstaller, "preInstallVersions", "1.7.0, 1.6.0");
+        ReflectionTestUtils.setField(preInstaller, "mostRequestedVersionsCount", 2);
+        ReflectionTestUtils.setField(preInstaller, "maxParallelInstallations", 2);
+        ReflectionTestUtils.setField(preInstaller, "installer", fakeInstaller);
+        healthIndicator = new TerraformVersionsHealthIndicator();
+        ReflectionTestUtils.setField(healthIndicator, "versionsPreInstaller", preInstaller);
+    }
+
+    @Test
+    void testPreInstallConfiguredAndMostRequestedVersions() {
+        assertEquals(Status.OUT_OF_SERVICE, healthIndicator.health().getStatus());
+
+        preInstaller.preInstallVersions();
+
+        assertEquals(Set.of("=1.6.0", ">=1.8.0"), preInstalledVersions);
+        assertEquals(Set.of("=1.7.0"), preInstaller.getFailedVersions().keySet());
+        Health health = healthIndicator.health();
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(
+                Map.of("=1.7.0", "download failed"), health.getDetails().get("failedVersions"));
+    }
+
+    @Test
+    void testReadyWithoutPreInstallationWhenDisabled() {
+        ReflectionTestUtils.setField(preInstaller, "preInstallEnabled", false);
+
+        preInstaller.onApplicationEvent(
+                new ApplicationStartedEvent(
+                        new SpringApplication(), new String[0], null, Duration.ZERO));
+
+        assertTrue(preInstaller.isPreInstallationCompleted());
+        assertTrue(preInstalledVersions.isEmpty());
+        assertEquals(Status.UP, healthIndicator.health().getStatus());
+    }
+}
@@ -0,0 +1,93 @@
+package org.eclipse.xpanse.terraform.boot.terraform.tool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TerraformWorkspaceTemplateManageTest {
+
+    private static final String TERRAFORM_BINARY = "terraform";
+    private static final String PROVIDER_PATH =
+            "registry.terraform.io/hashicorp/null/3.2.1/linux_amd64";
+
+    @TempDir private Path tempDir;
+
+    private Path templatesDir;
+    private TerraformWorkspaceTemplateManage templateManage;
+
+    @BeforeEach
+    void createTemplateManage() throws IOException {
+        Path cacheDir = tempDir.resolve("cache");
+        Files.createDirectories(cacheDir.resolve(PROVIDER_PATH));
+        Files.writeString(cacheDir.resolve(PROVIDER_PATH).resolve("terraform-provider"), "null");
+        templatesDir = tempDir.resolve("templates");
+        templateManage =
+                new TerraformWorkspaceTemplateManage(
+                        true,
+                        templatesDir.toString(),
+                        100,
+                        new TerraformPluginCacheManager(
+                                true, cacheDir.toString(), 100, new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void testMaterializeWorkspaceWithProviderLinks() throws IOException {
+        Path initializedWorkspace = createWorkspace(tempDir.resolve("workspaces/first"), "a");
+        String templateKey =
+                templateManage.getTemplateKey(TERRAFORM_BINARY, initializedWorkspace.toString());
+        assertNotNull(templateKey);
+        initialize(initializedWorkspace);
+        templateManage.saveWorkspaceTemplate(templateKey, initializedWorkspace.toString());
+
+        Path workspace = createWorkspace(tempDir.resolve("other/nested/second"), "a");
+        assertEquals(
+                templateKey, templateManage.getTemplateKey(TERRAFORM_BINARY, workspace.toString()));
+        assertTrue(templateManage.materializeWorkspace(templateKey, workspace.toString()));
+
+        Path linkedProvider = workspace.resolve(".terraform/providers").resolve(PROVIDER_PATH);
+        assertEquals("null", Files.readString(linkedProvider.resolve("terraform-provider")));
+        assertEquals("lock", Files.readString(workspace.resolve(".terraform.lock.hcl")));
+        assertTrue(Files.isDirectory(templatesDir.resolve(templateKey)));
+        Path nextWorkspace = createWorkspace(tempDir.resolve("third"), "a");
+        assertTrue(templateManage.materializeWorkspace(templateKey, nextWorkspace.toString()));
+    }
+
+    @Test
+    void testTemplateKeyDependsOnScripts() throws IOException {
+        Path workspace = createWorkspace(tempDir.resolve("first"), "a");
+        Path otherWorkspace = createWorkspace(tempDir.resolve("second"), "b");
+
+        assertNotEquals(
+                templateManage.getTemplateKey(TERRAFORM_BINARY, workspace.toString()),
+                templateManage.getTemplateKey(TERRAFORM_BINARY, otherWorkspace.toString()));
+        assertNotEquals(
+                templateManage.getTemplateKey(TERRAFORM_BINARY, workspace.toString()),
+                templateManage.getTemplateKey("/usr/local/bin/terraform", workspace.toString()));
+    }
+
+    private Path createWorkspace(Path workspace, String resourceName) throws IOException {
+        Files.createDirectories(workspace);
+        Files.writeString(
+                workspace.resolve("main.tf"),
+                "resource \"null_resource\" \"" + resourceName + "\" {}");
+        return workspace;
+    }
+
+    /** Creates the files of terraform init, the provider is linked relatively like terraform. */
+    private void initialize(Path workspace) throws IOException {
+        Files.writeString(workspace.resolve(".terraform.lock.hcl"), "lock");
+        Path link = workspace.resolve(".terraform/providers").resolve(PROVIDER_PATH);
+        Files.createDirectories(link.getParent());
+        Path cachedProvider = tempDir.resolve("cache").resolve(PROVIDER_PATH);
+        Files.createSymbolicLink(link, link.getParent().relativize(cachedProvider));
+    }
+}
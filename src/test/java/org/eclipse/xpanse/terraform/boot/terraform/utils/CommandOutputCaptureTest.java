@@ -0,0 +1,68 @@
+package org.eclipse.xpanse.terraform.boot.terraform.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.CommandOutputCapture.TruncationPolicy;
+import org.junit.jupiter.api.Test;
+
+class CommandOutputCaptureTest {
+
+    private static final String NL = System.lineSeparator();
+
+    @Test
+    void testRetainWholeOutputSpooledToFile() {
+        try (CommandOutputCapture capture =
+                new CommandOutputCapture(TruncationPolicy.NONE, 10, 16)) {
+            String expected = appendLines(capture, 100);
+            assertEquals(expected, capture.readAsString());
+            assertEquals(0, capture.getTruncatedBytes());
+            assertTrue(capture.toString().contains("spooled=true"));
+        }
+    }
+
+    @Test
+    void testRetainHeadOfOutput() {
+        try (CommandOutputCapture capture =
+                new CommandOutputCapture(TruncationPolicy.HEAD, 10, 4)) {
+            String expected = appendLines(capture, 100);
+            assertEquals(expected.substring(0, 10), capture.readAsString());
+            assertEquals(expected.length() - 10, capture.getTruncatedBytes());
+        }
+    }
+
+    @Test
+    void testRetainTailOfOutputInRingBuffer() {
+        try (CommandOutputCapture capture =
+                new CommandOutputCapture(TruncationPolicy.TAIL, 25, 4)) {
+            String expected = appendLines(capture, 100);
+            assertEquals(expected.substring(expected.length() - 25), capture.readAsString());
+            assertEquals(expected.length() - 25, capture.getTruncatedBytes());
+        }
+        try (CommandOutputCapture capture =
+                new CommandOutputCapture(TruncationPolicy.TAIL, 1000, 4)) {
+            String expected = appendLines(capture, 3);
+            assertEquals(expected, capture.readAsString());
+        }
+    }
+
+    @Test
+    void testReadTailOfWholeOutputAndDeleteSpoolFileOnClose() {
+        CommandOutputCapture capture = new CommandOutputCapture(TruncationPolicy.NONE, 10, 16);
+        String expected = appendLines(capture, 100);
+
+        assertEquals(expected.substring(expected.length() - 10), capture.readTailAsString());
+        assertSame(capture.readAsString(), capture.readAsString());
+        capture.close();
+        assertThrows(IllegalStateException.class, capture::openInputStream);
+    }
+
+    private String appendLines(CommandOutputCapture capture, int count) {
+        IntStream.range(0, count).forEach(i -> capture.appendLine("line-" + i));
+        return IntStream.range(0, count).mapToObj(i -> "line-" + i).collect(Collectors.joining(NL));
+    }
+}
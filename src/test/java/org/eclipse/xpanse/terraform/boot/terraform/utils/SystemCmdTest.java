@@ -0,0 +1,175 @@
+package org.eclipse.xpanse.terraform.boot.terraform.utils;
+
+import static org.eclipse.xpanse.terraform.boot.logging.CustomRequestIdGenerator.REQUEST_ID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.sun.management.OperatingSystemMXBean;
+import jakarta.annotation.Resource;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
+import org.eclipse.xpanse.terraform.boot.models.exceptions.TerraformExecutorException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.slf4j.MDC;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@Slf4j
+@DisabledOnOs(OS.WINDOWS)
+@SpringBootTest(
+        classes = {SystemCmd.class, TaskLogBus.class, TaskExecutionRegistry.class},
+        properties = {
+            "terraform.task.stop.grace.period.seconds=1",
+            "terraform.output.max.retained.bytes=64"
+        })
+class SystemCmdTest {
+
+    private static final int IDLE_COMMAND_SECONDS = 2;
+    private static final int CONCURRENT_COMMANDS = 4;
+
+    @Resource private SystemCmd systemCmd;
+    @Resource private TaskExecutionRegistry taskExecutionRegistry;
+
+    @AfterEach
+    void tearDown() {
+        MDC.clear();
+    }
+
+    @Test
+    void testExecuteCollectsStdoutAndStderr() {
+        SystemCmdResult result =
+                systemCmd.execute(
+                        "sh -c echo", System.getProperty("java.io.tmpdir"), false, new HashMap<>());
+        assertTrue(result.isCommandSuccessful());
+        assertEquals("", result.getCommandStdOutput());
+        assertEquals("", result.getCommandStdError());
+    }
+
+    @Test
+    void testCaptureCompleteStdoutOfParsedCommands() {
+        String workspace = System.getProperty("java.io.tmpdir");
+        SystemCmdResult result = systemCmd.execute("seq 1 100", workspace, false, new HashMap<>());
+        SystemCmdResult parsedResult =
+                systemCmd.executeWithCompleteStdout("seq 1 100", workspace, false, new HashMap<>());
+
+        assertEquals(64, result.getCommandStdOutput().length());
+        assertTrue(result.getCommandStdOutput().endsWith("99\n100"));
+        assertTrue(parsedResult.getCommandStdOutput().startsWith("1\n2\n"));
+        assertTrue(parsedResult.getCommandStdOutput().endsWith("99\n100"));
+        result.close();
+        parsedResult.close();
+    }
+
+    @Test
+    void testFailCommandWhoseOutputCannotBeRead() {
+        assertThrows(
+                TerraformExecutorException.class,
+                () ->
+                        systemCmd.execute(
+                                "seq 1 100",
+                                0,
+                                System.getProperty("java.io.tmpdir"),
+                                false,
+                                new HashMap<>(),
+                                line -> {
+                                    throw new IllegalStateException("Parsing failed.");
+                                }));
+    }
+
+    @Test
+    void testExecuteStopsCommandExceedingWaitTime() {
+        long startTime = System.nanoTime();
+        SystemCmdResult result =
+                systemCmd.execute(
+                        "sleep 60",
+                        1,
+                        System.getProperty("java.io.tmpdir"),
+                        false,
+                        new HashMap<>());
+        assertFalse(result.isCommandSuccessful());
+        assertTrue(result.getCommandStdError().startsWith("The command did not complete"));
+        assertTrue(System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(30));
+    }
+
+    @Test
+    void testExecuteStopsCommandOfCancelledTask() throws Exception {
+        String requestId = UUID.randomUUID().toString();
+        MDC.put(REQUEST_ID, requestId);
+        try (TaskExecutionRegistry.TaskExecution taskExecution =
+                taskExecutionRegistry.register(requestId, TaskOperationType.APPLY, 60)) {
+            CompletableFuture<SystemCmdResult> future =
+                    CompletableFuture.supplyAsync(
+                            () -> {
+                                MDC.put(REQUEST_ID, requestId);
+                                try {
+                                    return systemCmd.execute(
+                                            "sleep 60",
+                                            System.getProperty("java.io.tmpdir"),
+                                            false,
+                                            new HashMap<>());
+                                } finally {
+                                    MDC.clear();
+                                }
+                            });
+            Thread.sleep(500);
+            assertTrue(taskExecutionRegistry.cancel(requestId));
+            assertTrue(taskExecution.isStopped());
+            SystemCmdResult result = future.get(30, TimeUnit.SECONDS);
+            assertFalse(result.isCommandSuccessful());
+            assertEquals("The task was cancelled.", result.getCommandStdError());
+
+            // the following commands of the cancelled task are not started.
+            SystemCmdResult nextResult =
+                    systemCmd.execute(
+                            "sh -c echo", System.getProperty("java.io.tmpdir"), false, null);
+            assertFalse(nextResult.isCommandSuccessful());
+            assertEquals(0, nextResult.getDurationInMillis());
+        }
+        assertFalse(taskExecutionRegistry.cancel(requestId));
+    }
+
+    /**
+     * Benchmarks the CPU time consumed by the JVM while commands are running but not producing any
+     * output. Waiting for the output of a command must not spin, so the CPU time per command must
+     * stay far below its wall clock time.
+     */
+    @Test
+    void testCpuTimePerIdleRunningCommand() {
+        OperatingSystemMXBean osBean =
+                (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        long cpuTimeBefore = osBean.getProcessCpuTime();
+        long wallTimeBefore = System.nanoTime();
+        List<CompletableFuture<SystemCmdResult>> futures = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_COMMANDS; i++) {
+            futures.add(
+                    CompletableFuture.supplyAsync(
+                            () ->
+                                    systemCmd.execute(
+                                            "sleep " + IDLE_COMMAND_SECONDS,
+                                            System.getProperty("java.io.tmpdir"),
+                                            false,
+                                            new HashMap<>())));
+        }
+        futures.forEach(future -> assertTrue(future.join().isCommandSuccessful()));
+        long cpuTimeMillisPerCommand =
+                (osBean.getProcessCpuTime() - cpuTimeBefore) / 1_000_000 / CONCURRENT_COMMANDS;
+        long wallTimeMillis = (System.nanoTime() - wallTimeBefore) / 1_000_000;
+        log.info(
+                "{} idle commands ran for {} ms, CPU time per command: {} ms.",
+                CONCURRENT_COMMANDS,
+                wallTimeMillis,
+                cpuTimeMillisPerCommand);
+        assertTrue(cpuTimeMillisPerCommand < IDLE_COMMAND_SECONDS * 1000L / 4);
+    }
+}
@@ -0,0 +1,137 @@
+package org.eclipse.xpanse.terraform.boot.terraform.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.xpanse.terraform.boot.models.enums.TaskOperationType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+@DisabledOnOs(OS.WINDOWS)
+class TaskExecutionRegistryTest {
+
+    private final TaskLogBus taskLogBus = new TaskLogBus(false, 1024, 10, 600);
+
+    private final TaskExecutionRegistry taskExecutionRegistry =
+            new TaskExecutionRegistry(1800, 7200, 7200, 1, taskLogBus);
+
+    @AfterEach
+    void shutdown() {
+        taskLogBus.shutdownSubscriberExecutor();
+    }
+
+    @Test
+    void testTaskIsRegisteredUntilAllExecutionsAreClosed() {
+        TaskExecutionRegistry.TaskExecution queuedExecution =
+                taskExecutionRegistry.register("request-id");
+        assertEquals(Long.MAX_VALUE, queuedExecution.getRemainingMillis());
+        TaskExecutionRegistry.TaskExecution runningExecution =
+                taskExecutionRegistry.register("request-id", TaskOperationType.PLAN, 10);
+        assertSame(queuedExecution, runningExecution);
+        assertTrue(runningExecution.getRemainingMillis() <= TimeUnit.SECONDS.toMillis(10));
+
+        runningExecution.close();
+        assertSame(queuedExecution, taskExecutionRegistry.get("request-id"));
+        queuedExecution.close();
+        assertNull(taskExecutionRegistry.get("request-id"));
+        assertFalse(taskExecutionRegistry.cancel("request-id"));
+    }
+
+    @Test
+    void testReportStateOfTask() {
+        try (TaskExecutionRegistry.TaskExecution queuedExecution =
+                taskExecutionRegistry.register("request-id")) {
+            assertFalse(queuedExecution.isRunning());
+            assertNull(queuedExecution.getStartedAt());
+            try (TaskExecutionRegistry.TaskExecution runningExecution =
+                    taskExecutionRegistry.register("request-id", TaskOperationType.APPLY, null)) {
+                runningExecution.setPhase("apply");
+                assertTrue(queuedExecution.isRunning());
+                assertEquals(TaskOperationType.APPLY, queuedExecution.getOperationType());
+                assertEquals("apply", taskExecutionRegistry.get("request-id").getPhase());
+                assertFalse(
+                        queuedExecution.getStartedAt().isBefore(queuedExecution.getRegisteredAt()));
+                assertTrue(queuedExecution.getElapsedMillis() >= 0);
+            }
+        }
+        assertNull(taskExecutionRegistry.get("request-id"));
+    }
+
+    @Test
+    void testLogOfTaskIsCompletedWhenTaskEnds() throws Exception {
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+        TaskLogBus.TaskLogListener listener =
+                new TaskLogBus.TaskLogListener() {
+                    @Override
+                    public void onLine(TaskLogBus.TaskLogLine line) {}
+
+                    @Override
+                    public void onLinesSkipped(long nextOffset, long skippedLines) {}
+
+                    @Override
+                    public void onHeartbeat() {}
+
+                    @Override
+                    public void onCompleted() {
+                        completed.complete(null);
+                    }
+                };
+        assertNull(taskLogBus.subscribe("request-id", 0, listener));
+        try (TaskExecutionRegistry.TaskExecution queuedExecution =
+                taskExecutionRegistry.register("request-id")) {
+            assertNotNull(taskLogBus.subscribe("request-id", 0, listener));
+            taskExecutionRegistry.register("request-id", TaskOperationType.PLAN, null).close();
+            assertTrue(queuedExecution.isRunning());
+            assertFalse(completed.isDone());
+        }
+        completed.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testCancelKillsProcessTree() throws Exception {
+        // the shell ignores SIGINT while it waits for its children, so the tree must be killed.
+        Process process = new ProcessBuilder("sh", "-c", "sleep 60 & sleep 60; wait").start();
+        Thread.sleep(500);
+        List<ProcessHandle> descendants = process.descendants().toList();
+        assertFalse(descendants.isEmpty());
+        try (TaskExecutionRegistry.TaskExecution taskExecution =
+                taskExecutionRegistry.register("request-id", TaskOperationType.APPLY, null)) {
+            List<Long> recordedPids = new ArrayList<>();
+            taskExecution.setProcessListener(
+                    (workspace, processHandle) -> recordedPids.add(processHandle.pid()));
+            taskExecution.attach(process, "workspace");
+            assertEquals(List.of(process.pid()), recordedPids);
+            assertTrue(taskExecutionRegistry.cancel("request-id"));
+            assertTrue(taskExecution.isStopped());
+        }
+
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+        for (ProcessHandle descendant : descendants) {
+            descendant.onExit().get(30, TimeUnit.SECONDS);
+            assertFalse(descendant.isAlive());
+        }
+    }
+
+    @Test
+    void testInterruptProcessBeforeItIsKilled() throws Exception {
+        // the process exits on SIGINT, its handle completes before the grace period ends.
+        Process process = new ProcessBuilder("sleep", "60").start();
+        long startedNanos = System.nanoTime();
+
+        TaskExecutionRegistry.terminateProcessTree(process.toHandle(), 30)
+                .get(30, TimeUnit.SECONDS);
+
+        assertFalse(process.isAlive());
+        assertTrue(System.nanoTime() - startedNanos < TimeUnit.SECONDS.toNanos(20));
+    }
+}
@@ -0,0 +1,157 @@
+package org.eclipse.xpanse.terraform.boot.terraform.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import org.eclipse.xpanse.terraform.boot.terraform.utils.TaskLogBus.TaskLogLine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TaskLogBusTest {
+
+    private static final String REQUEST_ID = "7f3c1a4e-9b1d-4d0e-8a7a-0c1f2e3d4b5a";
+
+    private TaskLogBus taskLogBus;
+
+    @AfterEach
+    void shutdown() {
+        taskLogBus.shutdownSubscriberExecutor();
+    }
+
+    @Test
+    void testSubscribeFromOffsetUntilCompleted() throws Exception {
+        taskLogBus = new TaskLogBus(false, 1000, 10, 600);
+        taskLogBus.open(REQUEST_ID, true);
+        publishLines(0, 5);
+        RecordingListener listener = new RecordingListener(null);
+        taskLogBus.subscribe(REQUEST_ID, 2, listener);
+        publishLines(5, 7);
+        taskLogBus.complete(REQUEST_ID);
+        listener.completed.get(10, TimeUnit.SECONDS);
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L), listener.getOffsets());
+        assertEquals("line-6", listener.lines.getLast().line());
+    }
+
+    @Test
+    void testSlowSubscriberDoesNotBlockPublisher() throws Exception {
+        taskLogBus = new TaskLogBus(false, 100000, 2, 600);
+        taskLogBus.open(REQUEST_ID, true);
+        CountDownLatch firstLineReceived = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener slowListener =
+                new RecordingListener(
+                        () -> {
+                            firstLineReceived.countDown();
+                            release.await();
+                        });
+        RecordingListener fastListener = new RecordingListener(null);
+        taskLogBus.subscribe(REQUEST_ID, 0, slowListener);
+        taskLogBus.subscribe(REQUEST_ID, 0, fastListener);
+        publishLines(0, 1);
+        assertTrue(firstLineReceived.await(10, TimeUnit.SECONDS));
+        long startTime = System.nanoTime();
+        publishLines(1, 500);
+        taskLogBus.complete(REQUEST_ID);
+        assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime) < 5);
+        fastListener.completed.get(10, TimeUnit.SECONDS);
+        release.countDown();
+        slowListener.completed.get(10, TimeUnit.SECONDS);
+        List<Long> expectedOffsets = LongStream.range(0, 500).boxed().toList();
+        assertEquals(expectedOffsets, slowListener.getOffsets());
+        assertEquals(expectedOffsets, fastListener.getOffsets());
+    }
+
+    @Test
+    void testSkipLinesNoLongerRetained() throws Exception {
+        // each line has 6 bytes, the latest 5 lines are retained.
+        taskLogBus = new TaskLogBus(false, 30, 10, 600);
+        taskLogBus.open(REQUEST_ID, true);
+        publishLines(0, 10);
+        taskLogBus.complete(REQUEST_ID);
+        RecordingListener listener = new RecordingListener(null);
+        taskLogBus.subscribe(REQUEST_ID, 0, listener);
+        listener.completed.get(10, TimeUnit.SECONDS);
+        assertEquals(5, listener.skippedLines);
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L), listener.getOffsets());
+    }
+
+    @Test
+    void testKeepHistoryOfTaskOnlyWhileSubscribed() throws Exception {
+        taskLogBus = new TaskLogBus(false, 1000, 10, 600);
+        taskLogBus.open(REQUEST_ID, false);
+        publishLines(0, 5);
+        RecordingListener listener = new RecordingListener(null);
+        taskLogBus.subscribe(REQUEST_ID, 0, listener);
+        publishLines(5, 7);
+        taskLogBus.complete(REQUEST_ID);
+        listener.completed.get(10, TimeUnit.SECONDS);
+        assertEquals(5, listener.skippedLines);
+        assertEquals(List.of(5L, 6L), listener.getOffsets());
+        assertNull(taskLogBus.subscribe(REQUEST_ID, 0, new RecordingListener(null)));
+    }
+
+    @Test
+    void testIgnoreLinesOfTaskWithoutLog() {
+        taskLogBus = new TaskLogBus(false, 1000, 10, 600);
+        publishLines(0, 5);
+        assertNull(taskLogBus.subscribe(REQUEST_ID, 0, new RecordingListener(null)));
+    }
+
+    private void publishLines(int from, int to) {
+        IntStream.range(from, to)
+                .forEach(i -> taskLogBus.publish(REQUEST_ID, "stdout", "line-" + i));
+    }
+
+    private interface LineHook {
+        void run() throws InterruptedException;
+    }
+
+    private static class RecordingListener implements TaskLogBus.TaskLogListener {
+
+        private final List<TaskLogLine> lines = new CopyOnWriteArrayList<>();
+        private final CompletableFuture<Void> completed = new CompletableFuture<>();
+        private final LineHook firstLineHook;
+        private volatile long skippedLines;
+
+        RecordingListener(LineHook firstLineHook) {
+            this.firstLineHook = firstLineHook;
+        }
+
+        @Override
+        public void onLine(TaskLogLine line) {
+            lines.add(line);
+            if (lines.size() == 1 && firstLineHook != null) {
+                try {
+                    firstLineHook.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void onLinesSkipped(long nextOffset, long skippedLines) {
+            this.skippedLines += skippedLines;
+        }
+
+        @Override
+        public void onHeartbeat() {}
+
+        @Override
+        public void onCompleted() {
+            completed.complete(null);
+        }
+
+        List<Long> getOffsets() {
+            return lines.stream().map(TaskLogLine::offset).toList();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.eclipse.xpanse.terraform.boot.terraform.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformDiagnostic;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformProgressEvent;
+import org.junit.jupiter.api.Test;
+
+class TerraformJsonOutputParserTest {
+
+    private final List<TerraformProgressEvent> events = new ArrayList<>();
+
+    private final TerraformJsonOutputParser parser = new TerraformJsonOutputParser(events::add);
+
+    @Test
+    void testParseApplyOutput() {
+        parser.parseLine(
+                """
+                {"@level":"info","@message":"Terraform 1.6.0","type":"version",\
+                "terraform":"1.6.0","ui":"1.2"}""");
+        parser.parseLine(
+                """
+                {"@level":"info","@message":"null_resource.vm: Creating...",\
+                "@timestamp":"2024-01-01T00:00:00.000000Z","hook":{"resource":\
+                {"addr":"null_resource.vm","module":"","resource_type":"null_resource"},\
+                "action":"create"},"type":"apply_start"}""");
+        parser.parseLine(
+                """
+                {"@level":"info","@message":"null_resource.vm: Creation complete after 3s",\
+                "hook":{"resource":{"addr":"null_resource.vm"},"action":"create",\
+                "id_key":"id","id_value":"1","elapsed_seconds":3},"type":"apply_complete"}""");
+        parser.parseLine(
+                """
+                {"@level":"info","@message":"Apply complete! Resources: 1 added, 0 changed,\
+                 0 destroyed.","changes":{"add":1,"change":0,"import":0,"remove":0,\
+                "operation":"apply"},"type":"change_summary"}""");
+        parser.parseLine("not a json line");
+        SystemCmdResult result = new SystemCmdResult();
+
+        parser.collect(result);
+
+        assertEquals(
+                List.of("apply_start", "apply_complete", "change_summary"),
+                events.stream().map(TerraformProgressEvent::getType).toList());
+        assertEquals("null_resource.vm", events.getFirst().getResourceAddress());
+        assertEquals("create", events.getFirst().getAction());
+        assertEquals(Map.of("null_resource.vm", 3L), result.getResourceDurationsInSeconds());
+        assertEquals("apply", result.getChangeSummary().getOperation());
+        assertEquals(1, result.getChangeSummary().getAdd());
+        assertEquals(0, result.getChangeSummary().getRemove());
+        assertEquals(List.of(), result.getDiagnostics());
+        assertNull(parser.getErrors());
+    }
+
+    @Test
+    void testParseDiagnostics() {
+        parser.parseLine(
+                """
+                {"@level":"warn","@message":"Warning: Deprecated attribute",\
+                "diagnostic":{"severity":"warning","summary":"Deprecated attribute",\
+                "detail":""},"type":"diagnostic"}""");
+        parser.parseLine(
+                """
+                {"@level":"error","@message":"Error: Unsupported argument",\
+                "diagnostic":{"severity":"error","summary":"Unsupported argument",\
+                "detail":"An argument named \\"foo\\" is not expected here.",\
+                "range":{"filename":"main.tf","start":{"line":3,"column":3,"byte":40},\
+                "end":{"line":3,"column":6,"byte":43}},"snippet":{"context":"resource",\
+                "code":"  foo = 1","start_line":3,"values":[]}},"type":"diagnostic"}""");
+        SystemCmdResult result = new SystemCmdResult();
+
+        parser.collect(result);
+
+        assertEquals(2, events.size());
+        assertEquals(2, result.getDiagnostics().size());
+        TerraformDiagnostic error = result.getDiagnostics().get(1);
+        assertEquals("error", error.getSeverity());
+        assertEquals("main.tf", error.getFilename());
+        assertEquals(3, error.getLine());
+        assertEquals(
+                "Unsupported argument: An argument named \"foo\" is not expected here.",
+                parser.getErrors());
+    }
+}
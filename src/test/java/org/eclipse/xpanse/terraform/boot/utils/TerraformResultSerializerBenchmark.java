@@ -0,0 +1,109 @@
+package org.eclipse.xpanse.terraform.boot.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.serializer.Serializer;
+import org.eclipse.serializer.SerializerFoundation;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark of the formats of the stored results, for a small result and for a result with a large
+ * state. The serializer with a new foundation per call is the behavior before the serializers were
+ * pooled. Run it with the main method after `mvn test-compile`, it is not part of the unit tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TerraformResultSerializerBenchmark {
+
+    @Param({"ECLIPSE_SERIALIZER", "SMILE", "CBOR"})
+    private TerraformResultSerializer.Format format;
+
+    @Param({"false", "true"})
+    private boolean compressionEnabled;
+
+    @Param({"16384", "5242880"})
+    private int stateSize;
+
+    private TerraformResultSerializer serializer;
+    private TerraformResult result;
+    private byte[] data;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(
+                        new OptionsBuilder()
+                                .include(TerraformResultSerializerBenchmark.class.getSimpleName())
+                                .build())
+                .run();
+    }
+
+    @Setup
+    public void setUp() {
+        serializer = new TerraformResultSerializer(format, compressionEnabled);
+        result = newResult(stateSize);
+        data = serializer.serialize(result);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(result);
+    }
+
+    @Benchmark
+    public TerraformResult deserialize() {
+        return serializer.deserialize(data);
+    }
+
+    @Benchmark
+    public byte[] serializeWithNewFoundation() {
+        return Serializer.Bytes(
+                        SerializerFoundation.New().registerEntityTypes(TerraformResult.class))
+                .serialize(result);
+    }
+
+    /** A result like an apply of a few resources, the state is filled with resource entries. */
+    private static TerraformResult newResult(int stateSize) {
+        Random random = new Random(42);
+        StringBuilder state = new StringBuilder("{\"version\": 4, \"resources\": [");
+        while (state.length() < stateSize) {
+            state.append("{\"type\": \"huaweicloud_compute_instance\", \"name\": \"vm-")
+                    .append(random.nextInt(1000))
+                    .append("\", \"instances\": [{\"attributes\": {\"id\": \"")
+                    .append(UUID.randomUUID())
+                    .append("\", \"flavor_id\": \"s6.large.2\"}}]},");
+        }
+        state.append("{}]}");
+        Map<String, String> generatedFiles = new HashMap<>();
+        generatedFiles.put(".terraform.lock.hcl", "provider \"registry.terraform.io/aws\" {}");
+        return TerraformResult.builder()
+                .requestId(UUID.randomUUID())
+                .isCommandSuccessful(true)
+                .commandStdOutput("Apply complete! Resources: 3 added, 0 changed, 0 destroyed.")
+                .commandStdError("")
+                .terraformState(state.toString())
+                .generatedFileContentMap(generatedFiles)
+                .terraformVersionUsed("1.9.0")
+                .phaseDurationsInMillis(Map.of("init", 1200L, "plan", 3400L, "apply", 35000L))
+                .build();
+    }
+}
@@ -0,0 +1,70 @@
+package org.eclipse.xpanse.terraform.boot.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.UUID;
+import org.eclipse.xpanse.terraform.boot.models.response.TerraformResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class TerraformResultSerializerTest {
+
+    @ParameterizedTest
+    @EnumSource(TerraformResultSerializer.Format.class)
+    void testSerializeAndDeserialize(TerraformResultSerializer.Format format) {
+        TerraformResult result = newResult();
+        for (boolean compressionEnabled : new boolean[] {false, true}) {
+            TerraformResultSerializer serializer =
+                    new TerraformResultSerializer(format, compressionEnabled);
+
+            assertEquals(result, serializer.deserialize(serializer.serialize(result)));
+            // the pooled serializers are reused.
+            assertEquals(result, serializer.deserialize(serializer.serialize(result)));
+        }
+    }
+
+    @Test
+    void testDeserializeDataOfOtherConfiguration() {
+        TerraformResult result = newResult();
+        byte[] compressedData =
+                new TerraformResultSerializer(TerraformResultSerializer.Format.SMILE, true)
+                        .serialize(result);
+        byte[] uncompressedData =
+                new TerraformResultSerializer(TerraformResultSerializer.Format.SMILE, false)
+                        .serialize(result);
+        TerraformResultSerializer serializer =
+                new TerraformResultSerializer(
+                        TerraformResultSerializer.Format.ECLIPSE_SERIALIZER, false);
+
+        assertTrue(compressedData.length < uncompressedData.length);
+        assertEquals(result, serializer.deserialize(compressedData));
+        assertEquals(result, serializer.deserialize(uncompressedData));
+    }
+
+    @Test
+    void testRejectUnknownFramingVersion() {
+        TerraformResultSerializer serializer =
+                new TerraformResultSerializer(TerraformResultSerializer.Format.CBOR, false);
+        byte[] data = serializer.serialize(newResult());
+        data[4] = 2;
+
+        assertThrows(IllegalArgumentException.class, () -> serializer.deserialize(data));
+    }
+
+    private TerraformResult newResult() {
+        return TerraformResult.builder()
+                .requestId(UUID.randomUUID())
+                .isCommandSuccessful(true)
+                .commandStdOutput("Apply complete! Resources: 3 added, 0 changed, 0 destroyed.")
+                .commandStdError("")
+                .terraformState("{\"version\": 4, \"resources\": []}".repeat(100))
+                .generatedFileContentMap(Map.of(".terraform.lock.hcl", "provider \"aws\" {}"))
+                .terraformVersionUsed("1.9.0")
+                .phaseDurationsInMillis(Map.of("init", 1200L, "apply", 35000L))
+                .build();
+    }
+}